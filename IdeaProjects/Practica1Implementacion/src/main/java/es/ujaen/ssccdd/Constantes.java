@@ -76,6 +76,47 @@ public interface Constantes {
         }
     }
 
+    /**
+     * Resultado de una petición asíncrona: aceptada sin reserva de viaje (las peticiones de redistribución),
+     * resuelta con un viaje reservado, rechazada o vencida antes de poder resolverse
+     */
+    enum ResultadoPeticion {
+        ACEPTADA, RESERVADA, RECHAZADA, CADUCADA;
+
+        public boolean isResuelta() {
+            return this == ACEPTADA || this == RESERVADA;
+        }
+    }
+
+    /**
+     * Política de admisión del buzón de peticiones cuando está lleno: rechazar la petición nueva, rechazar
+     * la más antigua o rechazar una petición cuya estación de origen no tiene bicicletas
+     */
+    enum PoliticaAdmision {
+        RECHAZAR_NUEVAS, RECHAZAR_ANTIGUAS, ESCASEZ_ORIGEN
+    }
+
+    /**
+     * Etapas de la línea de reparación de la zona de mantenimiento, en orden, con el tiempo que dedica un
+     * trabajador a cada bicicleta. Tras el control de calidad la bicicleta queda lista para su recogida
+     */
+    enum EtapaReparacion {
+        INGRESO(500), DIAGNOSTICO(2_000), REPARACION(6_000), CONTROL_CALIDAD(1_500);
+
+        private final long duracion;
+
+        EtapaReparacion(long duracion) {
+            this.duracion = duracion;
+        }
+
+        /**
+         * @return milisegundos que dedica un trabajador de la etapa a cada bicicleta
+         */
+        public long getDuracion() {
+            return duracion;
+        }
+    }
+
     enum TipoEvento {
         // Eventos de Usuario
         USUARIO_SOLICITUD_TRANSPORTE(10, "Solicitud de transporte"),
@@ -162,4 +203,28 @@ public interface Constantes {
     int MAX_BICICLETAS = 30;                    // Máximo número de bicicletas para la simulación del sistema de transporte
     int UNO = 1;
     int TIEMPO_TRANSPORTE = 2;
+    int CAPACIDAD_CAMION = 10;                  // Máximo de bicicletas que transporta un camión en un viaje
+    int REDISTRIBUCIONES_SIMULTANEAS = 3;       // Máximo de viajes de redistribución pendientes o en curso a la vez
+    int NUM_RESOLUTORES = 4;                    // Hilos del gestor que resuelven peticiones de transporte
+    int TAM_LOTE_PETICIONES = 32;               // Máximo de peticiones que recoge de una vez cada resolutor
+    boolean RECEPCION_DIRECTA = true;           // Los usuarios depositan sus peticiones directamente en el buzón de los resolutores
+    int TAM_VENTANA_PLANIFICACION = 128;        // Máximo de peticiones que cada resolutor ordena por prioridad
+    long PENALIZACION_INSATISFACIBLE = 500;     // milisegundos que se retrasa una petición que no puede resolverse
+    int CAPACIDAD_BUZON = 256;                  // Máximo de peticiones que esperan en cada fragmento del buzón
+    int LIMITE_MINIMO_BUZON = 8;                // Límite por debajo del cual no se reduce la capacidad del buzón
+    int LATENCIA_OBJETIVO_LOTE = 2_000;         // microsegundos, latencia de un lote a partir de la que se reduce el límite del buzón
+    PoliticaAdmision POLITICA_ADMISION = PoliticaAdmision.ESCASEZ_ORIGEN;
+    int PLAZO_PETICION = 10;                    // segundos, plazo para resolver una petición de transporte antes de que venza
+    int ESPERA_MINIMA_BLOQUEO = 50;             // microsegundos, primera espera al no poder bloquear varias estaciones
+    int ESPERA_MAXIMA_BLOQUEO = 5_000;          // microsegundos, espera máxima entre intentos de bloqueo
+    boolean REDISTRIBUCION_JERARQUICA = false;  // Planificar la redistribución por zonas de estaciones y después entre zonas
+    int TAM_ZONA_REDISTRIBUCION = 64;           // Máximo de estaciones de cada zona de la redistribución jerárquica
+    int CANDIDATOS_REDISTRIBUCION = 16;         // Estaciones más vacías y más llenas del plan de redistribución plano
+    boolean MANTENIMIENTO_POR_SONDEO = false;   // Revisar las estaciones cada segundo en lugar de atender sus avisos de mantenimiento
+    boolean TECNICOS_COMPARTIDOS = false;       // Los técnicos atienden cualquier estación según les asigna el despacho
+    int NUM_TECNICOS = 4;                       // Técnicos del conjunto compartido de mantenimiento
+    boolean LINEA_REPARACION = true;            // Los técnicos entregan las bicicletas a la línea de reparación de la zona de mantenimiento
+    int TRABAJADORES_ETAPA = 2;                 // Trabajadores de cada etapa de la línea de reparación
+    int CAPACIDAD_ETAPA = 16;                   // Bicicletas que pueden esperar a la entrada de cada etapa
+    int NUM_ZONAS_MANTENIMIENTO = 1;            // Zonas de mantenimiento, cada una con sus bicicletas y su exclusión mutua
 }
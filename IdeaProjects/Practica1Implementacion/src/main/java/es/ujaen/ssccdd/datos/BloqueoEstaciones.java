@@ -0,0 +1,127 @@
+package es.ujaen.ssccdd.datos;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static es.ujaen.ssccdd.Constantes.*;
+
+/**
+ * Bloqueo conjunto de varias estaciones de bicicletas para las operaciones que afectan a más de una
+ * estación. Las estaciones se bloquean siempre en el mismo orden global (por su identificador) y sin
+ * esperar en ninguna de ellas: si alguna está ocupada se liberan las ya obtenidas y se vuelve a intentar
+ * tras una espera creciente. Así no se producen interbloqueos y una tarea no retiene una estación mientras
+ * espera por otra.
+ */
+public class BloqueoEstaciones {
+    private final EstacionBicicletas[] estaciones;      // Estaciones en el orden global de bloqueo
+    private final long[] sellos;                        // Sellos obtenidos de cada estación
+    private boolean bloqueado;                          // Indica si se tienen bloqueadas las estaciones
+
+    public BloqueoEstaciones(EstacionBicicletas... estaciones) {
+        if (estaciones == null || estaciones.length == 0 || Arrays.stream(estaciones).anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("Las estaciones a bloquear deben estar definidas");
+        }
+
+        // Una misma estación solo se bloquea una vez aunque aparezca repetida
+        this.estaciones = Arrays.stream(estaciones)
+                .distinct()
+                .sorted(Comparator.comparing(EstacionBicicletas::getId)
+                        .thenComparingInt(System::identityHashCode))
+                .toArray(EstacionBicicletas[]::new);
+        this.sellos = new long[this.estaciones.length];
+        this.bloqueado = false;
+    }
+
+    /**
+     * Bloquea todas las estaciones. Si no es posible obtenerlas todas a la vez se espera un tiempo
+     * aleatorio, que se duplica en cada intento hasta ESPERA_MAXIMA_BLOQUEO, antes de volver a intentarlo
+     * @throws InterruptedException si se interrumpe la espera
+     */
+    public void bloquear() throws InterruptedException {
+        long espera = TimeUnit.MICROSECONDS.toNanos(ESPERA_MINIMA_BLOQUEO);
+        long esperaMaxima = TimeUnit.MICROSECONDS.toNanos(ESPERA_MAXIMA_BLOQUEO);
+
+        while (!intentarBloquear()) {
+            LockSupport.parkNanos(aleatorio.nextLong(espera / 2, espera + 1));
+            if (Thread.interrupted()) {
+                throw new InterruptedException("Interrumpido mientras se bloqueaban las estaciones");
+            }
+            espera = Math.min(espera * 2, esperaMaxima);
+        }
+    }
+
+    /**
+     * Bloquea todas las estaciones como bloquear() pero sin atender las interrupciones, que se conservan para
+     * quien llama. Sirve para deshacer operaciones que no pueden quedar a medias aunque se interrumpa la tarea
+     */
+    public void bloquearIninterrumpible() {
+        long espera = TimeUnit.MICROSECONDS.toNanos(ESPERA_MINIMA_BLOQUEO);
+        long esperaMaxima = TimeUnit.MICROSECONDS.toNanos(ESPERA_MAXIMA_BLOQUEO);
+        boolean interrumpido = Thread.interrupted();
+
+        while (!intentarBloquear()) {
+            LockSupport.parkNanos(aleatorio.nextLong(espera / 2, espera + 1));
+            interrumpido |= Thread.interrupted();
+            espera = Math.min(espera * 2, esperaMaxima);
+        }
+
+        if (interrumpido) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Intenta bloquear todas las estaciones sin esperar
+     * @return true si se han bloqueado todas, false si alguna estaba ocupada y no se retiene ninguna
+     */
+    public boolean intentarBloquear() {
+        if (bloqueado) {
+            throw new IllegalStateException("Las estaciones ya están bloqueadas");
+        }
+
+        int bloqueadas = 0;
+
+        while (bloqueadas < estaciones.length &&
+                (sellos[bloqueadas] = estaciones[bloqueadas].intentarBloquearEscritura()) != 0) {
+            bloqueadas++;
+        }
+
+        if (bloqueadas < estaciones.length) {
+            liberar(bloqueadas);
+        } else {
+            bloqueado = true;
+        }
+
+        return bloqueado;
+    }
+
+    /**
+     * Libera todas las estaciones bloqueadas
+     */
+    public void liberar() {
+        if (!bloqueado) {
+            throw new IllegalStateException("Las estaciones no están bloqueadas");
+        }
+
+        liberar(estaciones.length);
+        bloqueado = false;
+    }
+
+    public boolean isBloqueado() {
+        return bloqueado;
+    }
+
+    /**
+     * Libera en orden inverso las primeras estaciones del orden de bloqueo
+     * @param bloqueadas número de estaciones que se tienen bloqueadas
+     */
+    private void liberar(int bloqueadas) {
+        for (int i = bloqueadas - 1; i >= 0; i--) {
+            estaciones[i].liberarEscritura(sellos[i]);
+            sellos[i] = 0;
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package es.ujaen.ssccdd.datos;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import static es.ujaen.ssccdd.Constantes.*;
+
+/**
+ * Buzón de entrada de las peticiones de transporte. Las peticiones se reparten en fragmentos según su
+ * estación de origen y cada fragmento es una cola sin bloqueos en la que escriben muchos solicitantes y
+ * de la que lee un único resolutor. El semáforo de cada fragmento tiene un permiso por petición en la cola.
+ * <p>
+ * Cada fragmento admite como mucho un límite de peticiones. Cuando está lleno, la política de admisión decide
+ * qué petición se descarta: la nueva, la más antigua del fragmento, o una cuyo origen no tiene bicicletas (la
+ * nueva si su origen no tiene, si no la más antigua del fragmento sin bicicletas en su origen, y la nueva si no
+ * hay ninguna). Las peticiones descartadas se rechazan para que su solicitante no quede esperando. El límite
+ * se adapta a la latencia de los resolutores: se reduce a la mitad cuando un lote tarda más de la latencia
+ * objetivo y vuelve a crecer de uno en uno cuando se recupera.
+ * <p>
+ * Las peticiones que el resolutor aparca conservan su plaza en el fragmento hasta que vuelven a recogerse o se
+ * retiran, así que las peticiones en cola más las aparcadas de un fragmento no superan su límite más las que
+ * se están resolviendo en ese momento.
+ */
+public class BuzonPeticiones {
+    private final List<Queue<Peticion>> colas;          // Cola de peticiones de cada fragmento
+    private final Semaphore[] semPeticiones;            // Semáforo con las peticiones de cada fragmento
+    private final AtomicIntegerArray enCola;            // Plazas ocupadas en cada fragmento
+    private final int capacidad;                        // Límite máximo de peticiones de cada fragmento
+    private final AtomicInteger limite;                 // Límite actual de peticiones de cada fragmento
+    private final PoliticaAdmision politica;            // Qué petición se descarta cuando un fragmento está lleno
+    private final Predicate<String> origenEscaso;       // Indica si una estación de origen no tiene bicicletas
+    private final AtomicLong admitidas;                 // Número de peticiones admitidas
+    private final AtomicLong descartadas;               // Número de peticiones descartadas
+
+    /**
+     * Buzón sin límite de peticiones
+     * @param numFragmentos el número de fragmentos del buzón
+     */
+    public BuzonPeticiones(int numFragmentos) {
+        this(numFragmentos, Integer.MAX_VALUE, PoliticaAdmision.RECHAZAR_NUEVAS, origen -> false);
+    }
+
+    /**
+     * Buzón con un límite de peticiones por fragmento
+     * @param numFragmentos el número de fragmentos del buzón
+     * @param capacidad el número máximo de peticiones de cada fragmento
+     * @param politica la política de admisión cuando un fragmento está lleno
+     * @param origenEscaso el predicado que indica si una estación de origen no tiene bicicletas
+     */
+    public BuzonPeticiones(int numFragmentos, int capacidad, PoliticaAdmision politica, Predicate<String> origenEscaso) {
+        if (numFragmentos < 1) {
+            throw new IllegalArgumentException("El buzón debe tener al menos un fragmento");
+        }
+
+        if (capacidad < LIMITE_MINIMO_BUZON || politica == null || origenEscaso == null) {
+            throw new IllegalArgumentException("La capacidad o la política de admisión del buzón no son válidas");
+        }
+
+        this.colas = new ArrayList<>(numFragmentos);
+        this.semPeticiones = new Semaphore[numFragmentos];
+        for (int i = 0; i < numFragmentos; i++) {
+            this.colas.add(new ConcurrentLinkedQueue<>());
+            this.semPeticiones[i] = new Semaphore(0);
+        }
+        this.enCola = new AtomicIntegerArray(numFragmentos);
+        this.capacidad = capacidad;
+        this.limite = new AtomicInteger(capacidad);
+        this.politica = politica;
+        this.origenEscaso = origenEscaso;
+        this.admitidas = new AtomicLong();
+        this.descartadas = new AtomicLong();
+    }
+
+    public int getNumFragmentos() {
+        return colas.size();
+    }
+
+    public int getCapacidad() {
+        return capacidad;
+    }
+
+    public int getLimite() {
+        return limite.get();
+    }
+
+    public PoliticaAdmision getPolitica() {
+        return politica;
+    }
+
+    public long getAdmitidas() {
+        return admitidas.get();
+    }
+
+    public long getDescartadas() {
+        return descartadas.get();
+    }
+
+    /**
+     * El fragmento al que corresponde una estación de origen
+     * @param idOrigen el identificador de la estación de origen
+     * @return el número del fragmento
+     */
+    public int fragmento(String idOrigen) {
+        return Math.floorMod(Objects.hashCode(idOrigen), colas.size());
+    }
+
+    /**
+     * Deposita una petición en el fragmento de su estación de origen si la política de admisión lo permite
+     * @param peticion la petición de transporte
+     * @return true si se ha admitido la petición, false si se ha descartado
+     */
+    public boolean enviar(Peticion peticion) {
+        int fragmento = fragmento(peticion.getOrigen());
+        boolean admitida = true;
+
+        if (!reservarPlaza(fragmento)) {
+            if (politica == PoliticaAdmision.RECHAZAR_ANTIGUAS) {
+                // La petición nueva ocupa la plaza de la más antigua del fragmento
+                admitida = expulsarAntigua(fragmento);
+            } else if (politica == PoliticaAdmision.ESCASEZ_ORIGEN && !origenEscaso.test(peticion.getOrigen())) {
+                // La petición nueva ocupa la plaza de una que no puede satisfacerse por ahora
+                admitida = expulsarEscasa(fragmento);
+            } else {
+                admitida = false;
+            }
+        }
+
+        if (admitida) {
+            depositar(fragmento, peticion);
+            admitidas.incrementAndGet();
+        } else {
+            descartar(peticion);
+        }
+
+        return admitida;
+    }
+
+    /**
+     * Vuelve a depositar una petición aparcada que se reactiva. No se aplica la política de admisión porque la
+     * petición conserva la plaza que retuvo al aparcarse
+     * @param peticion la petición de transporte con su plaza retenida
+     */
+    public void reenviar(Peticion peticion) {
+        depositar(fragmento(peticion.getOrigen()), peticion);
+    }
+
+    /**
+     * Retiene la plaza de una petición recogida que se aparca, de modo que las peticiones aparcadas cuentan
+     * para el límite del fragmento de su origen
+     * @param peticion la petición que se aparca
+     */
+    public void retenerPlaza(Peticion peticion) {
+        enCola.incrementAndGet(fragmento(peticion.getOrigen()));
+    }
+
+    /**
+     * Libera la plaza retenida de una petición aparcada que se retira sin volver al buzón, porque vence o ya
+     * está terminada
+     * @param peticion la petición retirada
+     */
+    public void liberarPlaza(Peticion peticion) {
+        enCola.decrementAndGet(fragmento(peticion.getOrigen()));
+    }
+
+    /**
+     * Espera a que haya peticiones en el fragmento y recoge hasta un máximo de ellas de una vez
+     * @param fragmento el fragmento del que se recogen las peticiones
+     * @param lote la colección donde se añaden las peticiones recogidas
+     * @param maximo el número máximo de peticiones a recoger
+     * @return el número de peticiones recogidas
+     * @throws InterruptedException si se interrumpe la espera
+     */
+    public int recoger(int fragmento, Collection<Peticion> lote, int maximo) throws InterruptedException {
+        if (maximo < 1) {
+            throw new IllegalArgumentException("El número de peticiones a recoger tiene que ser un número positivo");
+        }
+
+        semPeticiones[fragmento].acquire();
+
+        return extraer(fragmento, lote, maximo, true);
+    }
+
+    /**
+     * Recoge hasta un máximo de peticiones del fragmento sin esperar a que lleguen
+     * @param fragmento el fragmento del que se recogen las peticiones
+     * @param lote la colección donde se añaden las peticiones recogidas
+     * @param maximo el número máximo de peticiones a recoger
+     * @return el número de peticiones recogidas, que puede ser 0
+     */
+    public int recogerSinEsperar(int fragmento, Collection<Peticion> lote, int maximo) {
+        if (maximo < 1) {
+            throw new IllegalArgumentException("El número de peticiones a recoger tiene que ser un número positivo");
+        }
+
+        return extraer(fragmento, lote, maximo, false);
+    }
+
+    /**
+     * Número de peticiones que esperan en un fragmento
+     * @param fragmento el fragmento que se consulta
+     * @return el número de peticiones en el fragmento
+     */
+    public int pendientes(int fragmento) {
+        return semPeticiones[fragmento].availablePermits();
+    }
+
+    /**
+     * Plazas ocupadas de un fragmento por las peticiones en cola y las aparcadas
+     * @param fragmento el fragmento que se consulta
+     * @return el número de plazas ocupadas
+     */
+    public int plazasOcupadas(int fragmento) {
+        return enCola.get(fragmento);
+    }
+
+    /**
+     * Adapta el límite de peticiones a la latencia de un lote de los resolutores: si supera la latencia
+     * objetivo el límite se reduce a la mitad y en otro caso crece en uno, sin salir de sus márgenes
+     * @param latencia microsegundos que ha tardado en resolverse el lote
+     */
+    public void ajustarLimite(long latencia) {
+        if (latencia > LATENCIA_OBJETIVO_LOTE) {
+            limite.updateAndGet(actual -> Math.max(LIMITE_MINIMO_BUZON, actual / 2));
+        } else {
+            limite.updateAndGet(actual -> actual < capacidad ? actual + 1 : actual);
+        }
+    }
+
+    /**
+     * Ocupa una plaza del fragmento si no ha alcanzado su límite
+     * @return true si se ha ocupado la plaza
+     */
+    private boolean reservarPlaza(int fragmento) {
+        int ocupadas;
+
+        do {
+            ocupadas = enCola.get(fragmento);
+            if (ocupadas >= limite.get()) {
+                return false;
+            }
+        } while (!enCola.compareAndSet(fragmento, ocupadas, ocupadas + 1));
+
+        return true;
+    }
+
+    /**
+     * Retira la petición más antigua del fragmento y la descarta, dejando su plaza para una nueva petición
+     * @return true si se ha retirado una petición, false si el fragmento se ha vaciado mientras tanto
+     */
+    private boolean expulsarAntigua(int fragmento) {
+        boolean expulsada = semPeticiones[fragmento].tryAcquire();
+
+        if (expulsada) {
+            descartar(colas.get(fragmento).poll());
+        } else {
+            // Los resolutores han vaciado el fragmento, así que puede que ya haya plaza
+            expulsada = reservarPlaza(fragmento);
+        }
+
+        return expulsada;
+    }
+
+    /**
+     * Retira la petición más antigua del fragmento cuyo origen no tiene bicicletas y la descarta, dejando su
+     * plaza para una nueva petición. Recorre como mucho las peticiones del fragmento, limitadas por su límite
+     * @return true si se ha retirado una petición, false si no hay ninguna con el origen sin bicicletas
+     */
+    private boolean expulsarEscasa(int fragmento) {
+        boolean expulsada = semPeticiones[fragmento].tryAcquire();
+
+        if (expulsada) {
+            Queue<Peticion> cola = colas.get(fragmento);
+            Peticion escasa = null;
+
+            // Con el permiso de una petición se puede retirar cualquiera, aunque un resolutor tome la elegida antes
+            for (Iterator<Peticion> it = cola.iterator(); escasa == null && it.hasNext(); ) {
+                Peticion candidata = it.next();
+                if (origenEscaso.test(candidata.getOrigen()) && cola.remove(candidata)) {
+                    escasa = candidata;
+                }
+            }
+
+            if (escasa != null) {
+                descartar(escasa);
+            } else {
+                semPeticiones[fragmento].release();
+                expulsada = false;
+            }
+        } else {
+            // Los resolutores han vaciado el fragmento, así que puede que ya haya plaza
+            expulsada = reservarPlaza(fragmento);
+        }
+
+        return expulsada;
+    }
+
+    /**
+     * Extrae peticiones del fragmento tomando el permiso de cada una. Como el permiso se libera después de
+     * añadir la petición y todo el que extrae una petición adquiere antes su permiso, la cola siempre tiene
+     * una petición para cada permiso obtenido
+     * @param primera indica si ya se tiene el permiso de la primera petición
+     */
+    private int extraer(int fragmento, Collection<Peticion> lote, int maximo, boolean primera) {
+        Queue<Peticion> cola = colas.get(fragmento);
+        int recogidas = 0;
+
+        while (recogidas < maximo && ((primera && recogidas == 0) || semPeticiones[fragmento].tryAcquire())) {
+            lote.add(cola.poll());
+            recogidas++;
+        }
+        enCola.addAndGet(fragmento, -recogidas);
+
+        return recogidas;
+    }
+
+    private void depositar(int fragmento, Peticion peticion) {
+        colas.get(fragmento).add(peticion);
+        semPeticiones[fragmento].release();
+    }
+
+    /**
+     * Rechaza una petición descartada para que su solicitante no quede esperando
+     */
+    private void descartar(Peticion peticion) {
+        descartadas.incrementAndGet();
+        if (peticion.reclamar()) {
+            peticion.rechazar();
+        }
+    }
+}
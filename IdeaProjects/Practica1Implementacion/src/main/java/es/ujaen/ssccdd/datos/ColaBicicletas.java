@@ -0,0 +1,219 @@
+package es.ujaen.ssccdd.datos;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Cola de bicicletas con un índice por identificador. Las bicicletas se enlazan en una lista doblemente
+ * enlazada en el orden en que llegan y el índice guarda, para cada id, los nodos de la lista con ese id en el
+ * mismo orden. Así la extracción de la más antigua y la búsqueda o eliminación de una bicicleta por su id se
+ * hacen en tiempo constante, sin recorrer la cola. Se permiten varias bicicletas con el mismo id porque las
+ * bicicletas ALQUILADAS toman el id del usuario que las solicita.
+ */
+class ColaBicicletas extends AbstractQueue<Bicicleta> {
+    private final Map<String, Deque<Nodo>> indice;     // Nodos de cada identificador en orden de llegada
+    private Nodo primero;                              // Bicicleta más antigua de la cola
+    private Nodo ultimo;                               // Bicicleta más reciente de la cola
+    private int numBicicletas;                         // Número de bicicletas en la cola
+
+    public ColaBicicletas() {
+        this.indice = new HashMap<>();
+    }
+
+    public ColaBicicletas(ColaBicicletas original) {
+        this();
+        addAll(original);
+    }
+
+    @Override
+    public boolean offer(Bicicleta bicicleta) {
+        if (bicicleta == null)
+            throw new NullPointerException("La bicicleta no puede ser null");
+
+        Nodo nodo = new Nodo(bicicleta);
+        if (ultimo == null) {
+            primero = nodo;
+        } else {
+            ultimo.siguiente = nodo;
+            nodo.anterior = ultimo;
+        }
+        ultimo = nodo;
+        indice.computeIfAbsent(bicicleta.getId(), id -> new ArrayDeque<>(1)).addLast(nodo);
+        numBicicletas++;
+
+        return true;
+    }
+
+    @Override
+    public Bicicleta poll() {
+        Bicicleta resultado = null;
+
+        if (primero != null) {
+            // La más antigua de la cola también es la más antigua de su identificador
+            resultado = primero.bicicleta;
+            desindexar(resultado.getId(), Deque::pollFirst);
+            desenlazar(primero);
+        }
+
+        return resultado;
+    }
+
+    @Override
+    public Bicicleta peek() {
+        return (primero != null) ? primero.bicicleta : null;
+    }
+
+    /**
+     * Extrae la primera bicicleta de la cola que tiene el identificador dado
+     * @param idBicicleta el identificador de la bicicleta
+     * @return el Optional con la bicicleta, vacío si no está en la cola
+     */
+    public Optional<Bicicleta> extraer(String idBicicleta) {
+        Nodo nodo = desindexar(idBicicleta, Deque::pollFirst);
+
+        if (nodo != null)
+            desenlazar(nodo);
+
+        return Optional.ofNullable(nodo).map(encontrado -> encontrado.bicicleta);
+    }
+
+    @Override
+    public boolean contains(Object objeto) {
+        return buscar(objeto) != null;
+    }
+
+    @Override
+    public boolean remove(Object objeto) {
+        Nodo nodo = buscar(objeto);
+
+        if (nodo != null) {
+            quitar(nodo);
+        }
+
+        return nodo != null;
+    }
+
+    @Override
+    public void clear() {
+        indice.clear();
+        primero = null;
+        ultimo = null;
+        numBicicletas = 0;
+    }
+
+    @Override
+    public int size() {
+        return numBicicletas;
+    }
+
+    @Override
+    public Iterator<Bicicleta> iterator() {
+        return new Iterator<>() {
+            private Nodo siguiente = primero;
+            private Nodo ultimaDevuelta;
+
+            @Override
+            public boolean hasNext() {
+                return siguiente != null;
+            }
+
+            @Override
+            public Bicicleta next() {
+                if (siguiente == null)
+                    throw new NoSuchElementException();
+
+                ultimaDevuelta = siguiente;
+                siguiente = siguiente.siguiente;
+                return ultimaDevuelta.bicicleta;
+            }
+
+            @Override
+            public void remove() {
+                if (ultimaDevuelta == null)
+                    throw new IllegalStateException();
+
+                quitar(ultimaDevuelta);
+                ultimaDevuelta = null;
+            }
+        };
+    }
+
+    /**
+     * Localiza el nodo de la primera bicicleta igual a la dada entre las que tienen su identificador
+     */
+    private Nodo buscar(Object objeto) {
+        Nodo encontrado = null;
+
+        if (objeto instanceof Bicicleta bicicleta) {
+            Deque<Nodo> nodos = indice.get(bicicleta.getId());
+            if (nodos != null) {
+                for (Iterator<Nodo> it = nodos.iterator(); encontrado == null && it.hasNext(); ) {
+                    Nodo nodo = it.next();
+                    if (nodo.bicicleta.equals(bicicleta))
+                        encontrado = nodo;
+                }
+            }
+        }
+
+        return encontrado;
+    }
+
+    /**
+     * Quita un nodo cualquiera de la cola y del índice. Solo recorre los nodos de su mismo identificador,
+     * que normalmente son uno
+     */
+    private void quitar(Nodo nodo) {
+        desindexar(nodo.bicicleta.getId(), nodos -> nodos.removeFirstOccurrence(nodo) ? nodo : null);
+        desenlazar(nodo);
+    }
+
+    /**
+     * Retira un nodo de los nodos de un identificador y elimina la entrada del índice si queda vacía
+     */
+    private Nodo desindexar(String idBicicleta, Function<Deque<Nodo>, Nodo> retirada) {
+        Deque<Nodo> nodos = indice.get(idBicicleta);
+        Nodo nodo = null;
+
+        if (nodos != null) {
+            nodo = retirada.apply(nodos);
+            if (nodos.isEmpty())
+                indice.remove(idBicicleta);
+        }
+
+        return nodo;
+    }
+
+    private void desenlazar(Nodo nodo) {
+        if (nodo.anterior == null) {
+            primero = nodo.siguiente;
+        } else {
+            nodo.anterior.siguiente = nodo.siguiente;
+        }
+
+        if (nodo.siguiente == null) {
+            ultimo = nodo.anterior;
+        } else {
+            nodo.siguiente.anterior = nodo.anterior;
+        }
+
+        numBicicletas--;
+    }
+
+    /** Nodo de la lista de bicicletas en orden de llegada */
+    private static class Nodo {
+        private final Bicicleta bicicleta;
+        private Nodo anterior;
+        private Nodo siguiente;
+
+        private Nodo(Bicicleta bicicleta) {
+            this.bicicleta = bicicleta;
+        }
+    }
+}
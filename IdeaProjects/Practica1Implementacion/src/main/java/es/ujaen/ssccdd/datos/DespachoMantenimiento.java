@@ -0,0 +1,166 @@
+package es.ujaen.ssccdd.datos;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Despacho de los trabajos de mantenimiento entre un conjunto compartido de técnicos. Cada aviso de una
+ * estación se asigna al técnico con menos carga (trabajos en su cola más el que está realizando) y cada
+ * técnico atiende primero su propia cola. Un técnico sin trabajos roba el trabajo más reciente del técnico con
+ * más trabajos pendientes, de modo que ningún técnico queda parado mientras otros tienen trabajos esperando.
+ * <p>
+ * El semáforo tiene un permiso por trabajo en las colas y cada técnico adquiere uno antes de buscar su
+ * trabajo, así que siempre encuentra alguno en su cola o en la de otro técnico. Una estación solo puede
+ * estar una vez en las colas; puede volver a avisarse en cuanto un técnico toma su trabajo.
+ */
+public class DespachoMantenimiento {
+    private final List<Deque<EstacionBicicletas>> colas;     // Trabajos pendientes de cada técnico
+    private final AtomicIntegerArray cargas;                  // Trabajos en cola y en curso de cada técnico
+    private final Semaphore semTrabajos;                      // Un permiso por trabajo en las colas
+    private final Set<String> enEspera;                       // Estaciones con un trabajo en las colas
+    private final AtomicLong asignados;                       // Número de trabajos asignados
+    private final AtomicLong robados;                         // Número de trabajos robados a otro técnico
+
+    public DespachoMantenimiento(int numTecnicos) {
+        if (numTecnicos < 1)
+            throw new IllegalArgumentException("Debe haber al menos un técnico de mantenimiento");
+
+        this.colas = new ArrayList<>(numTecnicos);
+        for (int i = 0; i < numTecnicos; i++) {
+            this.colas.add(new ConcurrentLinkedDeque<>());
+        }
+        this.cargas = new AtomicIntegerArray(numTecnicos);
+        this.semTrabajos = new Semaphore(0);
+        this.enEspera = ConcurrentHashMap.newKeySet();
+        this.asignados = new AtomicLong();
+        this.robados = new AtomicLong();
+    }
+
+    /**
+     * Asigna el mantenimiento de una estación al técnico con menos carga
+     * @param estacion la estación que necesita mantenimiento
+     * @return true si se ha asignado, false si la estación ya tenía un trabajo pendiente
+     */
+    public boolean asignar(EstacionBicicletas estacion) {
+        if (estacion == null)
+            throw new IllegalArgumentException("La estación no puede ser null");
+
+        boolean asignado = enEspera.add(estacion.getId());
+
+        if (asignado) {
+            int tecnico = menosCargado();
+            cargas.incrementAndGet(tecnico);
+            colas.get(tecnico).addLast(estacion);
+            asignados.incrementAndGet();
+            semTrabajos.release();
+        }
+
+        return asignado;
+    }
+
+    /**
+     * El técnico espera un trabajo. Toma el más antiguo de su cola y, si está vacía, roba el más reciente
+     * del técnico con más trabajos pendientes. El trabajo cuenta como carga del técnico hasta que llama a
+     * terminar()
+     * @param tecnico el número del técnico
+     * @return la estación que debe atender
+     * @throws InterruptedException si se interrumpe la espera
+     */
+    public EstacionBicicletas siguiente(int tecnico) throws InterruptedException {
+        semTrabajos.acquire();
+        EstacionBicicletas estacion = colas.get(tecnico).pollFirst();
+
+        if (estacion == null) {
+            estacion = robar(tecnico);
+        }
+        enEspera.remove(estacion.getId());
+
+        return estacion;
+    }
+
+    /**
+     * El técnico ha terminado el trabajo que tomó con siguiente()
+     * @param tecnico el número del técnico
+     */
+    public void terminar(int tecnico) {
+        cargas.decrementAndGet(tecnico);
+    }
+
+    /**
+     * Trabajos en cola y en curso de un técnico
+     * @param tecnico el número del técnico
+     * @return la carga del técnico
+     */
+    public int carga(int tecnico) {
+        return cargas.get(tecnico);
+    }
+
+    public int pendientes() {
+        return semTrabajos.availablePermits();
+    }
+
+    public int getNumTecnicos() {
+        return colas.size();
+    }
+
+    public long getAsignados() {
+        return asignados.get();
+    }
+
+    public long getRobados() {
+        return robados.get();
+    }
+
+    private int menosCargado() {
+        int elegido = 0;
+
+        for (int i = 1; i < cargas.length(); i++) {
+            if (cargas.get(i) < cargas.get(elegido)) {
+                elegido = i;
+            }
+        }
+
+        return elegido;
+    }
+
+    /**
+     * Roba un trabajo empezando por el técnico con la cola más larga. Como se tiene el permiso de un trabajo,
+     * se repite hasta encontrar uno aunque otros técnicos tomen los que se van viendo
+     */
+    private EstacionBicicletas robar(int tecnico) {
+        EstacionBicicletas estacion = null;
+
+        while (estacion == null) {
+            int victima = -1;
+            for (int i = 0; i < colas.size(); i++) {
+                if (i != tecnico && !colas.get(i).isEmpty() &&
+                        (victima == -1 || colas.get(i).size() > colas.get(victima).size())) {
+                    victima = i;
+                }
+            }
+
+            if (victima == -1) {
+                // El trabajo puede haberse añadido a la propia cola mientras tanto
+                estacion = colas.get(tecnico).pollFirst();
+                Thread.onSpinWait();
+            } else {
+                estacion = colas.get(victima).pollLast();
+                if (estacion != null) {
+                    // La carga pasa del técnico robado al que realiza el trabajo
+                    cargas.decrementAndGet(victima);
+                    cargas.incrementAndGet(tecnico);
+                    robados.incrementAndGet();
+                }
+            }
+        }
+
+        return estacion;
+    }
+}
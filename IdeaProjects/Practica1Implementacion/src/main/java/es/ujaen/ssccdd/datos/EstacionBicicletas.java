@@ -1,16 +1,21 @@
 package es.ujaen.ssccdd.datos;
 
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.IntSupplier;
 
 import static es.ujaen.ssccdd.Constantes.*;
 import static es.ujaen.ssccdd.Constantes.EstadosBicicletas.*;
 
 public class EstacionBicicletas {
     private final String id;                                                // Identificador de la estación
-    private final Map<EstadosBicicletas, Queue<Bicicleta>> bicicletas;      // Bicicletas asignadas a la estación
+    private final Map<EstadosBicicletas, ColaBicicletas> bicicletas;        // Bicicletas asignadas a la estación, indexadas por id
     private final int capacidadEstacion;                                    // Capacidad máxima de la estación
-    public final Semaphore semExm;                                          // Semáforo de exclusión mutua para la estación
+    private int ocupacion;                                                  // Bicicletas que ocupan un espacio en la estación
+    private final StampedLock cerrojo;                                      // Cerrojo de escritura y lecturas optimistas
+    private final List<ObservadorEstacion> observadores;                    // Observadores de los cambios de la estación
     public final Semaphore semMantenimiento;                                // Semáforo para aviar a mantenimiento
 
     public EstacionBicicletas(String id, int capacidadEstacion, Bicicleta... bicicletas) {
@@ -20,21 +25,19 @@ public class EstacionBicicletas {
 
 
         this.id = (id == null || id.trim().isEmpty()) ? UUID.randomUUID().toString() : id;
-        this.bicicletas = new HashMap<>();
+        this.bicicletas = new EnumMap<>(EstadosBicicletas.class);
         this.capacidadEstacion = (capacidadEstacion < CAPACIDAD_MINIMA) ?
                 aleatorio.nextInt(CAPACIDAD_MINIMA, CAPACIDAD_MAXIMA) : capacidadEstacion;
         for (EstadosBicicletas estado : EstadosBicicletas.values()) {
-            if (estado.equals(DISPONIBLE)) {
-                this.bicicletas.put(estado, new LinkedList<>());
-                this.bicicletas.get(DISPONIBLE).addAll(Arrays.asList(bicicletas));
-            } else {
-                this.bicicletas.put(estado, new LinkedList<>());
-            }
+            this.bicicletas.put(estado, new ColaBicicletas());
         }
+        this.bicicletas.get(DISPONIBLE).addAll(Arrays.asList(bicicletas));
+        this.ocupacion = bicicletas.length;
 
         // Inicialización de los semáforos
-        this.semExm = new Semaphore(1);
         this.semMantenimiento = new Semaphore(0);
+        this.cerrojo = new StampedLock();
+        this.observadores = new CopyOnWriteArrayList<>();
     }
 
     public EstacionBicicletas(Bicicleta ...bicicletas) {
@@ -44,37 +47,137 @@ public class EstacionBicicletas {
 
         this.id = UUID.randomUUID().toString();
         this.capacidadEstacion = CAPACIDAD_MINIMA;
-        this.bicicletas = new HashMap<>();
+        this.bicicletas = new EnumMap<>(EstadosBicicletas.class);
         for (EstadosBicicletas estado : EstadosBicicletas.values()) {
-            if (estado.equals(DISPONIBLE)) {
-                this.bicicletas.put(estado, new LinkedList<>());
-                this.bicicletas.get(DISPONIBLE).addAll(Arrays.asList(bicicletas));
-            } else {
-                this.bicicletas.put(estado, new LinkedList<>());
-            }
+            this.bicicletas.put(estado, new ColaBicicletas());
         }
+        this.bicicletas.get(DISPONIBLE).addAll(Arrays.asList(bicicletas));
+        this.ocupacion = bicicletas.length;
 
         // Inicialización de los semáforos
-        this.semExm = new Semaphore(1);
         this.semMantenimiento = new Semaphore(0);
+        this.cerrojo = new StampedLock();
+        this.observadores = new CopyOnWriteArrayList<>();
     }
 
     public EstacionBicicletas(EstacionBicicletas original) {
         this.id = original.id;
-        this.bicicletas = new HashMap<>(original.bicicletas);
+        this.bicicletas = new EnumMap<>(EstadosBicicletas.class);
+        original.bicicletas.forEach((estado, cola) -> this.bicicletas.put(estado, new ColaBicicletas(cola)));
         this.capacidadEstacion = original.capacidadEstacion;
+        this.ocupacion = original.ocupacion;
 
         // Inicialización de los semáforos
-        this.semExm = new Semaphore(1);
         this.semMantenimiento = new Semaphore(0);
+        this.cerrojo = new StampedLock();
+        this.observadores = new CopyOnWriteArrayList<>();
     }
 
     public String getId() {
         return id;
     }
 
-    public Semaphore semExm() {
-        return semExm;
+    /**
+     * Registra un observador que será avisado cuando aumenten las bicicletas disponibles o se liberen
+     * espacios en la estación
+     * @param observador el observador de la estación
+     */
+    public void registrarObservador(ObservadorEstacion observador) {
+        if (observador == null)
+            throw new IllegalArgumentException("El observador no puede ser null");
+
+        observadores.add(observador);
+    }
+
+    /**
+     * Registra un observador de los avisos de mantenimiento y comprueba si la estación ya ha superado el
+     * umbral. Ambas cosas se hacen con la estación bloqueada, igual que los avisos, así que el observador
+     * recibe el aviso o ve el umbral superado, pero nunca las dos cosas para un mismo cruce
+     * @param observador el observador de la estación
+     * @return true si la estación ya necesita mantenimiento al registrarse
+     */
+    public boolean registrarObservadorMantenimiento(ObservadorEstacion observador) {
+        long sello = cerrojo.writeLock();
+
+        try {
+            registrarObservador(observador);
+            return avisarMantenimiento();
+        } finally {
+            cerrojo.unlockWrite(sello);
+        }
+    }
+
+    public void eliminarObservador(ObservadorEstacion observador) {
+        observadores.remove(observador);
+    }
+
+    /**
+     * Obtiene el acceso exclusivo a la estación para las operaciones que modifican su estado
+     * @return el sello que debe utilizarse para liberar la estación
+     * @throws InterruptedException si se interrumpe la espera
+     */
+    public long bloquearEscritura() throws InterruptedException {
+        return cerrojo.writeLockInterruptibly();
+    }
+
+    /**
+     * Intenta obtener el acceso exclusivo a la estación sin esperar
+     * @return el sello para liberar la estación, 0 si no ha sido posible obtener el acceso
+     */
+    public long intentarBloquearEscritura() {
+        return cerrojo.tryWriteLock();
+    }
+
+    /**
+     * Libera el acceso exclusivo a la estación
+     * @param sello el sello obtenido en bloquearEscritura()
+     */
+    public void liberarEscritura(long sello) {
+        cerrojo.unlockWrite(sello);
+    }
+
+    /**
+     * Número de bicicletas disponibles sin bloquear la estación
+     * @return el número de bicicletas disponibles
+     */
+    public int leerDisponibles() {
+        return lecturaOptimista(this::getDisponibles);
+    }
+
+    /**
+     * Huecos disponibles en la estación sin bloquearla
+     * @return el número de espacios disponibles en la estación
+     */
+    public int leerCapacidadEstacion() {
+        return lecturaOptimista(this::getCapacidadEstacion);
+    }
+
+    /**
+     * Comprueba si hay huecos en la estación sin bloquearla
+     * @return true si hay huecos, false en otro caso
+     */
+    public boolean leerHayEspacio() {
+        return leerCapacidadEstacion() > 0;
+    }
+
+    /**
+     * Número de bicicletas para un estado dado sin bloquear la estación
+     * @param estado el estado que se está consultando
+     * @return el número de bicicletas para ese estado
+     */
+    public int leerBicicletas(EstadosBicicletas estado) {
+        if (estado == null)
+            throw new IllegalArgumentException("El estado no puede ser null");
+
+        return lecturaOptimista(() -> getBicicletas(estado));
+    }
+
+    /**
+     * Indica si hay que avisar a mantenimiento sin bloquear la estación
+     * @return true si el número de bicicletas fuera de servicio es suficiente, false en otro caso
+     */
+    public boolean leerAvisoMantenimiento() {
+        return leerBicicletas(FUERA_DE_SERVICIO) > MIN_MANTENIMIENTO;
     }
 
     public Semaphore semMantenimiento() {
@@ -95,8 +198,7 @@ public class EstacionBicicletas {
      * @return true si hay huecos, false en otro caso
      */
     public boolean hayEspacio() {
-
-        return capacidadEstacion - ocupacionEstacion() > 0;
+        return capacidadEstacion - ocupacion > 0;
     }
 
     /**
@@ -104,22 +206,18 @@ public class EstacionBicicletas {
      * @return el número de espacios disponibles en la estación
      */
     public int getCapacidadEstacion() {
-        return capacidadEstacion - ocupacionEstacion();
+        return capacidadEstacion - ocupacion;
     }
 
     /**
      * La ocupación de la estación corresponde a las bicicletas DISPONIBLES, ALQUILADAS y
      * las que deben llegar a la estación en algún momento (EN_TRANSITO, REUBICACION)
-     * o necesitan mantenimiento (FUERA_DE_SERVICIO)
+     * o necesitan mantenimiento (FUERA_DE_SERVICIO). El contador se actualiza en cada cambio de estado
+     * para que la consulta no tenga que recorrer las colas
      * @return la ocupación actual de la estación de bicicletas
      */
     public int ocupacionEstacion() {
-
-        return  bicicletas.get(DISPONIBLE).size() +
-                bicicletas.get(ALQUILADA).size() +
-                bicicletas.get(EN_TRANSITO).size() +
-                bicicletas.get(REUBICACION).size() +
-                bicicletas.get(FUERA_DE_SERVICIO).size();
+        return ocupacion;
     }
 
     /**
@@ -149,12 +247,17 @@ public class EstacionBicicletas {
      * @return un optional para la bicicleta alquilada
      */
     public Optional<Bicicleta> peticionAlquiler(String idUsuario) {
-        return Optional.ofNullable(bicicletas.get(DISPONIBLE).poll())
+        Optional<Bicicleta> resultado = extraer(DISPONIBLE)
                 .map(bicicleta -> {
                     bicicleta.setEstado(ALQUILADA);
-                    bicicletas.get(ALQUILADA).add(new Bicicleta(idUsuario, bicicleta));
+                    anadir(ALQUILADA, new Bicicleta(idUsuario, bicicleta));
                     return new Bicicleta(idUsuario, bicicleta);
                 });
+
+        if (resultado.isPresent())
+            notificarCambio();
+
+        return resultado;
     }
 
     /**
@@ -168,8 +271,9 @@ public class EstacionBicicletas {
 
         if( hayEspacio() ) {
             bicicleta.setEstado(EN_TRANSITO);
-            bicicletas.get(EN_TRANSITO).add(new Bicicleta(bicicleta));
+            anadir(EN_TRANSITO, new Bicicleta(bicicleta));
             resultado = true;
+            notificarCambio();
         }
 
         return resultado;
@@ -184,14 +288,70 @@ public class EstacionBicicletas {
     public boolean peticionReubicacion(List<Bicicleta> listaBicicletas) {
         if( listaBicicletas.size() <= getCapacidadEstacion() ) {
             // Se realizar la reserva de espacio
-            listaBicicletas.forEach(bicicleta -> bicicleta.setEstado(REUBICACION));
-            bicicletas.get(REUBICACION).addAll(listaBicicletas);
+            boolean reservadas = !listaBicicletas.isEmpty();
+            listaBicicletas.forEach(bicicleta -> {
+                bicicleta.setEstado(REUBICACION);
+                anadir(REUBICACION, bicicleta);
+            });
             listaBicicletas.clear();
+
+            if (reservadas)
+                notificarCambio();
         }
 
         return listaBicicletas.isEmpty();
     }
 
+    /**
+     * Reserva un viaje desde esta estación a la estación de destino en una única operación: se alquila
+     * una bicicleta en esta estación y se reserva su espacio en el destino como EN_TRANSITO. Si no es
+     * posible alguna de las dos partes no se modifica ninguna estación. Ambas estaciones deben estar
+     * bloqueadas por quien realiza la reserva
+     * @param destino la estación de destino del viaje
+     * @param idUsuario el identificador que se asigna a la bicicleta alquilada
+     * @return el Optional con la reserva, vacío si no hay bicicletas en el origen o espacio en el destino
+     */
+    public Optional<ReservaViaje> reservarViaje(EstacionBicicletas destino, String idUsuario) {
+        if (destino == null || idUsuario == null || idUsuario.isBlank())
+            throw new IllegalArgumentException("El destino y el usuario de la reserva deben estar definidos");
+
+        Optional<ReservaViaje> resultado = Optional.empty();
+
+        if (getDisponibles() > 0 && destino.hayEspacio()) {
+            Bicicleta bicicleta = peticionAlquiler(idUsuario).orElseThrow();
+            destino.peticionTransito(new Bicicleta(bicicleta));
+            resultado = Optional.of(new ReservaViaje(id, destino.getId(), bicicleta));
+        }
+
+        return resultado;
+    }
+
+    /**
+     * Cancela una reserva de viaje que no se ha iniciado: la bicicleta vuelve a estar disponible en esta
+     * estación y se libera el espacio reservado en el destino. Ambas estaciones deben estar bloqueadas
+     * @param destino la estación de destino de la reserva
+     * @param reserva la reserva que se cancela
+     * @return true si se ha cancelado la reserva, false si la bicicleta ya se había recogido
+     */
+    public boolean cancelarViaje(EstacionBicicletas destino, ReservaViaje reserva) {
+        if (destino == null || reserva == null || !reserva.idOrigen().equals(id) || !reserva.idDestino().equals(destino.getId()))
+            throw new IllegalArgumentException("La reserva no corresponde a las estaciones indicadas");
+
+        Optional<Bicicleta> bicicleta = extraer(ALQUILADA, reserva.idBicicleta());
+
+        bicicleta.ifPresent(alquilada -> {
+            destino.retirar(EN_TRANSITO, alquilada);
+            alquilada.setEstado(DISPONIBLE);
+            anadir(DISPONIBLE, alquilada);
+            destino.notificarEspacio();
+            destino.notificarCambio();
+            notificarDisponibilidad();
+            notificarCambio();
+        });
+
+        return bicicleta.isPresent();
+    }
+
     /**
      * El usuario podrá recoger su bicicleta que tiene alquilada. Si el usuario pasa a recoger
      * una bicicleta que no está previamente alquilada se le devuelve un Optional vacío
@@ -199,19 +359,39 @@ public class EstacionBicicletas {
      * @return el Optional asociado, está vacío si no localiza la bicicleta
      */
     public Optional<Bicicleta> recogerBicicleta(String idBicicleta) {
-        Optional<Bicicleta> resultado;
-        Queue<Bicicleta> bicicletasAlquiladas = bicicletas.get(ALQUILADA);
-
-        resultado = bicicletasAlquiladas.stream()
-                .filter(b -> b.getId().equals(idBicicleta))
-                .findFirst();
+        // La cola de bicicletas ALQUILADAS está indexada por id y la localiza sin recorrerla
+        Optional<Bicicleta> resultado = extraer(ALQUILADA, idBicicleta);
 
-        // Si se encuentra la bicicleta, la eliminamos de la lista
-        resultado.ifPresent(bicicletasAlquiladas::remove);
+        if (resultado.isPresent()) {
+            notificarEspacio();
+            notificarCambio();
+        }
 
         return resultado;
     }
 
+    /**
+     * Anula la reserva de espacio de una petición de reubicación que no va a completarse. Las bicicletas
+     * reservadas salen de la estación y quedan en la lista para devolverlas a su origen
+     * @param listaBicicletas bicicletas cuya reserva se anula
+     * @return true si todas tenían el espacio reservado, false en otro caso
+     */
+    public boolean cancelarPeticionReubicacion(List<Bicicleta> listaBicicletas) {
+        boolean canceladas = true;
+
+        for (Bicicleta bicicleta : listaBicicletas) {
+            canceladas &= retirar(REUBICACION, bicicleta);
+            bicicleta.setEstado(DISPONIBLE);
+        }
+
+        if (!listaBicicletas.isEmpty()) {
+            notificarEspacio();
+            notificarCambio();
+        }
+
+        return canceladas;
+    }
+
     /**
      * El gestor puede obtener una lista de bicicletas para poder realizar una petición de reubicación
      * en una estación de destino
@@ -230,9 +410,15 @@ public class EstacionBicicletas {
             Bicicleta bicicleta = it.next();
             resultado.add(bicicleta);
             it.remove();
+            ocupacion--;
             numBicicletas--;
         }
 
+        if (!resultado.isEmpty()) {
+            notificarEspacio();
+            notificarCambio();
+        }
+
         return resultado;
     }
 
@@ -243,9 +429,17 @@ public class EstacionBicicletas {
      */
     public boolean cancelarReubicacion(List<Bicicleta> listaBicicletas) {
         if( listaBicicletas.size() <= getCapacidadEstacion() ) {
-            listaBicicletas.forEach(bicicleta -> bicicleta.setEstado(DISPONIBLE));
-            bicicletas.get(DISPONIBLE).addAll(listaBicicletas);
+            boolean devueltas = !listaBicicletas.isEmpty();
+            listaBicicletas.forEach(bicicleta -> {
+                bicicleta.setEstado(DISPONIBLE);
+                anadir(DISPONIBLE, bicicleta);
+            });
             listaBicicletas.clear();
+
+            if (devueltas) {
+                notificarDisponibilidad();
+                notificarCambio();
+            }
         }
 
         return listaBicicletas.isEmpty();
@@ -259,17 +453,24 @@ public class EstacionBicicletas {
      */
     public boolean entregarBicicleta(Bicicleta bicicleta) {
         boolean encontrada = false;
+        boolean umbralSuperado = false;
 
-        if ( bicicletas.get(EN_TRANSITO).remove(bicicleta) ) {
+        if ( retirar(EN_TRANSITO, bicicleta) ) {
             // Cuando se almacena comprobamos si hay necesidad de mantenimiento
             if( necesitaMantenimiento(bicicleta) ) {
                 bicicleta.setEstado(FUERA_DE_SERVICIO);
-                bicicletas.get(FUERA_DE_SERVICIO).add(bicicleta);
+                anadir(FUERA_DE_SERVICIO, bicicleta);
+                umbralSuperado = bicicletas.get(FUERA_DE_SERVICIO).size() == MIN_MANTENIMIENTO + 1;
             } else {
                 bicicleta.setEstado(DISPONIBLE);
-                bicicletas.get(DISPONIBLE).add(bicicleta);
+                anadir(DISPONIBLE, bicicleta);
+                notificarDisponibilidad();
             }
             encontrada = true;
+            notificarCambio();
+
+            if (umbralSuperado)
+                notificarMantenimiento();
         }
 
         return encontrada;
@@ -287,12 +488,18 @@ public class EstacionBicicletas {
 
         if( reubicacion.containsAll(listaBicicletas) ) {
             // Estaba reservada su reubicación y se trasladan a disponibles
+            boolean reubicadas = !listaBicicletas.isEmpty();
             listaBicicletas.forEach(bicicleta -> {
-                reubicacion.remove(bicicleta);
+                retirar(REUBICACION, bicicleta);
                 bicicleta.setEstado(DISPONIBLE);
+                anadir(DISPONIBLE, bicicleta);
             });
-            bicicletas.get(DISPONIBLE).addAll(listaBicicletas);
             listaBicicletas.clear();
+
+            if (reubicadas) {
+                notificarDisponibilidad();
+                notificarCambio();
+            }
         }
 
         return listaBicicletas.isEmpty();
@@ -321,11 +528,128 @@ public class EstacionBicicletas {
 
         resultado = paraMantenimiento.stream().toList();
         resultado.forEach(bicicleta -> bicicleta.setEstado(EN_REPARACION));
+        ocupacion -= paraMantenimiento.size();
         paraMantenimiento.clear();
 
+        if (!resultado.isEmpty()) {
+            notificarEspacio();
+            notificarCambio();
+        }
+
         return resultado;
     }
 
+    /**
+     * Avisa a los observadores de que han aumentado las bicicletas disponibles
+     */
+    private void notificarDisponibilidad() {
+        observadores.forEach(observador -> observador.disponibilidadAumentada(this));
+    }
+
+    /**
+     * Avisa a los observadores de que se han liberado espacios en la estación
+     */
+    private void notificarEspacio() {
+        observadores.forEach(observador -> observador.espacioLiberado(this));
+    }
+
+    /**
+     * Avisa a los observadores de un cambio en las bicicletas disponibles o en los espacios libres
+     */
+    private void notificarCambio() {
+        observadores.forEach(observador -> observador.estadoCambiado(this));
+    }
+
+    /**
+     * Avisa a los observadores de que las bicicletas fuera de servicio han superado MIN_MANTENIMIENTO
+     */
+    private void notificarMantenimiento() {
+        observadores.forEach(observador -> observador.mantenimientoRequerido(this));
+    }
+
+    /**
+     * Realiza una lectura optimista del estado de la estación. Si una escritura la invalida
+     * se repite la lectura obteniendo el cerrojo de lectura
+     * @param lectura la consulta que se realiza sobre la estación
+     * @return el valor leído
+     */
+    private int lecturaOptimista(IntSupplier lectura) {
+        long sello = cerrojo.tryOptimisticRead();
+        int valor = lectura.getAsInt();
+
+        if (!cerrojo.validate(sello)) {
+            sello = cerrojo.readLock();
+            valor = lectura.getAsInt();
+            cerrojo.unlockRead(sello);
+        }
+
+        return valor;
+    }
+
+    /**
+     * Añade una bicicleta a la cola de un estado actualizando el contador de ocupación
+     * @param estado el estado de la cola donde se añade la bicicleta
+     * @param bicicleta la bicicleta que se añade
+     */
+    private void anadir(EstadosBicicletas estado, Bicicleta bicicleta) {
+        bicicletas.get(estado).add(bicicleta);
+        if (ocupaEspacio(estado))
+            ocupacion++;
+    }
+
+    /**
+     * Extrae la primera bicicleta de la cola de un estado actualizando el contador de ocupación
+     * @param estado el estado de la cola de la que se extrae la bicicleta
+     * @return un optional con la bicicleta extraída, vacío si la cola no tiene bicicletas
+     */
+    private Optional<Bicicleta> extraer(EstadosBicicletas estado) {
+        Bicicleta bicicleta = bicicletas.get(estado).poll();
+
+        if (bicicleta != null && ocupaEspacio(estado))
+            ocupacion--;
+
+        return Optional.ofNullable(bicicleta);
+    }
+
+    /**
+     * Extrae la bicicleta con el id dado de la cola de un estado actualizando el contador de ocupación
+     * @param estado el estado de la cola de la que se extrae la bicicleta
+     * @param idBicicleta el identificador de la bicicleta
+     * @return un optional con la bicicleta extraída, vacío si no está en la cola
+     */
+    private Optional<Bicicleta> extraer(EstadosBicicletas estado, String idBicicleta) {
+        Optional<Bicicleta> resultado = bicicletas.get(estado).extraer(idBicicleta);
+
+        if (resultado.isPresent() && ocupaEspacio(estado))
+            ocupacion--;
+
+        return resultado;
+    }
+
+    /**
+     * Elimina una bicicleta de la cola de un estado actualizando el contador de ocupación
+     * @param estado el estado de la cola de la que se elimina la bicicleta
+     * @param bicicleta la bicicleta que se elimina
+     * @return true si la bicicleta estaba en la cola, false en otro caso
+     */
+    private boolean retirar(EstadosBicicletas estado, Bicicleta bicicleta) {
+        boolean eliminada = bicicletas.get(estado).remove(bicicleta);
+
+        if (eliminada && ocupaEspacio(estado))
+            ocupacion--;
+
+        return eliminada;
+    }
+
+    /**
+     * Las bicicletas EN_REPARACION ya no están en la estación y no ocupan espacio en ella
+     * @param estado el estado que se comprueba
+     * @return true si las bicicletas en ese estado ocupan un espacio de la estación
+     */
+    private static boolean ocupaEspacio(EstadosBicicletas estado) {
+        return estado != EN_REPARACION;
+    }
+
     /**
      * Una representación legible de la estación de bicicletas
      *
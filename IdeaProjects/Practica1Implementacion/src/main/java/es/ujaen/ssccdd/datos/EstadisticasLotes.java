@@ -0,0 +1,87 @@
+package es.ujaen.ssccdd.datos;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Estadísticas de los lotes de peticiones procesados por los resolutores del gestor: número de lotes,
+ * tamaño de los lotes y tiempo empleado en resolverlos. Pueden registrar varios resolutores a la vez.
+ */
+public class EstadisticasLotes {
+    private final AtomicLong lotes;                 // Número de lotes procesados
+    private final AtomicLong peticiones;            // Número total de peticiones en los lotes
+    private final AtomicLong tamanoMaximo;          // Tamaño del mayor lote procesado
+    private final AtomicLong tiempoTotal;           // nanosegundos, tiempo total de proceso de los lotes
+    private final AtomicLong tiempoMaximo;          // nanosegundos, tiempo del lote más lento
+
+    public EstadisticasLotes() {
+        this.lotes = new AtomicLong();
+        this.peticiones = new AtomicLong();
+        this.tamanoMaximo = new AtomicLong();
+        this.tiempoTotal = new AtomicLong();
+        this.tiempoMaximo = new AtomicLong();
+    }
+
+    /**
+     * Registra un lote procesado
+     * @param tamano el número de peticiones del lote
+     * @param tiempo nanosegundos empleados en procesar el lote
+     */
+    public void registrarLote(int tamano, long tiempo) {
+        if (tamano < 0 || tiempo < 0) {
+            throw new IllegalArgumentException("El tamaño y el tiempo del lote no pueden ser negativos");
+        }
+
+        lotes.incrementAndGet();
+        peticiones.addAndGet(tamano);
+        tamanoMaximo.accumulateAndGet(tamano, Math::max);
+        tiempoTotal.addAndGet(tiempo);
+        tiempoMaximo.accumulateAndGet(tiempo, Math::max);
+    }
+
+    public long getLotes() {
+        return lotes.get();
+    }
+
+    public long getPeticiones() {
+        return peticiones.get();
+    }
+
+    public long getTamanoMaximo() {
+        return tamanoMaximo.get();
+    }
+
+    public double getTamanoMedio() {
+        long numLotes = lotes.get();
+        return numLotes == 0 ? 0 : (double) peticiones.get() / numLotes;
+    }
+
+    /**
+     * Tiempo medio de proceso de un lote
+     * @return microsegundos de media por lote
+     */
+    public long getTiempoMedio() {
+        long numLotes = lotes.get();
+        return numLotes == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(tiempoTotal.get() / numLotes);
+    }
+
+    /**
+     * Tiempo de proceso del lote más lento
+     * @return microsegundos del lote más lento
+     */
+    public long getTiempoMaximo() {
+        return TimeUnit.NANOSECONDS.toMicros(tiempoMaximo.get());
+    }
+
+    @Override
+    public String toString() {
+        return "EstadisticasLotes{" +
+                "lotes=" + getLotes() +
+                ", peticiones=" + getPeticiones() +
+                ", tamanoMedio=" + String.format("%.2f", getTamanoMedio()) +
+                ", tamanoMaximo=" + getTamanoMaximo() +
+                ", tiempoMedio=" + getTiempoMedio() + "µs" +
+                ", tiempoMaximo=" + getTiempoMaximo() + "µs" +
+                '}';
+    }
+}
@@ -0,0 +1,187 @@
+package es.ujaen.ssccdd.datos;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Índice de las estaciones ordenadas por sus bicicletas disponibles y por sus espacios libres. Las estaciones
+ * registradas lo avisan en cada cambio de estado y el índice recoloca la estación en dos montículos indexados,
+ * en tiempo logarítmico, por lo que las consultas de las estaciones más vacías o más llenas no tienen que
+ * recorrer ni bloquear las estaciones.
+ * <p>
+ * Los avisos llegan con la estación bloqueada por quien la modifica, así que los valores del índice son los
+ * de la última modificación de cada estación.
+ */
+public class IndiceEstaciones implements ObservadorEstacion {
+    private final Monticulo porDisponibles;     // Estaciones de menos a más bicicletas disponibles
+    private final Monticulo porEspacio;         // Estaciones de menos a más espacios libres
+
+    public IndiceEstaciones() {
+        this.porDisponibles = new Monticulo();
+        this.porEspacio = new Monticulo();
+    }
+
+    /**
+     * Añade una estación al índice y se registra como su observador
+     * @param estacion la estación que se indexa
+     */
+    public void registrar(EstacionBicicletas estacion) {
+        if (estacion == null)
+            throw new IllegalArgumentException("La estación no puede ser null");
+
+        // Primero el observador: un cambio posterior a la lectura siempre llega al índice
+        estacion.registrarObservador(this);
+        int disponibles = estacion.leerDisponibles();
+        int espacio = estacion.leerCapacidadEstacion();
+
+        synchronized (this) {
+            if (!porDisponibles.contiene(estacion.getId())) {
+                porDisponibles.actualizar(estacion.getId(), disponibles);
+                porEspacio.actualizar(estacion.getId(), espacio);
+            }
+        }
+    }
+
+    @Override
+    public void estadoCambiado(EstacionBicicletas estacion) {
+        int disponibles = estacion.getDisponibles();
+        int espacio = estacion.getCapacidadEstacion();
+
+        synchronized (this) {
+            porDisponibles.actualizar(estacion.getId(), disponibles);
+            porEspacio.actualizar(estacion.getId(), espacio);
+        }
+    }
+
+    /**
+     * Las estaciones con menos bicicletas disponibles
+     * @param k el número máximo de estaciones
+     * @return los identificadores de las estaciones, de menos a más bicicletas disponibles
+     */
+    public synchronized List<String> masVacias(int k) {
+        return porDisponibles.primeros(k);
+    }
+
+    /**
+     * Las estaciones con menos espacios libres
+     * @param k el número máximo de estaciones
+     * @return los identificadores de las estaciones, de menos a más espacios libres
+     */
+    public synchronized List<String> masLlenas(int k) {
+        return porEspacio.primeros(k);
+    }
+
+    /**
+     * Bicicletas disponibles de una estación según el índice
+     * @param idEstacion el identificador de la estación
+     * @return el número de bicicletas disponibles, -1 si la estación no está indexada
+     */
+    public synchronized int disponibles(String idEstacion) {
+        return porDisponibles.clave(idEstacion);
+    }
+
+    /**
+     * Espacios libres de una estación según el índice
+     * @param idEstacion el identificador de la estación
+     * @return el número de espacios libres, -1 si la estación no está indexada
+     */
+    public synchronized int espacio(String idEstacion) {
+        return porEspacio.clave(idEstacion);
+    }
+
+    public synchronized int size() {
+        return porDisponibles.ids.size();
+    }
+
+    /**
+     * Montículo binario de mínimos con la posición de cada estación para recolocarla cuando cambia su clave.
+     * Los empates se deshacen por el identificador de la estación
+     */
+    private static class Monticulo {
+        private final List<String> ids = new ArrayList<>();
+        private final Map<String, Integer> posiciones = new HashMap<>();
+        private final Map<String, Integer> claves = new HashMap<>();
+
+        private boolean contiene(String id) {
+            return posiciones.containsKey(id);
+        }
+
+        private int clave(String id) {
+            return claves.getOrDefault(id, -1);
+        }
+
+        private void actualizar(String id, int clave) {
+            Integer posicion = posiciones.get(id);
+            claves.put(id, clave);
+
+            if (posicion == null) {
+                ids.add(id);
+                posiciones.put(id, ids.size() - 1);
+                subir(ids.size() - 1);
+            } else {
+                subir(posicion);
+                bajar(posiciones.get(id));
+            }
+        }
+
+        /**
+         * Recorre el montículo desde la raíz expandiendo siempre la menor posición pendiente, por lo que
+         * obtiene los k primeros en O(k log k) sin modificar el montículo
+         */
+        private List<String> primeros(int k) {
+            List<String> resultado = new ArrayList<>(Math.max(0, Math.min(k, ids.size())));
+            PriorityQueue<Integer> frontera = new PriorityQueue<>(Comparator.comparing(ids::get, this::comparar));
+
+            if (!ids.isEmpty()) {
+                frontera.add(0);
+            }
+            while (resultado.size() < k && !frontera.isEmpty()) {
+                int posicion = frontera.poll();
+                resultado.add(ids.get(posicion));
+                for (int hijo = 2 * posicion + 1; hijo <= 2 * posicion + 2 && hijo < ids.size(); hijo++) {
+                    frontera.add(hijo);
+                }
+            }
+
+            return resultado;
+        }
+
+        private int comparar(String id1, String id2) {
+            int resultado = Integer.compare(claves.get(id1), claves.get(id2));
+            return (resultado != 0) ? resultado : id1.compareTo(id2);
+        }
+
+        private void subir(int posicion) {
+            while (posicion > 0 && comparar(ids.get(posicion), ids.get((posicion - 1) / 2)) < 0) {
+                intercambiar(posicion, (posicion - 1) / 2);
+                posicion = (posicion - 1) / 2;
+            }
+        }
+
+        private void bajar(int posicion) {
+            int menor = posicion;
+
+            do {
+                posicion = menor;
+                for (int hijo = 2 * posicion + 1; hijo <= 2 * posicion + 2 && hijo < ids.size(); hijo++) {
+                    if (comparar(ids.get(hijo), ids.get(menor)) < 0) {
+                        menor = hijo;
+                    }
+                }
+                intercambiar(posicion, menor);
+            } while (menor != posicion);
+        }
+
+        private void intercambiar(int i, int j) {
+            String id = ids.get(i);
+            ids.set(i, ids.get(j));
+            ids.set(j, id);
+            posiciones.put(ids.get(i), i);
+            posiciones.put(ids.get(j), j);
+        }
+    }
+}
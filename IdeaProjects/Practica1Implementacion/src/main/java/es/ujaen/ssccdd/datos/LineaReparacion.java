@@ -0,0 +1,261 @@
+package es.ujaen.ssccdd.datos;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+import static es.ujaen.ssccdd.Constantes.EtapaReparacion;
+
+/**
+ * Línea de reparación por etapas. Cada etapa tiene una cola acotada de entrada y su propio grupo de
+ * trabajadores, que toman una bicicleta de la cola, dedican a ella el tiempo de la etapa y la dejan en la cola
+ * de la siguiente, esperando si está llena. Las bicicletas que superan la última etapa se entregan a la salida.
+ * <p>
+ * Cada etapa cuenta las bicicletas procesadas y el tiempo ocupado de sus trabajadores, de modo que puede
+ * medirse el ritmo de salida y localizar la etapa que limita la línea para ajustar sus trabajadores.
+ */
+public class LineaReparacion {
+    private final Map<EtapaReparacion, BlockingQueue<Bicicleta>> colas;     // Cola de entrada de cada etapa
+    private final Map<EtapaReparacion, Queue<Bicicleta>> retenidas;         // Devueltas al detener con la cola llena
+    private final Map<EtapaReparacion, Integer> trabajadores;               // Trabajadores de cada etapa
+    private final Map<EtapaReparacion, AtomicLong> procesadas;              // Bicicletas procesadas por etapa
+    private final Map<EtapaReparacion, AtomicLong> ocupado;                 // nanosegundos de trabajo por etapa
+    private final ToLongFunction<EtapaReparacion> duracion;                 // milisegundos por bicicleta en cada etapa
+    private final Consumer<Bicicleta> salida;                               // Destino de las bicicletas reparadas
+    private final List<Thread> hilos;                                       // Trabajadores en marcha
+    private long inicio;                                                    // Instante de puesta en marcha
+
+    /**
+     * @param trabajadores el número de trabajadores de cada etapa, al menos uno
+     * @param capacidadEtapa las bicicletas que pueden esperar a la entrada de cada etapa
+     * @param duracion los milisegundos que dedica un trabajador de cada etapa a una bicicleta
+     * @param salida la acción que recibe cada bicicleta reparada
+     */
+    public LineaReparacion(Map<EtapaReparacion, Integer> trabajadores, int capacidadEtapa,
+                           ToLongFunction<EtapaReparacion> duracion, Consumer<Bicicleta> salida) {
+        if (trabajadores == null || duracion == null || salida == null || capacidadEtapa < 1)
+            throw new IllegalArgumentException("La configuración de la línea de reparación no es válida");
+
+        this.colas = new EnumMap<>(EtapaReparacion.class);
+        this.retenidas = new EnumMap<>(EtapaReparacion.class);
+        this.trabajadores = new EnumMap<>(EtapaReparacion.class);
+        this.procesadas = new EnumMap<>(EtapaReparacion.class);
+        this.ocupado = new EnumMap<>(EtapaReparacion.class);
+        for (EtapaReparacion etapa : EtapaReparacion.values()) {
+            int numTrabajadores = trabajadores.getOrDefault(etapa, 0);
+            if (numTrabajadores < 1)
+                throw new IllegalArgumentException("La etapa " + etapa + " debe tener al menos un trabajador");
+
+            this.colas.put(etapa, new ArrayBlockingQueue<>(capacidadEtapa));
+            this.retenidas.put(etapa, new ConcurrentLinkedQueue<>());
+            this.trabajadores.put(etapa, numTrabajadores);
+            this.procesadas.put(etapa, new AtomicLong());
+            this.ocupado.put(etapa, new AtomicLong());
+        }
+        this.duracion = duracion;
+        this.salida = salida;
+        this.hilos = new ArrayList<>();
+    }
+
+    /**
+     * Pone en marcha los trabajadores de todas las etapas si la línea no está ya en marcha
+     * @return true si se ha puesto en marcha, false si ya lo estaba
+     */
+    public synchronized boolean iniciar() {
+        boolean iniciada = hilos.isEmpty();
+
+        if (iniciada) {
+            inicio = System.nanoTime();
+            trabajadores.forEach((etapa, numTrabajadores) -> {
+                for (int i = 0; i < numTrabajadores; i++) {
+                    Thread hilo = new Thread(new Trabajador(etapa), "Reparacion-" + etapa + "-" + i);
+                    hilos.add(hilo);
+                    hilo.start();
+                }
+            });
+        }
+
+        return iniciada;
+    }
+
+    /**
+     * Detiene los trabajadores. Las bicicletas que estén en la línea se quedan en sus colas, también las que
+     * estaban en manos de un trabajador, y se procesan al volver a iniciarla
+     */
+    public synchronized void detener() {
+        hilos.forEach(Thread::interrupt);
+        hilos.clear();
+    }
+
+    public synchronized boolean isIniciada() {
+        return !hilos.isEmpty();
+    }
+
+    /**
+     * Entrega bicicletas a la etapa de ingreso, esperando mientras su cola esté llena. Las bicicletas
+     * entregadas se eliminan de la colección
+     * @param bicicletas las bicicletas que necesitan reparación
+     * @throws InterruptedException si se interrumpe la espera
+     */
+    public void ingresar(Collection<Bicicleta> bicicletas) throws InterruptedException {
+        BlockingQueue<Bicicleta> ingreso = colas.get(EtapaReparacion.INGRESO);
+
+        for (Bicicleta bicicleta : bicicletas) {
+            ingreso.put(bicicleta);
+        }
+        bicicletas.clear();
+    }
+
+    /**
+     * Bicicletas que esperan a la entrada de una etapa
+     * @param etapa la etapa consultada
+     * @return el número de bicicletas en su cola
+     */
+    public int enCola(EtapaReparacion etapa) {
+        return colas.get(etapa).size() + retenidas.get(etapa).size();
+    }
+
+    /**
+     * Bicicletas que han terminado una etapa
+     * @param etapa la etapa consultada
+     * @return el número de bicicletas procesadas
+     */
+    public long procesadas(EtapaReparacion etapa) {
+        return procesadas.get(etapa).get();
+    }
+
+    /**
+     * Bicicletas que han superado todas las etapas
+     * @return el número de bicicletas reparadas
+     */
+    public long getReparadas() {
+        return procesadas(EtapaReparacion.CONTROL_CALIDAD);
+    }
+
+    public int trabajadores(EtapaReparacion etapa) {
+        return trabajadores.get(etapa);
+    }
+
+    /**
+     * Fracción del tiempo desde la puesta en marcha que los trabajadores de la etapa han estado ocupados
+     * @param etapa la etapa consultada
+     * @return la ocupación de la etapa entre 0 y 1
+     */
+    public synchronized double ocupacion(EtapaReparacion etapa) {
+        long transcurrido = System.nanoTime() - inicio;
+
+        return (inicio == 0 || transcurrido == 0) ? 0 :
+                Math.min(1.0, (double) ocupado.get(etapa).get() / (transcurrido * trabajadores.get(etapa)));
+    }
+
+    /**
+     * Ritmo de salida de la línea desde su puesta en marcha
+     * @return bicicletas reparadas por segundo
+     */
+    public synchronized double ritmoSalida() {
+        long transcurrido = System.nanoTime() - inicio;
+
+        return (inicio == 0 || transcurrido == 0) ? 0 :
+                getReparadas() * (double) TimeUnit.SECONDS.toNanos(1) / transcurrido;
+    }
+
+    /**
+     * La etapa que limita la línea: la de mayor tiempo de trabajo por trabajador y, con el mismo, la de más
+     * bicicletas esperando
+     * @return la etapa cuello de botella
+     */
+    public EtapaReparacion cuelloBotella() {
+        EtapaReparacion resultado = EtapaReparacion.INGRESO;
+
+        for (EtapaReparacion etapa : EtapaReparacion.values()) {
+            long carga = ocupado.get(etapa).get() / trabajadores.get(etapa);
+            long cargaResultado = ocupado.get(resultado).get() / trabajadores.get(resultado);
+            if (carga > cargaResultado || (carga == cargaResultado && enCola(etapa) > enCola(resultado))) {
+                resultado = etapa;
+            }
+        }
+
+        return resultado;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder resultado = new StringBuilder("LineaReparacion{");
+
+        for (EtapaReparacion etapa : EtapaReparacion.values()) {
+            resultado.append(String.format("%s[trabajadores=%d, cola=%d, procesadas=%d, ocupacion=%.2f] ",
+                    etapa, trabajadores(etapa), enCola(etapa), procesadas(etapa), ocupacion(etapa)));
+        }
+
+        return resultado.append("reparadas=").append(getReparadas()).append('}').toString();
+    }
+
+    /** Trabajador de una etapa de la línea */
+    private class Trabajador implements Runnable {
+        private final EtapaReparacion etapa;
+        private final BlockingQueue<Bicicleta> entrada;
+        private final Queue<Bicicleta> retenidasEntrada;
+        private final EtapaReparacion etapaSiguiente;          // null en la última etapa
+
+        private Trabajador(EtapaReparacion etapa) {
+            int posicion = etapa.ordinal() + 1;
+
+            this.etapa = etapa;
+            this.entrada = colas.get(etapa);
+            this.retenidasEntrada = retenidas.get(etapa);
+            this.etapaSiguiente = (posicion < EtapaReparacion.values().length) ? EtapaReparacion.values()[posicion] : null;
+        }
+
+        @Override
+        public void run() {
+            while (!Thread.currentThread().isInterrupted()) {
+                Bicicleta bicicleta = null;
+                EtapaReparacion pendiente = etapa;         // Etapa en la que debe continuar la bicicleta
+
+                try {
+                    // Primero las bicicletas devueltas en una parada anterior
+                    bicicleta = retenidasEntrada.poll();
+                    if (bicicleta == null) {
+                        bicicleta = entrada.take();
+                    }
+
+                    long comienzo = System.nanoTime();
+                    TimeUnit.MILLISECONDS.sleep(duracion.applyAsLong(etapa));
+                    ocupado.get(etapa).addAndGet(System.nanoTime() - comienzo);
+                    procesadas.get(etapa).incrementAndGet();
+                    pendiente = etapaSiguiente;
+
+                    if (etapaSiguiente != null) {
+                        colas.get(etapaSiguiente).put(bicicleta);
+                    } else {
+                        salida.accept(bicicleta);
+                    }
+                    bicicleta = null;
+
+                } catch (InterruptedException e) {
+                    // La bicicleta vuelve a la cola de la etapa donde debe continuar para no perderla
+                    if (bicicleta != null) {
+                        devolver(pendiente, bicicleta);
+                    }
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        private void devolver(EtapaReparacion pendiente, Bicicleta bicicleta) {
+            if (!colas.get(pendiente).offer(bicicleta)) {
+                retenidas.get(pendiente).add(bicicleta);
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package es.ujaen.ssccdd.datos;
+
+/**
+ * Observador de los cambios de una estación de bicicletas. Los avisos se producen dentro de las operaciones
+ * de la estación, mientras quien las realiza tiene la estación bloqueada, por lo que deben ser operaciones
+ * breves que no esperen por otros recursos.
+ */
+public interface ObservadorEstacion {
+
+    /**
+     * Aviso de que han aumentado las bicicletas disponibles de la estación
+     * @param estacion la estación que ha cambiado
+     */
+    default void disponibilidadAumentada(EstacionBicicletas estacion) {
+    }
+
+    /**
+     * Aviso de que se han liberado espacios en la estación
+     * @param estacion la estación que ha cambiado
+     */
+    default void espacioLiberado(EstacionBicicletas estacion) {
+    }
+
+    /**
+     * Aviso de cualquier cambio en las bicicletas disponibles o en los espacios libres de la estación,
+     * también cuando disminuyen. Como la estación está bloqueada, sus valores pueden consultarse directamente
+     * @param estacion la estación que ha cambiado
+     */
+    default void estadoCambiado(EstacionBicicletas estacion) {
+    }
+
+    /**
+     * Aviso de que las bicicletas fuera de servicio de la estación acaban de superar MIN_MANTENIMIENTO. Solo se
+     * produce al cruzar el umbral; vuelve a producirse después de que mantenimiento recoja las bicicletas
+     * @param estacion la estación que necesita mantenimiento
+     */
+    default void mantenimientoRequerido(EstacionBicicletas estacion) {
+    }
+}
@@ -1,13 +1,24 @@
 package es.ujaen.ssccdd.datos;
 
+import java.time.Instant;
+import java.util.Optional;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static es.ujaen.ssccdd.Constantes.ResultadoPeticion;
+import static es.ujaen.ssccdd.Constantes.vencimiento;
 
 public class Peticion {
     private final String id;                        // Identificador del solicitante
     private final String idOrigen;                  // Id donde recoger bicicletas
     private final String idDestino;                 // Id para entregar bicicletas
     private final int numBicicleatas;               // Número de bicicletas requerido en la petición
-    private final Semaphore resolucion;             // Para indicar que la petición ha sido resuelta
+    private final Semaphore resolucion;             // Para indicar que la petición ha sido resuelta, null si no se espera en él
+    private final Instant plazo;                    // Instante en el que vence la petición, null si no vence
+    private final AtomicBoolean terminada;          // Indica si alguien ha reclamado ya la petición para terminarla
+    private final long llegada;                     // nanosegundos, momento de creación de la petición para su antigüedad
+    private volatile ReservaViaje reserva;          // Reserva del viaje cuando la petición se ha resuelto
+    private volatile ResultadoPeticion resultado;   // Resultado de la petición una vez terminada
 
     /**
      * Este constructor define todas las variables de instancia. Es para que lo utilice el gestor para solicitar
@@ -29,6 +40,59 @@ public class Peticion {
         this.idDestino = idDestino;
         this.numBicicleatas = numBicicleatas;
         this.resolucion = resolucion;
+        this.plazo = null;
+        this.terminada = new AtomicBoolean(false);
+        this.llegada = System.nanoTime();
+    }
+
+    /**
+     * Constructor para una petición que vence si no se ha resuelto antes del plazo indicado
+     * @param id el identificador de la tarea solicitante
+     * @param idOrigen el origen donde deberán recogerse las bicicletas
+     * @param idDestino el destino donde deberán depositarse las bicicletas
+     * @param numBicicleatas el número de bicicletas de la petición
+     * @param resolucion el semáforo para indicar al solicitante que se ha terminado su solicitud
+     * @param plazo el instante en el que vence la petición
+     */
+    public Peticion(String id, String idOrigen, String idDestino, int numBicicleatas, Semaphore resolucion,
+                    Instant plazo) {
+        if ( id == null || id.isBlank() || resolucion == null || numBicicleatas < 1 || plazo == null) {
+            throw new IllegalArgumentException("El identificador del solicitante no está definido " +
+                    " o no hay petición de bicicletas o no se ha incluido el semáforo o el plazo");
+        }
+
+        this.id = id;
+        this.idOrigen = idOrigen;
+        this.idDestino = idDestino;
+        this.numBicicleatas = numBicicleatas;
+        this.resolucion = resolucion;
+        this.plazo = plazo;
+        this.terminada = new AtomicBoolean(false);
+        this.llegada = System.nanoTime();
+    }
+
+    /**
+     * Constructor para las subclases que avisan de la resolución por otro medio y no necesitan el semáforo
+     * @param id el identificador de la tarea solicitante
+     * @param idOrigen el origen donde deberán recogerse las bicicletas
+     * @param idDestino el destino donde deberán depositarse las bicicletas
+     * @param plazo el instante en el que vence la petición, null si no vence
+     * @param numBicicleatas el número de bicicletas de la petición
+     */
+    protected Peticion(String id, String idOrigen, String idDestino, Instant plazo, int numBicicleatas) {
+        if ( id == null || id.isBlank() || numBicicleatas < 1) {
+            throw new IllegalArgumentException("El identificador del solicitante no está definido " +
+                    " o no hay petición de bicicletas");
+        }
+
+        this.id = id;
+        this.idOrigen = idOrigen;
+        this.idDestino = idDestino;
+        this.numBicicleatas = numBicicleatas;
+        this.resolucion = null;
+        this.plazo = plazo;
+        this.terminada = new AtomicBoolean(false);
+        this.llegada = System.nanoTime();
     }
 
     public Peticion(String id, String idOrigen, String idDestino, Semaphore resolucion) {
@@ -41,6 +105,9 @@ public class Peticion {
         this.idDestino = idDestino;
         this.numBicicleatas = 1; // Petición de un usuario para el transporte
         this.resolucion = resolucion;
+        this.plazo = null;
+        this.terminada = new AtomicBoolean(false);
+        this.llegada = System.nanoTime();
 
     }
 
@@ -60,10 +127,109 @@ public class Peticion {
         return numBicicleatas;
     }
 
+    /**
+     * El semáforo que se libera al terminar la petición
+     * @return el semáforo de la resolución, null si la petición avisa de su resolución por otro medio
+     */
     public Semaphore semResolucion() {
         return resolucion;
     }
 
+    /**
+     * El momento en el que se creó la petición, para ordenarla por antigüedad
+     * @return nanosegundos según System.nanoTime()
+     */
+    public long getLlegada() {
+        return llegada;
+    }
+
+    public Optional<Instant> getPlazo() {
+        return Optional.ofNullable(plazo);
+    }
+
+    /**
+     * Comprueba si ha vencido el plazo de la petición
+     * @return true si la petición tiene plazo y ya ha vencido
+     */
+    public boolean isVencida() {
+        return plazo != null && vencimiento.test(plazo);
+    }
+
+    /**
+     * Reclama la petición para terminarla. Solo la primera llamada tiene éxito, de forma que una petición
+     * no puede resolverse y caducar a la vez. Quien reclama la petición es el responsable de indicar al
+     * solicitante el resultado con resolver(), rechazar() o caducar()
+     * @return true si se ha reclamado la petición, false si ya estaba terminada
+     */
+    public boolean reclamar() {
+        return terminada.compareAndSet(false, true);
+    }
+
+    /**
+     * El solicitante cancela la petición. Equivale a reclamarla sin indicar ningún resultado
+     * @return true si se ha cancelado, false si ya estaba terminada
+     */
+    public boolean cancelar() {
+        return reclamar();
+    }
+
+    public boolean isTerminada() {
+        return terminada.get();
+    }
+
+    /**
+     * El resultado de la petición cuando se ha indicado al solicitante
+     * @return el Optional con el resultado, vacío mientras no se haya indicado
+     */
+    public Optional<ResultadoPeticion> getResultado() {
+        return Optional.ofNullable(resultado);
+    }
+
+    public Optional<ReservaViaje> getReserva() {
+        return Optional.ofNullable(reserva);
+    }
+
+    /**
+     * El gestor asocia a la petición la reserva del viaje antes de indicar que está resuelta
+     * @param reserva la reserva realizada para la petición
+     */
+    public void setReserva(ReservaViaje reserva) {
+        this.reserva = reserva;
+    }
+
+    /**
+     * Indica al solicitante que la petición se ha resuelto
+     * @param reserva la reserva realizada para la petición, null si la petición no reserva un viaje
+     */
+    public void resolver(ReservaViaje reserva) {
+        setReserva(reserva);
+        resultado = (reserva == null) ? ResultadoPeticion.ACEPTADA : ResultadoPeticion.RESERVADA;
+        avisarResolucion();
+    }
+
+    /**
+     * Indica al solicitante que la petición no se ha podido resolver. El solicitante continúa sin reserva
+     */
+    public void rechazar() {
+        resultado = ResultadoPeticion.RECHAZADA;
+        avisarResolucion();
+    }
+
+    /**
+     * Indica al solicitante que la petición ha vencido antes de poder resolverse. El solicitante continúa
+     * sin reserva
+     */
+    public void caducar() {
+        resultado = ResultadoPeticion.CADUCADA;
+        avisarResolucion();
+    }
+
+    private void avisarResolucion() {
+        if (resolucion != null) {
+            resolucion.release();
+        }
+    }
+
     @Override
     public String toString() {
         return "Peticion{" +
@@ -0,0 +1,87 @@
+package es.ujaen.ssccdd.datos;
+
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+
+import static es.ujaen.ssccdd.Constantes.ResultadoPeticion;
+
+/**
+ * Petición cuya resolución se comunica con un CompletableFuture en lugar de bloquear al solicitante en un
+ * semáforo. El solicitante no necesita un hilo por cada petición pendiente: encadena sobre el futuro lo que
+ * debe hacer cuando se resuelva. Las acciones encadenadas sin variante Async se ejecutan en el hilo que
+ * resuelve la petición, por lo que deben ser breves. Cancelar el futuro cancela también la petición. La clase
+ * es final porque el constructor encadena sobre el futuro la cancelación de la propia petición.
+ */
+public final class PeticionAsincrona extends Peticion {
+    private final CompletableFuture<ResolucionPeticion> resolucion;     // Futuro con la resolución de la petición
+
+    public PeticionAsincrona(String id, String idOrigen, String idDestino, int numBicicletas) {
+        // La resolución se avisa con el futuro, así que no necesita semáforo ni vence
+        super(id, idOrigen, idDestino, null, numBicicletas);
+        this.resolucion = new CompletableFuture<>();
+        this.resolucion.whenComplete((resultado, error) -> cancelacionFuturo());
+    }
+
+    public PeticionAsincrona(String id, String idOrigen, String idDestino, int numBicicletas, Instant plazo) {
+        super(id, idOrigen, idDestino, comprobarPlazo(plazo), numBicicletas);
+        this.resolucion = new CompletableFuture<>();
+        this.resolucion.whenComplete((resultado, error) -> cancelacionFuturo());
+    }
+
+    public PeticionAsincrona(String id, String idOrigen, String idDestino) {
+        this(id, idOrigen, idDestino, 1);
+    }
+
+    private static Instant comprobarPlazo(Instant plazo) {
+        if (plazo == null)
+            throw new IllegalArgumentException("El plazo de la petición no está definido");
+
+        return plazo;
+    }
+
+    /**
+     * El futuro que se completa con la resolución de la petición
+     * @return el futuro con la resolución
+     */
+    public CompletableFuture<ResolucionPeticion> getResolucion() {
+        return resolucion;
+    }
+
+    @Override
+    public boolean cancelar() {
+        boolean cancelada = super.cancelar();
+        if (cancelada) {
+            resolucion.cancel(false);
+        }
+
+        return cancelada;
+    }
+
+    /**
+     * Si el solicitante cancela el futuro directamente, la petición queda reclamada para que no se resuelva
+     */
+    private void cancelacionFuturo() {
+        if (resolucion.isCancelled()) {
+            reclamar();
+        }
+    }
+
+    @Override
+    public void resolver(ReservaViaje reserva) {
+        super.resolver(reserva);
+        resolucion.complete(reserva == null ? new ResolucionPeticion(ResultadoPeticion.ACEPTADA) :
+                new ResolucionPeticion(ResultadoPeticion.RESERVADA, reserva));
+    }
+
+    @Override
+    public void rechazar() {
+        super.rechazar();
+        resolucion.complete(new ResolucionPeticion(ResultadoPeticion.RECHAZADA));
+    }
+
+    @Override
+    public void caducar() {
+        super.caducar();
+        resolucion.complete(new ResolucionPeticion(ResultadoPeticion.CADUCADA));
+    }
+}
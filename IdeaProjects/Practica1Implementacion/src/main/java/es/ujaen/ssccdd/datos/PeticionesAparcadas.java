@@ -0,0 +1,98 @@
+package es.ujaen.ssccdd.datos;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Peticiones aparcadas a la espera de que cambie una estación, en orden de llegada para cada estación. Se
+ * recuerda dónde está aparcada cada petición para poder retirarla en tiempo constante cuando vence o se
+ * cancela, sin esperar a que su estación cambie. Así una estación que no cambia durante mucho tiempo no
+ * acumula peticiones terminadas.
+ */
+public class PeticionesAparcadas {
+    private final Map<String, Set<Peticion>> porEstacion;     // Peticiones aparcadas de cada estación
+    private final Map<Peticion, String> estaciones;           // Estación donde está aparcada cada petición
+
+    public PeticionesAparcadas() {
+        this.porEstacion = new HashMap<>();
+        this.estaciones = new HashMap<>();
+    }
+
+    /**
+     * Aparca una petición hasta que cambie la estación
+     * @param idEstacion el identificador de la estación por la que espera
+     * @param peticion la petición aparcada
+     * @return true si se ha aparcado, false si ya estaba aparcada
+     */
+    public synchronized boolean aparcar(String idEstacion, Peticion peticion) {
+        if (idEstacion == null || peticion == null) {
+            throw new IllegalArgumentException("La estación y la petición no pueden ser null");
+        }
+
+        boolean aparcada = estaciones.putIfAbsent(peticion, idEstacion) == null;
+
+        if (aparcada) {
+            porEstacion.computeIfAbsent(idEstacion, id -> new LinkedHashSet<>()).add(peticion);
+        }
+
+        return aparcada;
+    }
+
+    /**
+     * Retira una petición de la estación donde está aparcada
+     * @param peticion la petición a retirar
+     * @return true si estaba aparcada
+     */
+    public synchronized boolean retirar(Peticion peticion) {
+        String idEstacion = estaciones.remove(peticion);
+
+        if (idEstacion != null) {
+            Set<Peticion> aparcadas = porEstacion.get(idEstacion);
+            aparcadas.remove(peticion);
+            if (aparcadas.isEmpty()) {
+                porEstacion.remove(idEstacion);
+            }
+        }
+
+        return idEstacion != null;
+    }
+
+    /**
+     * Retira todas las peticiones aparcadas de una estación para que vuelvan a resolverse, incluidas las que
+     * ya están terminadas para que quien las aparcó pueda descartarlas
+     * @param idEstacion el identificador de la estación que ha cambiado
+     * @return las peticiones en orden de llegada
+     */
+    public synchronized List<Peticion> reactivar(String idEstacion) {
+        Set<Peticion> aparcadas = porEstacion.remove(idEstacion);
+        List<Peticion> reactivadas = new ArrayList<>((aparcadas != null) ? aparcadas.size() : 0);
+
+        if (aparcadas != null) {
+            for (Peticion peticion : aparcadas) {
+                estaciones.remove(peticion);
+                reactivadas.add(peticion);
+            }
+        }
+
+        return reactivadas;
+    }
+
+    /**
+     * Número de peticiones aparcadas de una estación
+     * @param idEstacion el identificador de la estación
+     * @return las peticiones que esperan a que cambie la estación
+     */
+    public synchronized int aparcadas(String idEstacion) {
+        Set<Peticion> aparcadas = porEstacion.get(idEstacion);
+
+        return (aparcadas != null) ? aparcadas.size() : 0;
+    }
+
+    public synchronized int size() {
+        return estaciones.size();
+    }
+}
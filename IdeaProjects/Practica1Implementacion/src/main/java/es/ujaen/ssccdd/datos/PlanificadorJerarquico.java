@@ -0,0 +1,129 @@
+package es.ujaen.ssccdd.datos;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * Planificador de la redistribución en dos niveles para ciudades con muchas estaciones. Las estaciones se
+ * agrupan en zonas y en cada zona se resuelve por separado, y en paralelo con las demás, el flujo de coste
+ * mínimo entre sus propias estaciones. Después solo se planifica globalmente lo que queda sin cubrir, tomando
+ * cada zona como una única estación con la suma de sus excedentes o déficits, y cada movimiento entre zonas se
+ * reparte entre las estaciones que aún tienen bicicletas de sobra y las que aún las necesitan.
+ * <p>
+ * El plan no es necesariamente el de coste mínimo de toda la ciudad, pero mueve las mismas bicicletas y el
+ * coste de planificar crece con el tamaño de las zonas y con su número, no con el de estaciones al cuadrado.
+ */
+public class PlanificadorJerarquico extends PlanificadorRedistribucion {
+    private final Function<String, String> zona;                        // Zona a la que pertenece cada estación
+    private final PlanificadorRedistribucion planificadorZonas;        // Plan global entre las zonas
+
+    /**
+     * Planificador jerárquico con distancia unitaria entre estaciones y entre zonas
+     * @param zona la función que asigna a cada estación su zona
+     */
+    public PlanificadorJerarquico(Function<String, String> zona) {
+        this(zona, (origen, destino) -> 1, (origen, destino) -> 1);
+    }
+
+    /**
+     * @param zona la función que asigna a cada estación su zona
+     * @param distancia el coste de mover una bicicleta entre dos estaciones de la misma zona
+     * @param distanciaZonas el coste de mover una bicicleta entre dos zonas
+     */
+    public PlanificadorJerarquico(Function<String, String> zona, ToIntBiFunction<String, String> distancia,
+                                  ToIntBiFunction<String, String> distanciaZonas) {
+        super(distancia);
+        this.zona = Objects.requireNonNull(zona, "La función de zona no puede ser null");
+        this.planificadorZonas = new PlanificadorRedistribucion(distanciaZonas);
+    }
+
+    /**
+     * Calcula el plan de redistribución resolviendo primero cada zona y después lo que queda entre zonas
+     * @param balances el balance de cada estación: las bicicletas que le sobran (positivo) o le faltan (negativo)
+     * @return los movimientos del plan, de mayor a menor número de bicicletas
+     */
+    @Override
+    public List<Movimiento> planificar(Map<String, Integer> balances) {
+        Map<String, Map<String, Integer>> zonas = new HashMap<>();
+        balances.forEach((id, balance) -> {
+            if (balance != 0) {
+                zonas.computeIfAbsent(zona.apply(id), z -> new HashMap<>()).put(id, balance);
+            }
+        });
+
+        // Nivel local: cada zona se planifica de forma independiente
+        List<Movimiento> plan = new ArrayList<>(zonas.values().parallelStream()
+                .flatMap(estaciones -> super.planificar(estaciones).stream())
+                .toList());
+
+        // Lo que queda sin cubrir en cada estación tras el plan local
+        Map<String, Integer> restantes = new HashMap<>();
+        balances.forEach((id, balance) -> {
+            if (balance != 0) {
+                restantes.put(id, balance);
+            }
+        });
+        for (Movimiento movimiento : plan) {
+            restantes.merge(movimiento.idOrigen(), -movimiento.numBicicletas(), Integer::sum);
+            restantes.merge(movimiento.idDestino(), movimiento.numBicicletas(), Integer::sum);
+        }
+
+        // Nivel global: las zonas con su excedente o déficit restante
+        Map<String, Integer> balancesZonas = new HashMap<>();
+        restantes.forEach((id, balance) -> balancesZonas.merge(zona.apply(id), balance, Integer::sum));
+
+        for (Movimiento entreZonas : planificadorZonas.planificar(balancesZonas)) {
+            repartir(entreZonas, zonas, restantes, plan);
+        }
+        plan.sort(Comparator.comparingInt(Movimiento::numBicicletas).reversed());
+
+        return plan;
+    }
+
+    /**
+     * Reparte un movimiento entre zonas entre las estaciones de la zona de origen con bicicletas de sobra y
+     * las de la zona de destino que aún las necesitan, empezando por las de mayor excedente y déficit
+     */
+    private void repartir(Movimiento entreZonas, Map<String, Map<String, Integer>> zonas,
+                          Map<String, Integer> restantes, List<Movimiento> plan) {
+        List<String> origenes = estaciones(zonas.get(entreZonas.idOrigen()).keySet(), restantes, 1);
+        List<String> destinos = estaciones(zonas.get(entreZonas.idDestino()).keySet(), restantes, -1);
+        int pendientes = entreZonas.numBicicletas();
+        int i = 0;
+        int j = 0;
+
+        while (pendientes > 0 && i < origenes.size() && j < destinos.size()) {
+            String origen = origenes.get(i);
+            String destino = destinos.get(j);
+            int cantidad = Math.min(pendientes, Math.min(restantes.get(origen), -restantes.get(destino)));
+
+            plan.add(new Movimiento(origen, destino, cantidad));
+            restantes.merge(origen, -cantidad, Integer::sum);
+            restantes.merge(destino, cantidad, Integer::sum);
+            pendientes -= cantidad;
+            if (restantes.get(origen) == 0) {
+                i++;
+            }
+            if (restantes.get(destino) == 0) {
+                j++;
+            }
+        }
+    }
+
+    /**
+     * Estaciones de una zona cuyo balance restante tiene el signo indicado, de mayor a menor valor absoluto
+     */
+    private List<String> estaciones(Collection<String> estacionesZona, Map<String, Integer> restantes, int signo) {
+        return estacionesZona.stream()
+                .filter(id -> Integer.signum(restantes.get(id)) == signo)
+                .sorted(Comparator.comparingInt((String id) -> Math.abs(restantes.get(id))).reversed())
+                .toList();
+    }
+}
@@ -0,0 +1,82 @@
+package es.ujaen.ssccdd.datos;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Planificador de las peticiones pendientes de un resolutor. Las peticiones se ordenan por su llegada, pero
+ * las que no pueden satisfacerse en el momento de planificarlas se retrasan una penalización fija. Así las
+ * peticiones que pueden resolverse pasan antes que las que no, sin depender de cuántas de estas haya, y una
+ * petición penalizada no espera indefinidamente porque acaba siendo más antigua que las nuevas.
+ * No es seguro para hilos: cada resolutor tiene su propio planificador.
+ */
+public class PlanificadorPeticiones {
+    private final PriorityQueue<Entrada> pendientes;        // Peticiones ordenadas por su prioridad
+    private final Predicate<Peticion> satisfacible;         // Indica si una petición puede resolverse ahora
+    private final long penalizacion;                        // nanosegundos que se retrasa una petición insatisfacible
+    private long secuencia;                                 // Orden de inserción para los empates
+
+    /**
+     * @param satisfacible el predicado que indica si una petición puede resolverse en este momento
+     * @param penalizacion milisegundos que se retrasan las peticiones que no pueden resolverse
+     */
+    public PlanificadorPeticiones(Predicate<Peticion> satisfacible, long penalizacion) {
+        if (satisfacible == null || penalizacion < 0) {
+            throw new IllegalArgumentException("El criterio o la penalización del planificador no son válidos");
+        }
+
+        this.pendientes = new PriorityQueue<>(Comparator.comparingLong(Entrada::clave)
+                .thenComparingLong(Entrada::orden));
+        this.satisfacible = satisfacible;
+        this.penalizacion = TimeUnit.MILLISECONDS.toNanos(penalizacion);
+        this.secuencia = 0;
+    }
+
+    /**
+     * Añade una petición calculando su prioridad con su antigüedad y si puede resolverse ahora
+     * @param peticion la petición pendiente
+     */
+    public void anadir(Peticion peticion) {
+        long clave = peticion.getLlegada() + (satisfacible.test(peticion) ? 0 : penalizacion);
+        pendientes.add(new Entrada(clave, secuencia++, peticion));
+    }
+
+    /**
+     * Añade todas las peticiones de una colección
+     * @param peticiones las peticiones pendientes
+     */
+    public void anadirTodas(Collection<Peticion> peticiones) {
+        peticiones.forEach(this::anadir);
+    }
+
+    /**
+     * Extrae las peticiones más prioritarias
+     * @param lote la colección donde se añaden las peticiones en orden de prioridad
+     * @param maximo el número máximo de peticiones a extraer
+     * @return el número de peticiones extraídas
+     */
+    public int extraer(Collection<Peticion> lote, int maximo) {
+        int extraidas = 0;
+
+        while (extraidas < maximo && !pendientes.isEmpty()) {
+            lote.add(pendientes.poll().peticion());
+            extraidas++;
+        }
+
+        return extraidas;
+    }
+
+    public boolean isEmpty() {
+        return pendientes.isEmpty();
+    }
+
+    public int size() {
+        return pendientes.size();
+    }
+
+    private record Entrada(long clave, long orden, Peticion peticion) {
+    }
+}
@@ -0,0 +1,180 @@
+package es.ujaen.ssccdd.datos;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * Planificador global de la redistribución de bicicletas. A partir del balance de cada estación (positivo si
+ * le sobran bicicletas, negativo si le faltan) resuelve el problema de transporte como un flujo de coste
+ * mínimo: se mueven exactamente las bicicletas necesarias para cubrir lo que se puede de los déficits y se
+ * reparten entre orígenes y destinos minimizando la suma de bicicletas por distancia recorrida.
+ * <p>
+ * La distancia entre estaciones se indica con una función, ya que las estaciones no tienen ubicación; con
+ * la distancia unitaria el plan minimiza solo el número de bicicletas movidas.
+ */
+public class PlanificadorRedistribucion {
+    private final ToIntBiFunction<String, String> distancia;     // Coste de mover una bicicleta entre estaciones
+
+    public PlanificadorRedistribucion() {
+        this((origen, destino) -> 1);
+    }
+
+    public PlanificadorRedistribucion(ToIntBiFunction<String, String> distancia) {
+        this.distancia = Objects.requireNonNull(distancia, "La función de distancia no puede ser null");
+    }
+
+    /**
+     * Movimiento de bicicletas del plan de redistribución
+     * @param idOrigen donde se recogen las bicicletas
+     * @param idDestino donde se entregan las bicicletas
+     * @param numBicicletas el número de bicicletas a mover
+     */
+    public record Movimiento(String idOrigen, String idDestino, int numBicicletas) {
+    }
+
+    /**
+     * Calcula el plan de redistribución de coste mínimo
+     * @param balances el balance de cada estación: las bicicletas que le sobran (positivo) o le faltan (negativo)
+     * @return los movimientos del plan, de mayor a menor número de bicicletas
+     */
+    public List<Movimiento> planificar(Map<String, Integer> balances) {
+        List<String> origenes = new ArrayList<>();
+        List<String> destinos = new ArrayList<>();
+
+        balances.forEach((id, balance) -> {
+            if (balance > 0) {
+                origenes.add(id);
+            } else if (balance < 0) {
+                destinos.add(id);
+            }
+        });
+
+        if (origenes.isEmpty() || destinos.isEmpty()) {
+            return List.of();
+        }
+
+        // Red de flujo: fuente -> orígenes -> destinos -> sumidero
+        int numOrigenes = origenes.size();
+        int fuente = numOrigenes + destinos.size();
+        int sumidero = fuente + 1;
+        Red red = new Red(sumidero + 1);
+
+        for (int i = 0; i < numOrigenes; i++) {
+            red.arista(fuente, i, balances.get(origenes.get(i)), 0);
+        }
+        for (int j = 0; j < destinos.size(); j++) {
+            red.arista(numOrigenes + j, sumidero, -balances.get(destinos.get(j)), 0);
+        }
+        int primeraArista = red.numAristas();
+        for (int i = 0; i < numOrigenes; i++) {
+            for (int j = 0; j < destinos.size(); j++) {
+                red.arista(i, numOrigenes + j, Integer.MAX_VALUE,
+                        distancia.applyAsInt(origenes.get(i), destinos.get(j)));
+            }
+        }
+
+        red.flujoCosteMinimo(fuente, sumidero);
+
+        // Cada arista entre un origen y un destino con flujo es un movimiento del plan
+        List<Movimiento> plan = new ArrayList<>();
+        for (int i = 0; i < numOrigenes; i++) {
+            for (int j = 0; j < destinos.size(); j++) {
+                int flujo = red.flujo(primeraArista + 2 * (i * destinos.size() + j));
+                if (flujo > 0) {
+                    plan.add(new Movimiento(origenes.get(i), destinos.get(j), flujo));
+                }
+            }
+        }
+        plan.sort(Comparator.comparingInt(Movimiento::numBicicletas).reversed());
+
+        return plan;
+    }
+
+    /**
+     * Red de flujo con aristas residuales, resuelta por caminos mínimos sucesivos. Cada arista se guarda
+     * junto a su inversa, en la posición siguiente
+     */
+    private static class Red {
+        private final List<List<Integer>> adyacentes;
+        private final List<int[]> aristas;      // {destino, capacidad residual, coste}
+
+        private Red(int numNodos) {
+            this.adyacentes = new ArrayList<>(numNodos);
+            for (int i = 0; i < numNodos; i++) {
+                adyacentes.add(new ArrayList<>());
+            }
+            this.aristas = new ArrayList<>();
+        }
+
+        private int numAristas() {
+            return aristas.size();
+        }
+
+        private void arista(int desde, int hasta, int capacidad, int coste) {
+            adyacentes.get(desde).add(aristas.size());
+            aristas.add(new int[]{hasta, capacidad, coste});
+            adyacentes.get(hasta).add(aristas.size());
+            aristas.add(new int[]{desde, 0, -coste});
+        }
+
+        private int flujo(int arista) {
+            return aristas.get(arista ^ 1)[1];
+        }
+
+        /**
+         * Envía el máximo flujo por los caminos de menor coste, buscados con Bellman-Ford por cola porque
+         * las aristas residuales tienen coste negativo
+         */
+        private void flujoCosteMinimo(int fuente, int sumidero) {
+            int numNodos = adyacentes.size();
+            long[] coste = new long[numNodos];
+            int[] previa = new int[numNodos];
+            boolean[] enCola = new boolean[numNodos];
+            boolean hayCamino = true;
+
+            while (hayCamino) {
+                Arrays.fill(coste, Long.MAX_VALUE);
+                Arrays.fill(previa, -1);
+                coste[fuente] = 0;
+                Queue<Integer> cola = new ArrayDeque<>();
+                cola.add(fuente);
+
+                while (!cola.isEmpty()) {
+                    int nodo = cola.poll();
+                    enCola[nodo] = false;
+                    for (int indice : adyacentes.get(nodo)) {
+                        int[] arista = aristas.get(indice);
+                        if (arista[1] > 0 && coste[nodo] + arista[2] < coste[arista[0]]) {
+                            coste[arista[0]] = coste[nodo] + arista[2];
+                            previa[arista[0]] = indice;
+                            if (!enCola[arista[0]]) {
+                                enCola[arista[0]] = true;
+                                cola.add(arista[0]);
+                            }
+                        }
+                    }
+                }
+
+                hayCamino = previa[sumidero] != -1;
+                if (hayCamino) {
+                    // El flujo del camino es la menor capacidad residual de sus aristas
+                    int cantidad = Integer.MAX_VALUE;
+                    for (int nodo = sumidero; nodo != fuente; nodo = aristas.get(previa[nodo] ^ 1)[0]) {
+                        cantidad = Math.min(cantidad, aristas.get(previa[nodo])[1]);
+                    }
+                    for (int nodo = sumidero; nodo != fuente; nodo = aristas.get(previa[nodo] ^ 1)[0]) {
+                        aristas.get(previa[nodo])[1] -= cantidad;
+                        aristas.get(previa[nodo] ^ 1)[1] += cantidad;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -2,27 +2,56 @@ package es.ujaen.ssccdd.datos;
 
 import es.ujaen.ssccdd.Constantes;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import static es.ujaen.ssccdd.Constantes.*;
 import static es.ujaen.ssccdd.Constantes.TipoBicicletas.NORMAL;
 
+/**
+ * Punto de recarga con un número fijo de cargadores. Cada bicicleta ocupa un cargador libre y se recuerda el
+ * cargador de cada bicicleta, de modo que iniciar y finalizar una carga son operaciones de tiempo constante.
+ * <p>
+ * Las cargas se inician y finalizan con la exclusión mutua del punto de recarga, pero la ocupación de los
+ * cargadores se publica en atómicos y puede consultarse sin ella.
+ */
 public class PuntoRecarga {
     private final String id;                                // El identificador único del punto de mantenimiento
-    private final List<Bicicleta> listaBicicletas;          // Lista de bicicletas dentro del punto de recarga
+    private final AtomicReferenceArray<Bicicleta> cargadores;   // Bicicleta de cada cargador, null si está libre
+    private final Map<String, Integer> posiciones;          // Cargador que ocupa cada bicicleta
+    private final Deque<Integer> libres;                    // Cargadores libres
+    private final AtomicInteger ocupados;                   // Número de cargadores ocupados
+    private final List<Bicicleta> listaBicicletas;          // Vista de las bicicletas dentro del punto de recarga
     private final int capacidad;                            // Capacidad máxima de la estación de bicicletas
     private final Semaphore semDeposito;                    // Semáforo para los espacios disponibles en el punto de recarga
     private final Semaphore semExm;                         // Semáforo para las operaciones en exclusión mutua
 
     public PuntoRecarga(int capacidad) {
         this.id = "PuntoRecarga-" + UUID.randomUUID();
-        this.listaBicicletas = new ArrayList<>();
         this.capacidad = ( capacidad < 0 || capacidad > CAPACIDAD_MAXIMA ) ? capacidad : aleatorio.nextInt(CAPACIDAD_MINIMA, CAPACIDAD_MAXIMA);
 
+        // Tiene que haber un cargador para cada permiso de depósito
+        int numCargadores = Math.max(0, Math.max(this.capacidad, capacidad));
+        this.cargadores = new AtomicReferenceArray<>(numCargadores);
+        this.posiciones = new ConcurrentHashMap<>();
+        this.libres = new ArrayDeque<>(numCargadores);
+        for (int i = 0; i < numCargadores; i++) {
+            this.libres.addLast(i);
+        }
+        this.ocupados = new AtomicInteger();
+        this.listaBicicletas = new BicicletasCargando();
+
         // Inicialización de los semáforos
         this.semDeposito = new Semaphore(capacidad);
         this.semExm = new Semaphore(1);
@@ -33,7 +62,7 @@ public class PuntoRecarga {
     }
 
     public int getCapacidad() {
-        return capacidad - listaBicicletas.size();
+        return capacidad - ocupados.get();
     }
 
     public Semaphore semDeposito() {
@@ -44,16 +73,62 @@ public class PuntoRecarga {
         return semExm;
     }
 
+    public int getNumCargadores() {
+        return cargadores.length();
+    }
+
     /**
-     * Deja la bicicleta en el punto de carta
-     * @param bicicleta
+     * Para saber cuántos cargadores están ocupados sin la exclusión mutua del punto de recarga
+     * @return el número de bicicletas cargando
      */
-    public void iniciarCarga(Bicicleta bicicleta) {
+    public int cargadoresOcupados() {
+        return ocupados.get();
+    }
+
+    /**
+     * Consulta sin la exclusión mutua la bicicleta de un cargador
+     * @param cargador el número del cargador
+     * @return la bicicleta que está cargando, vacío si el cargador está libre
+     */
+    public Optional<Bicicleta> bicicletaEnCargador(int cargador) {
+        return Optional.ofNullable(cargadores.get(cargador));
+    }
+
+    /**
+     * Consulta sin la exclusión mutua el cargador de una bicicleta
+     * @param idBicicleta el identificador de la bicicleta
+     * @return el número del cargador, -1 si la bicicleta no está cargando
+     */
+    public int cargadorDe(String idBicicleta) {
+        return posiciones.getOrDefault(idBicicleta, -1);
+    }
+
+    /**
+     * Deja la bicicleta en un cargador libre del punto de carga
+     * @param bicicleta la bicicleta eléctrica que se carga
+     * @return el número del cargador que ocupa
+     * @throws IllegalStateException si no hay cargadores libres o la bicicleta ya está cargando
+     */
+    public int iniciarCarga(Bicicleta bicicleta) {
         if (bicicleta.getTipo().equals(NORMAL)) {
             throw new IllegalArgumentException("Debe ser una bicicleta ELECTRICA para realizar la carga");
         }
 
-        this.listaBicicletas.add(new Bicicleta(bicicleta));
+        if (libres.isEmpty()) {
+            throw new IllegalStateException("No hay cargadores libres en el punto de recarga");
+        }
+
+        // Una bicicleta que ya está cargando no puede ocupar otro cargador
+        Integer cargador = libres.peekFirst();
+        if (posiciones.putIfAbsent(bicicleta.getId(), cargador) != null) {
+            throw new IllegalStateException("La bicicleta " + bicicleta.getId() + " ya está cargando");
+        }
+
+        libres.pollFirst();
+        cargadores.set(cargador, bicicleta);
+        ocupados.incrementAndGet();
+
+        return cargador;
     }
 
     /**
@@ -62,14 +137,15 @@ public class PuntoRecarga {
      * @return Optional<Bicicleta> que ha finalizado su carga
      */
     public Optional<Bicicleta> finalizadaCarga(String idBicicleta) {
+        Integer cargador = posiciones.remove(idBicicleta);
         Optional<Bicicleta> resultado = Optional.empty();
 
-        resultado = listaBicicletas.stream()
-                .filter(b -> b.getId().equals(idBicicleta))
-                .findFirst();
-
-        // Si se encuentra la bicicleta, la eliminamos de la lista
-        resultado.ifPresent(listaBicicletas::remove);
+        // Si se encuentra la bicicleta, se libera su cargador
+        if (cargador != null) {
+            resultado = Optional.of(cargadores.getAndSet(cargador, null));
+            ocupados.decrementAndGet();
+            libres.addFirst(cargador);
+        }
 
         return resultado;
     }
@@ -82,4 +158,65 @@ public class PuntoRecarga {
                 ", capacidad=" + capacidad +
                 '}';
     }
+
+    /**
+     * Vista de solo lectura de las bicicletas de los cargadores ocupados, en el orden de los cargadores, pensada
+     * para recorrerse con su iterador: el acceso por posición recorre los cargadores en cada llamada. Sin la
+     * exclusión mutua del punto de recarga, el tamaño y el recorrido pueden corresponder a momentos distintos
+     */
+    private class BicicletasCargando extends AbstractList<Bicicleta> {
+
+        @Override
+        public int size() {
+            return ocupados.get();
+        }
+
+        /**
+         * Acceso por posición en tiempo lineal; para recorrer la vista debe utilizarse su iterador
+         */
+        @Override
+        public Bicicleta get(int index) {
+            Iterator<Bicicleta> it = iterator();
+
+            for (int i = 0; i < index && it.hasNext(); i++) {
+                it.next();
+            }
+            if (index < 0 || !it.hasNext()) {
+                throw new IndexOutOfBoundsException(index);
+            }
+
+            return it.next();
+        }
+
+        @Override
+        public Iterator<Bicicleta> iterator() {
+            return new Iterator<>() {
+                private int posicion = -1;
+                private Bicicleta actual = avanzar();
+
+                @Override
+                public boolean hasNext() {
+                    return actual != null;
+                }
+
+                @Override
+                public Bicicleta next() {
+                    if (actual == null) {
+                        throw new NoSuchElementException();
+                    }
+                    Bicicleta bicicleta = actual;
+                    actual = avanzar();
+                    return bicicleta;
+                }
+
+                private Bicicleta avanzar() {
+                    Bicicleta bicicleta = null;
+                    while (bicicleta == null && ++posicion < cargadores.length()) {
+                        bicicleta = cargadores.get(posicion);
+                    }
+                    return bicicleta;
+                }
+            };
+        }
+    }
 }
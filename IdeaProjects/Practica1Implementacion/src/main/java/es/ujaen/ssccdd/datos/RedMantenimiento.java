@@ -0,0 +1,134 @@
+package es.ujaen.ssccdd.datos;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.ToIntBiFunction;
+
+import static es.ujaen.ssccdd.Constantes.*;
+
+/**
+ * Conjunto de zonas de mantenimiento. Cada zona tiene sus propias bicicletas, su exclusión mutua y su línea de
+ * reparación, de modo que los técnicos y los camiones que trabajan con zonas distintas no compiten entre sí.
+ * <p>
+ * Los técnicos entregan las bicicletas en la zona más cercana a la estación donde las recogen y, entre zonas a
+ * la misma distancia, en la que tiene menos bicicletas esperando para entrar en reparación y después menos
+ * bicicletas depositadas. La redistribución toma las bicicletas reparadas de cualquiera de las zonas.
+ */
+public class RedMantenimiento {
+    private final Map<String, ZonaMantenimiento> zonas;             // Zonas por su identificador, en orden de alta
+    private final ToIntBiFunction<String, String> distancia;        // Distancia entre una estación y una zona
+
+    /**
+     * Red con NUM_ZONAS_MANTENIMIENTO zonas con la configuración por defecto y distancia unitaria
+     */
+    public RedMantenimiento() {
+        this(zonasPorDefecto(NUM_ZONAS_MANTENIMIENTO));
+    }
+
+    /**
+     * Red con distancia unitaria: las zonas se eligen por su carga
+     * @param zonas las zonas de mantenimiento
+     */
+    public RedMantenimiento(Collection<ZonaMantenimiento> zonas) {
+        this(zonas, (idEstacion, idZona) -> UNO);
+    }
+
+    /**
+     * @param zonas las zonas de mantenimiento, al menos una
+     * @param distancia la distancia entre el identificador de una estación y el de una zona
+     */
+    public RedMantenimiento(Collection<ZonaMantenimiento> zonas, ToIntBiFunction<String, String> distancia) {
+        if (zonas == null || zonas.isEmpty() || zonas.stream().anyMatch(Objects::isNull))
+            throw new IllegalArgumentException("Debe haber al menos una zona de mantenimiento");
+
+        Map<String, ZonaMantenimiento> porId = new LinkedHashMap<>();
+        zonas.forEach(zona -> porId.put(zona.getId(), zona));
+        this.zonas = Collections.unmodifiableMap(porId);
+        this.distancia = Objects.requireNonNull(distancia, "La distancia no puede ser null");
+    }
+
+    /**
+     * Crea el número de zonas indicado con la configuración por defecto
+     * @param numZonas el número de zonas
+     * @return las zonas creadas
+     */
+    public static List<ZonaMantenimiento> zonasPorDefecto(int numZonas) {
+        List<ZonaMantenimiento> resultado = new ArrayList<>(numZonas);
+
+        for (int i = 0; i < numZonas; i++) {
+            resultado.add(new ZonaMantenimiento());
+        }
+
+        return resultado;
+    }
+
+    /**
+     * La zona donde deben entregarse las bicicletas recogidas en una estación
+     * @param idEstacion el identificador de la estación
+     * @return la zona más cercana y, a igual distancia, la menos cargada
+     */
+    public ZonaMantenimiento masCercana(String idEstacion) {
+        return zonas.values().stream()
+                .min(Comparator.comparingInt((ZonaMantenimiento zona) -> distancia.applyAsInt(idEstacion, zona.getId()))
+                        .thenComparingInt(zona -> zona.getLineaReparacion().enCola(EtapaReparacion.INGRESO))
+                        .thenComparingInt(ZonaMantenimiento::bicicletasDepositadas))
+                .orElseThrow();
+    }
+
+    /**
+     * La zona con el identificador indicado
+     * @param idZona el identificador de la zona
+     * @return la zona, null si no pertenece a la red
+     */
+    public ZonaMantenimiento getZona(String idZona) {
+        return zonas.get(idZona);
+    }
+
+    public boolean contiene(String idZona) {
+        return zonas.containsKey(idZona);
+    }
+
+    public Collection<ZonaMantenimiento> getZonas() {
+        return zonas.values();
+    }
+
+    public int size() {
+        return zonas.size();
+    }
+
+    /**
+     * Para saber el número de bicicletas reparadas en toda la red, sin la exclusión mutua de las zonas
+     * @return la suma de las bicicletas depositadas en las zonas
+     */
+    public int bicicletasDepositadas() {
+        return zonas.values().stream().mapToInt(ZonaMantenimiento::bicicletasDepositadas).sum();
+    }
+
+    /**
+     * Pone en marcha la línea de reparación de las zonas que no la tengan ya en marcha
+     */
+    public void iniciarReparacion() {
+        zonas.values().forEach(zona -> zona.getLineaReparacion().iniciar());
+    }
+
+    /**
+     * Detiene la línea de reparación de todas las zonas
+     */
+    public void detenerReparacion() {
+        zonas.values().forEach(zona -> zona.getLineaReparacion().detener());
+    }
+
+    @Override
+    public String toString() {
+        return "RedMantenimiento{" +
+                "zonas=" + zonas.keySet() +
+                ", bicicletasDepositadas=" + bicicletasDepositadas() +
+                '}';
+    }
+}
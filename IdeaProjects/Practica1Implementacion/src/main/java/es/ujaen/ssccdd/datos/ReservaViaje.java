@@ -0,0 +1,24 @@
+package es.ujaen.ssccdd.datos;
+
+import java.util.Objects;
+
+/**
+ * Record con la reserva de un viaje: la bicicleta retenida en la estación de origen, ya ALQUILADA con el
+ * id del solicitante, y el espacio reservado en la estación de destino, donde la bicicleta está EN_TRANSITO
+ */
+public record ReservaViaje(
+        String idOrigen,
+        String idDestino,
+        Bicicleta bicicleta
+) {
+    public ReservaViaje {
+        Objects.requireNonNull(idOrigen, "El origen no puede ser nulo");
+        Objects.requireNonNull(idDestino, "El destino no puede ser nulo");
+        Objects.requireNonNull(bicicleta, "La bicicleta no puede ser nula");
+    }
+
+    // El identificador con el que se recoge la bicicleta en el origen y se entrega en el destino
+    public String idBicicleta() {
+        return bicicleta.getId();
+    }
+}
@@ -0,0 +1,29 @@
+package es.ujaen.ssccdd.datos;
+
+import java.util.Objects;
+import java.util.Optional;
+
+import static es.ujaen.ssccdd.Constantes.ResultadoPeticion;
+
+/**
+ * Record con la resolución de una petición asíncrona: su resultado y, si se ha reservado un viaje, la reserva
+ */
+public record ResolucionPeticion(
+        ResultadoPeticion resultado,
+        ReservaViaje reserva
+) {
+    public ResolucionPeticion {
+        Objects.requireNonNull(resultado, "El resultado no puede ser nulo");
+        if ((resultado == ResultadoPeticion.RESERVADA) != (reserva != null)) {
+            throw new IllegalArgumentException("Solo las peticiones con el viaje reservado tienen reserva");
+        }
+    }
+
+    public ResolucionPeticion(ResultadoPeticion resultado) {
+        this(resultado, null);
+    }
+
+    public Optional<ReservaViaje> getReserva() {
+        return Optional.ofNullable(reserva);
+    }
+}
@@ -0,0 +1,185 @@
+package es.ujaen.ssccdd.datos;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static es.ujaen.ssccdd.Constantes.*;
+import static es.ujaen.ssccdd.Constantes.EstadosBicicletas.*;
+
+/**
+ * Tabla compartida en la que las estaciones publican sus contadores para que las consultas de supervisión y
+ * planificación no tengan que bloquear ninguna estación. Cada estación ocupa su propio bloque de un array de
+ * atómicos, separado de los demás por relleno para que dos estaciones no compartan línea de caché.
+ * <p>
+ * Cada bloque lleva una versión que es impar mientras se escribe. La lectura repite la copia de los contadores
+ * hasta obtenerla con la misma versión par al principio y al final, por lo que siempre devuelve los valores de
+ * una misma publicación de la estación y nunca espera por un cerrojo.
+ */
+public class TablaDisponibilidad implements ObservadorEstacion {
+    private static final int POS_VERSION = 0;
+    private static final int POS_DISPONIBLES = 1;
+    private static final int POS_ALQUILADAS = 2;
+    private static final int POS_EN_TRANSITO = 3;
+    private static final int POS_REUBICADAS = 4;
+    private static final int POS_FUERA_SERVICIO = 5;
+    private static final int POS_ESPACIO_LIBRE = 6;
+    private static final int BLOQUE = 16;       // 128 bytes por estación: la línea de caché y su adyacente
+
+    private final AtomicLongArray contadores;               // Bloques de contadores de las estaciones
+    private final Map<String, Integer> indices;             // Posición de cada estación en la tabla
+    private final int numEstaciones;                        // Máximo de estaciones de la tabla
+
+    public TablaDisponibilidad(int numEstaciones) {
+        if (numEstaciones < 1)
+            throw new IllegalArgumentException("La tabla debe tener espacio para al menos una estación");
+
+        this.contadores = new AtomicLongArray(numEstaciones * BLOQUE);
+        this.indices = new ConcurrentHashMap<>();
+        this.numEstaciones = numEstaciones;
+    }
+
+    /**
+     * Contadores de una estación publicados en una misma actualización
+     */
+    public record EstadoEstacion(int disponibles, int alquiladas, int enTransito, int reubicadas,
+                                 int fueraDeServicio, int espacioLibre) {
+
+        /**
+         * Indica si hay suficientes bicicletas fuera de servicio para necesitar mantenimiento
+         * @return true si hay que avisar a mantenimiento
+         */
+        public boolean avisoMantenimiento() {
+            return fueraDeServicio > MIN_MANTENIMIENTO;
+        }
+    }
+
+    /**
+     * Asigna un bloque de la tabla a la estación, publica su estado actual y se registra como su observador
+     * para publicar cada cambio posterior
+     * @param estacion la estación que publica sus contadores
+     */
+    public synchronized void registrar(EstacionBicicletas estacion) {
+        if (estacion == null)
+            throw new IllegalArgumentException("La estación no puede ser null");
+
+        if (!indices.containsKey(estacion.getId())) {
+            if (indices.size() == numEstaciones)
+                throw new IllegalStateException("No hay espacio en la tabla para más estaciones");
+
+            indices.put(estacion.getId(), indices.size());
+            estacion.registrarObservador(this);
+
+            // Se lee antes de marcar el bloque: quien publica un cambio tiene la estación bloqueada y
+            // esperaría por el bloque. Si publica antes, sus valores son más recientes y no se escriben estos
+            int bloque = indices.get(estacion.getId()) * BLOQUE;
+            int disponibles = estacion.leerBicicletas(DISPONIBLE);
+            int alquiladas = estacion.leerBicicletas(ALQUILADA);
+            int enTransito = estacion.leerBicicletas(EN_TRANSITO);
+            int reubicadas = estacion.leerBicicletas(REUBICACION);
+            int fueraDeServicio = estacion.leerBicicletas(FUERA_DE_SERVICIO);
+            int espacioLibre = estacion.leerCapacidadEstacion();
+            if (contadores.compareAndSet(bloque + POS_VERSION, 0, 1)) {
+                escribir(bloque, disponibles, alquiladas, enTransito, reubicadas, fueraDeServicio, espacioLibre);
+                contadores.set(bloque + POS_VERSION, 2);
+            }
+        }
+    }
+
+    /**
+     * Publica los contadores de la estación. Quien la modifica la tiene bloqueada, así que las escrituras de
+     * una misma estación no se solapan
+     */
+    @Override
+    public void estadoCambiado(EstacionBicicletas estacion) {
+        Integer indice = indices.get(estacion.getId());
+
+        if (indice != null) {
+            int bloque = indice * BLOQUE;
+            long version = empezarEscritura(bloque);
+            escribir(bloque, estacion.getDisponibles(), estacion.getBicicletas(ALQUILADA),
+                    estacion.getBicicletas(EN_TRANSITO), estacion.getBicicletas(REUBICACION),
+                    estacion.getBicicletas(FUERA_DE_SERVICIO), estacion.getCapacidadEstacion());
+            contadores.set(bloque + POS_VERSION, version + 2);
+        }
+    }
+
+    /**
+     * Lee sin bloqueos los contadores publicados por una estación
+     * @param idEstacion el identificador de la estación
+     * @return los contadores de una misma publicación
+     */
+    public EstadoEstacion leer(String idEstacion) {
+        Integer indice = indices.get(idEstacion);
+
+        if (indice == null)
+            throw new IllegalArgumentException("La estación " + idEstacion + " no publica en la tabla");
+
+        int bloque = indice * BLOQUE;
+        EstadoEstacion estado;
+        long version;
+
+        do {
+            version = contadores.get(bloque + POS_VERSION);
+            estado = new EstadoEstacion((int) contadores.get(bloque + POS_DISPONIBLES),
+                    (int) contadores.get(bloque + POS_ALQUILADAS), (int) contadores.get(bloque + POS_EN_TRANSITO),
+                    (int) contadores.get(bloque + POS_REUBICADAS), (int) contadores.get(bloque + POS_FUERA_SERVICIO),
+                    (int) contadores.get(bloque + POS_ESPACIO_LIBRE));
+            if ((version & 1) != 0) {
+                Thread.onSpinWait();
+            }
+        } while ((version & 1) != 0 || version != contadores.get(bloque + POS_VERSION));
+
+        return estado;
+    }
+
+    /**
+     * Lee sin bloqueos los contadores de todas las estaciones. Los contadores de cada estación son de una misma
+     * publicación, aunque las estaciones pueden haberse leído en momentos distintos
+     * @return el estado de cada estación en el orden de registro
+     */
+    public Map<String, EstadoEstacion> instantanea() {
+        Map<String, EstadoEstacion> resultado = new LinkedHashMap<>();
+
+        indices.entrySet().stream()
+                .sorted(Map.Entry.comparingByValue())
+                .forEach(entrada -> resultado.put(entrada.getKey(), leer(entrada.getKey())));
+
+        return resultado;
+    }
+
+    public boolean contiene(String idEstacion) {
+        return indices.containsKey(idEstacion);
+    }
+
+    public int size() {
+        return indices.size();
+    }
+
+    /**
+     * Marca el bloque como en escritura pasando su versión a impar. La espera solo se produce si la
+     * publicación inicial del registro coincide con un cambio de la estación
+     * @return la versión par anterior a la escritura
+     */
+    private long empezarEscritura(int bloque) {
+        long version = contadores.get(bloque + POS_VERSION);
+
+        while ((version & 1) != 0 || !contadores.compareAndSet(bloque + POS_VERSION, version, version + 1)) {
+            Thread.onSpinWait();
+            version = contadores.get(bloque + POS_VERSION);
+        }
+
+        return version;
+    }
+
+    private void escribir(int bloque, int disponibles, int alquiladas, int enTransito, int reubicadas,
+                          int fueraDeServicio, int espacioLibre) {
+        contadores.set(bloque + POS_DISPONIBLES, disponibles);
+        contadores.set(bloque + POS_ALQUILADAS, alquiladas);
+        contadores.set(bloque + POS_EN_TRANSITO, enTransito);
+        contadores.set(bloque + POS_REUBICADAS, reubicadas);
+        contadores.set(bloque + POS_FUERA_SERVICIO, fueraDeServicio);
+        contadores.set(bloque + POS_ESPACIO_LIBRE, espacioLibre);
+    }
+}
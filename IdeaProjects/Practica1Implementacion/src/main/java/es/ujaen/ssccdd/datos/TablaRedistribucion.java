@@ -0,0 +1,203 @@
+package es.ujaen.ssccdd.datos;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Tabla de las peticiones de redistribución pendientes y en curso, por pareja de origen y destino. Una
+ * solicitud para una pareja que ya espera camión actualiza las bicicletas del viaje pendiente con el
+ * objetivo más reciente, hasta la capacidad de un camión, y las solicitudes para una pareja con un viaje en
+ * curso se descartan. Cuando un camión resuelve la petición del viaje la pareja vuelve a quedar libre.
+ * <p>
+ * Puede haber hasta un máximo de viajes pendientes o en curso a la vez, atendidos por distintos camiones, y
+ * cada estación solo puede ser origen o destino de uno de ellos para que dos camiones no cuenten con las
+ * mismas bicicletas o los mismos espacios.
+ */
+public class TablaRedistribucion {
+    private final Map<String, Viaje> pendientes;        // Viajes que esperan camión en orden de solicitud
+    private final Set<String> enCurso;                  // Parejas con un viaje asignado a un camión
+    private final Set<String> estacionesOcupadas;       // Estaciones de los viajes pendientes o en curso
+    private final int capacidadCamion;                  // Máximo de bicicletas de un viaje
+    private final int maxViajes;                        // Máximo de viajes pendientes o en curso a la vez
+    private Consumer<Peticion> alCompletar;             // Acción a realizar cuando se resuelve un viaje
+    private long solicitudes;                           // Número de solicitudes recibidas
+    private long actualizadas;                          // Solicitudes que actualizan un viaje pendiente
+    private long duplicadas;                            // Solicitudes descartadas por tener un viaje en curso
+    private long rechazadas;                            // Solicitudes descartadas por estaciones ocupadas o tabla llena
+
+    public TablaRedistribucion(int capacidadCamion) {
+        this(capacidadCamion, Integer.MAX_VALUE);
+    }
+
+    public TablaRedistribucion(int capacidadCamion, int maxViajes) {
+        if (capacidadCamion < 1 || maxViajes < 1) {
+            throw new IllegalArgumentException("La capacidad del camión y el máximo de viajes tienen que ser positivos");
+        }
+
+        this.pendientes = new LinkedHashMap<>();
+        this.enCurso = new HashSet<>();
+        this.estacionesOcupadas = new HashSet<>();
+        this.capacidadCamion = capacidadCamion;
+        this.maxViajes = maxViajes;
+        this.alCompletar = peticion -> {};
+    }
+
+    /**
+     * Indica la acción a realizar, en el hilo del camión, cada vez que se resuelve un viaje
+     * @param alCompletar la acción que recibe la petición resuelta
+     */
+    public synchronized void alCompletar(Consumer<Peticion> alCompletar) {
+        if (alCompletar == null) {
+            throw new IllegalArgumentException("La acción no puede ser null");
+        }
+
+        this.alCompletar = alCompletar;
+    }
+
+    /**
+     * Solicita un viaje de redistribución
+     * @param idOrigen donde deben recogerse las bicicletas
+     * @param idDestino donde deben entregarse las bicicletas
+     * @param numBicicletas el número de bicicletas a redistribuir
+     * @return true si se ha creado un viaje nuevo que debe atender un camión, false si ha actualizado
+     * un viaje pendiente o se ha descartado por haber uno en curso, por estar ocupada alguna de sus estaciones
+     * o por haber ya el máximo de viajes
+     */
+    public synchronized boolean solicitar(String idOrigen, String idDestino, int numBicicletas) {
+        if (idOrigen == null || idDestino == null || numBicicletas < 1) {
+            throw new IllegalArgumentException("La solicitud de redistribución no es válida");
+        }
+
+        String clave = clave(idOrigen, idDestino);
+        Viaje viaje = pendientes.get(clave);
+        boolean nuevo = false;
+
+        solicitudes++;
+        if (enCurso.contains(clave)) {
+            duplicadas++;
+        } else if (viaje != null) {
+            viaje.numBicicletas = Math.min(capacidadCamion, numBicicletas);
+            actualizadas++;
+        } else if (isCompleta() || estacionesOcupadas.contains(idOrigen) || estacionesOcupadas.contains(idDestino)) {
+            rechazadas++;
+        } else {
+            pendientes.put(clave, new Viaje(idOrigen, idDestino, Math.min(capacidadCamion, numBicicletas)));
+            estacionesOcupadas.add(idOrigen);
+            estacionesOcupadas.add(idDestino);
+            nuevo = true;
+        }
+
+        return nuevo;
+    }
+
+    /**
+     * Un camión toma el viaje pendiente más antiguo. La pareja queda en curso hasta que se resuelve la
+     * petición devuelta
+     * @return la petición del viaje, null si no hay viajes pendientes
+     */
+    public synchronized Peticion tomar() {
+        Iterator<Map.Entry<String, Viaje>> it = pendientes.entrySet().iterator();
+
+        if (!it.hasNext()) {
+            return null;
+        }
+
+        Map.Entry<String, Viaje> entrada = it.next();
+        String clave = entrada.getKey();
+        Viaje viaje = entrada.getValue();
+        it.remove();
+
+        enCurso.add(clave);
+        PeticionAsincrona peticion = new PeticionAsincrona("GestorRedistribucion", viaje.idOrigen, viaje.idDestino,
+                viaje.numBicicletas);
+        peticion.getResolucion().whenComplete((resolucion, error) -> completar(clave, peticion));
+
+        return peticion;
+    }
+
+    /**
+     * Comprueba si una estación es origen o destino de un viaje pendiente o en curso
+     * @param idEstacion el identificador de la estación
+     * @return true si la estación está ocupada
+     */
+    public synchronized boolean estacionOcupada(String idEstacion) {
+        return estacionesOcupadas.contains(idEstacion);
+    }
+
+    /**
+     * Comprueba si ya se ha alcanzado el máximo de viajes pendientes o en curso
+     * @return true si no se admiten más viajes
+     */
+    public synchronized boolean isCompleta() {
+        return pendientes.size() + enCurso.size() >= maxViajes;
+    }
+
+    public synchronized int viajesPendientes() {
+        return pendientes.size();
+    }
+
+    public synchronized int viajesEnCurso() {
+        return enCurso.size();
+    }
+
+    public synchronized long getSolicitudes() {
+        return solicitudes;
+    }
+
+    public synchronized long getActualizadas() {
+        return actualizadas;
+    }
+
+    public synchronized long getDuplicadas() {
+        return duplicadas;
+    }
+
+    public synchronized long getRechazadas() {
+        return rechazadas;
+    }
+
+    public int getMaxViajes() {
+        return maxViajes;
+    }
+
+    public int getCapacidadCamion() {
+        return capacidadCamion;
+    }
+
+    /**
+     * Libera la pareja y las estaciones de un viaje resuelto y realiza la acción de completado fuera de la
+     * exclusión mutua de la tabla
+     */
+    private void completar(String clave, Peticion peticion) {
+        Consumer<Peticion> accion;
+
+        synchronized (this) {
+            enCurso.remove(clave);
+            estacionesOcupadas.remove(peticion.getOrigen());
+            estacionesOcupadas.remove(peticion.getDestino());
+            accion = alCompletar;
+        }
+        accion.accept(peticion);
+    }
+
+    private static String clave(String idOrigen, String idDestino) {
+        return idOrigen + "->" + idDestino;
+    }
+
+    /** Viaje pendiente de una pareja de origen y destino */
+    private static class Viaje {
+        private final String idOrigen;
+        private final String idDestino;
+        private int numBicicletas;
+
+        private Viaje(String idOrigen, String idDestino, int numBicicletas) {
+            this.idOrigen = idOrigen;
+            this.idDestino = idDestino;
+            this.numBicicletas = numBicicletas;
+        }
+    }
+}
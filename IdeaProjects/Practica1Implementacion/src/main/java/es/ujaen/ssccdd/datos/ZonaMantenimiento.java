@@ -1,23 +1,62 @@
 package es.ujaen.ssccdd.datos;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToLongFunction;
+
+import static es.ujaen.ssccdd.Constantes.*;
 
 public class ZonaMantenimiento {
     private final String id;                            // Identificador único
-    private final List<Bicicleta> listaBicicletas;      // Lista de las bicicletas de en el punto de mantenimiento
+    private final Deque<Bicicleta> listaBicicletas;     // Bicicletas del punto de mantenimiento, en orden de llegada
+    private final AtomicInteger numBicicletas;          // Bicicletas depositadas, consultable sin exclusión mutua
     private final Semaphore exm;                        // Semáforo de exclusión mutua para las operaciones
+    private final LineaReparacion lineaReparacion;      // Etapas de reparación previas a la recogida
 
 
     public ZonaMantenimiento() {
+        this(trabajadoresPorEtapa(TRABAJADORES_ETAPA), CAPACIDAD_ETAPA, EtapaReparacion::getDuracion);
+    }
+
+    /**
+     * Constructor que permite configurar la línea de reparación. Las bicicletas que la superan quedan
+     * depositadas en el punto de mantenimiento, listas para su recogida
+     * @param trabajadores el número de trabajadores de cada etapa
+     * @param capacidadEtapa las bicicletas que pueden esperar a la entrada de cada etapa
+     * @param duracion los milisegundos que dedica un trabajador de cada etapa a una bicicleta
+     */
+    public ZonaMantenimiento(Map<EtapaReparacion, Integer> trabajadores, int capacidadEtapa,
+                             ToLongFunction<EtapaReparacion> duracion) {
         this.id = "ZonaMantenimiento-" + UUID.randomUUID();
-        this.listaBicicletas = new ArrayList<>();
+        this.listaBicicletas = new ArrayDeque<>();
+        this.numBicicletas = new AtomicInteger();
 
         // Inicialización del semáforo
         this.exm = new Semaphore(1);
+        this.lineaReparacion = new LineaReparacion(trabajadores, capacidadEtapa, duracion, this::depositarReparada);
+    }
+
+    /**
+     * El mismo número de trabajadores para todas las etapas de la línea de reparación
+     * @param numTrabajadores los trabajadores de cada etapa
+     * @return los trabajadores por etapa
+     */
+    public static Map<EtapaReparacion, Integer> trabajadoresPorEtapa(int numTrabajadores) {
+        Map<EtapaReparacion, Integer> trabajadores = new EnumMap<>(EtapaReparacion.class);
+
+        for (EtapaReparacion etapa : EtapaReparacion.values()) {
+            trabajadores.put(etapa, numTrabajadores);
+        }
+
+        return trabajadores;
     }
 
     public String getId() {
@@ -25,11 +64,11 @@ public class ZonaMantenimiento {
     }
 
     /**
-     * Para saber el número de bicicletas en el punto de mantenimiento
-     * @return el tamaño de la lista de bicicletas
+     * Para saber el número de bicicletas en el punto de mantenimiento. No necesita la exclusión mutua de la zona
+     * @return el número de bicicletas depositadas
      */
     public int bicicletasDepositadas() {
-        return listaBicicletas.size();
+        return numBicicletas.get();
     }
 
     /**
@@ -47,11 +86,42 @@ public class ZonaMantenimiento {
      */
     public void dejarBicicletas(List<Bicicleta> listaBicicletas) {
         this.listaBicicletas.addAll(listaBicicletas);
+        numBicicletas.addAndGet(listaBicicletas.size());
 
         // Las bicicletas quedan depositadas en el punto de mantenimiento
         listaBicicletas.clear();
     }
 
+    /**
+     * Línea de reparación de la zona. Se pone en marcha con la primera entrega de repararBicicletas()
+     * @return la línea de reparación
+     */
+    public LineaReparacion getLineaReparacion() {
+        return lineaReparacion;
+    }
+
+    /**
+     * Entrega bicicletas averiadas a la línea de reparación sin necesidad de la exclusión mutua de la zona,
+     * poniéndola en marcha si aún no lo está y esperando si la etapa de ingreso está llena. Cuando terminan la
+     * línea se depositan en el punto de mantenimiento. La operación elimina las bicicletas de la lista de entrega
+     * @param listaBicicletas lista de bicicletas a reparar
+     * @throws InterruptedException si se interrumpe la espera
+     */
+    public void repararBicicletas(List<Bicicleta> listaBicicletas) throws InterruptedException {
+        lineaReparacion.iniciar();
+        lineaReparacion.ingresar(listaBicicletas);
+    }
+
+    /**
+     * Deposita una bicicleta que sale de la línea de reparación con la exclusión mutua de la zona
+     */
+    private void depositarReparada(Bicicleta bicicleta) {
+        exm.acquireUninterruptibly();
+        listaBicicletas.addLast(bicicleta);
+        numBicicletas.incrementAndGet();
+        exm.release();
+    }
+
     /**
      * Recoge un número de bicicletas dado del punto de mantenimiento o las que haya en el mismo si el número
      * es menor
@@ -59,21 +129,35 @@ public class ZonaMantenimiento {
      * @return la lista de bicicletas recogida
      */
     public List<Bicicleta> recogerBicicletas(int numBicicletas) {
-        List<Bicicleta> recogida = new ArrayList<>();
-        Iterator<Bicicleta> it = this.listaBicicletas.iterator();
+        if (numBicicletas < 1) {
+            throw new IllegalArgumentException("El número de bicicletas tiene que ser un número positivo");
+        }
 
+        List<Bicicleta> recogida = new ArrayList<>(Math.min(numBicicletas, listaBicicletas.size()));
+        recogerBicicletas(numBicicletas, recogida);
+
+        return recogida;
+    }
+
+    /**
+     * Recoge un número de bicicletas dado del punto de mantenimiento, o las que haya si el número es menor, y
+     * las añade directamente al destino. Se toman las más antiguas, cada una en tiempo constante
+     * @param numBicicletas las bicicletas a recoger
+     * @param destino la colección que recibe las bicicletas recogidas
+     * @return el número de bicicletas recogidas
+     */
+    public int recogerBicicletas(int numBicicletas, Collection<Bicicleta> destino) {
         if (numBicicletas < 1) {
             throw new IllegalArgumentException("El número de bicicletas tiene que ser un número positivo");
         }
 
-        while ( it.hasNext() && numBicicletas > 0) {
-            Bicicleta bicicleta = it.next();
-            recogida.add(bicicleta);
-            it.remove();
-            numBicicletas--;
+        int recogidas = Math.min(numBicicletas, listaBicicletas.size());
+        for (int i = 0; i < recogidas; i++) {
+            destino.add(listaBicicletas.pollFirst());
         }
+        this.numBicicletas.addAndGet(-recogidas);
 
-        return recogida;
+        return recogidas;
     }
 
     @Override
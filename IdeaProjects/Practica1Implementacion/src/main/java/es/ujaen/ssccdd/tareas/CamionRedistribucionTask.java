@@ -2,9 +2,12 @@ package es.ujaen.ssccdd.tareas;
 
 import es.ujaen.ssccdd.Constantes;
 import es.ujaen.ssccdd.datos.Bicicleta;
+import es.ujaen.ssccdd.datos.BloqueoEstaciones;
 import es.ujaen.ssccdd.datos.EstacionBicicletas;
 import es.ujaen.ssccdd.datos.EventoSistema;
 import es.ujaen.ssccdd.datos.Peticion;
+import es.ujaen.ssccdd.datos.RedMantenimiento;
+import es.ujaen.ssccdd.datos.TablaRedistribucion;
 import es.ujaen.ssccdd.datos.ZonaMantenimiento;
 
 import java.util.ArrayList;
@@ -17,10 +20,11 @@ import java.util.concurrent.TimeUnit;
 public class CamionRedistribucionTask implements Runnable {
     private final String matricula;                                 // Matrícula del camión
     private final Map<String, EstacionBicicletas> estacionesMap;    // Mapa de las estaciones de bicicletas
-    private final ZonaMantenimiento zonaMantenimiento;              // Zona de mantenimiento donde están las bicicletas reparadas
+    private final RedMantenimiento redMantenimiento;                // Zonas de mantenimiento donde están las bicicletas reparadas
     private final Semaphore semCamiones;                            // Semáforo para avisar que el camión haga el transporte
     private final Queue<Peticion> peticionesRedistribucion;         // Buffer para las peticiones de redistribución de bicicletas
     private final Semaphore exmRedistribucion;                      // Semáforo para garantizar el acceso a las peticiones de redistribución
+    private final TablaRedistribucion tablaRedistribucion;          // Tabla de viajes de redistribución del gestor
     private final Queue<EventoSistema> eventosSistema;              // Para almacenar los eventos del sistema
 
     public CamionRedistribucionTask(Map<String, EstacionBicicletas> estacionesMap, ZonaMantenimiento zonaMantenimiento,
@@ -29,10 +33,40 @@ public class CamionRedistribucionTask implements Runnable {
 
         this.matricula = "M - " + java.util.UUID.randomUUID().toString().substring(0, 8);
         this.estacionesMap = estacionesMap;
-        this.zonaMantenimiento = zonaMantenimiento;
+        this.redMantenimiento = new RedMantenimiento(List.of(zonaMantenimiento));
         this.semCamiones = semCamiones;
         this.peticionesRedistribucion = peticionesRedistribucion;
         this.exmRedistribucion = exmRedistribucion;
+        this.tablaRedistribucion = null;
+        this.eventosSistema = eventosSistema;
+    }
+
+    /**
+     * Constructor para un camión que toma sus viajes de la tabla de redistribución del gestor, donde hay a
+     * lo sumo un viaje pendiente o en curso para cada pareja de origen y destino
+     */
+    public CamionRedistribucionTask(Map<String, EstacionBicicletas> estacionesMap, ZonaMantenimiento zonaMantenimiento,
+                                    Semaphore semCamiones, TablaRedistribucion tablaRedistribucion,
+                                    Queue<EventoSistema> eventosSistema) {
+        this(estacionesMap, new RedMantenimiento(List.of(zonaMantenimiento)), semCamiones, tablaRedistribucion,
+                eventosSistema);
+    }
+
+    /**
+     * Constructor para un camión que toma sus viajes de la tabla de redistribución del gestor y puede recoger
+     * las bicicletas reparadas en cualquiera de las zonas de mantenimiento
+     */
+    public CamionRedistribucionTask(Map<String, EstacionBicicletas> estacionesMap, RedMantenimiento redMantenimiento,
+                                    Semaphore semCamiones, TablaRedistribucion tablaRedistribucion,
+                                    Queue<EventoSistema> eventosSistema) {
+
+        this.matricula = "M - " + java.util.UUID.randomUUID().toString().substring(0, 8);
+        this.estacionesMap = estacionesMap;
+        this.redMantenimiento = redMantenimiento;
+        this.semCamiones = semCamiones;
+        this.peticionesRedistribucion = null;
+        this.exmRedistribucion = null;
+        this.tablaRedistribucion = tablaRedistribucion;
         this.eventosSistema = eventosSistema;
     }
 
@@ -43,14 +77,24 @@ public class CamionRedistribucionTask implements Runnable {
     public Peticion obtenerPeticion() throws InterruptedException {
         // Esperar a que haya una petición de redistribución
         semCamiones.acquire();
-        // Acceso exclusivo al buffer de peticiones de redistribución
-        exmRedistribucion.acquire();
-        Peticion peticion = peticionesRedistribucion.poll();
-        exmRedistribucion.release();
+        Peticion peticion;
+
+        if (tablaRedistribucion != null) {
+            peticion = tablaRedistribucion.tomar();
+        } else {
+            // Acceso exclusivo al buffer de peticiones de redistribución
+            exmRedistribucion.acquire();
+            peticion = peticionesRedistribucion.poll();
+            exmRedistribucion.release();
+        }
 
         return peticion;
     }
 
+    /**
+     * Realiza el viaje de una petición de redistribución. Si el camión se interrumpe o no puede entregar las
+     * bicicletas se deshace el viaje y se rechaza la petición, para que sus estaciones queden libres
+     */
     public void resolverPeticion(Peticion peticion) throws InterruptedException {
         // Registrar el inicio de recogida
         eventosSistema.add(new EventoSistema(Constantes.TipoEvento.CAMION_RECOGIENDO_BICICLETAS,
@@ -58,46 +102,126 @@ public class CamionRedistribucionTask implements Runnable {
 
         List<Bicicleta> bicicletasParaReubicar = new ArrayList<>();
         String origen = peticion.getOrigen();
+        EstacionBicicletas estacionOrigen = estacionesMap.get(origen);
+        EstacionBicicletas estacionDestino = estacionesMap.get(peticion.getDestino());
+        ZonaMantenimiento zonaMantenimiento = (estacionDestino != null) ? redMantenimiento.getZona(origen) : null;
+        boolean reservadas = false;         // Las bicicletas recogidas tienen su espacio reservado en el destino
+        boolean entregadas = false;         // El viaje se ha completado
+
+        try {
+            if (estacionDestino != null) {
+                // Las bicicletas de una zona de mantenimiento se recogen antes de bloquear ninguna estación, para
+                // no esperar por la zona con las estaciones bloqueadas
+                if (zonaMantenimiento != null) {
+                    zonaMantenimiento.semExm().acquire();
+                    zonaMantenimiento.recogerBicicletas(peticion.getBicicletasPeticion(), bicicletasParaReubicar);
+                    zonaMantenimiento.semExm().release();
+                }
 
-        // origen: zona de mantenimiento o estación
-        if (origen.startsWith("ZonaMantenimiento")) {
-            zonaMantenimiento.semExm().acquire();
-            bicicletasParaReubicar.addAll(zonaMantenimiento.recogerBicicletas(peticion.getBicicletasPeticion()));
-            zonaMantenimiento.semExm().release();
+                // Se bloquean juntas origen y destino para recoger solo las bicicletas que tienen
+                // espacio reservado en el destino
+                BloqueoEstaciones bloqueo = (estacionOrigen != null) ?
+                        new BloqueoEstaciones(estacionOrigen, estacionDestino) : new BloqueoEstaciones(estacionDestino);
+                bloqueo.bloquear();
+
+                int numBicicletas = Math.min(peticion.getBicicletasPeticion(), estacionDestino.getCapacidadEstacion());
+                List<Bicicleta> sobrantes = new ArrayList<>();
+
+                if (zonaMantenimiento != null) {
+                    // Las recogidas de la zona que no caben en el destino vuelven a la zona
+                    List<Bicicleta> sinEspacio = bicicletasParaReubicar.subList(
+                            Math.min(numBicicletas, bicicletasParaReubicar.size()), bicicletasParaReubicar.size());
+                    sobrantes.addAll(sinEspacio);
+                    sinEspacio.clear();
+                } else if (estacionOrigen != null && numBicicletas > 0) {
+                    bicicletasParaReubicar.addAll(estacionOrigen.listaReubicacion(numBicicletas));
+                }
 
-        } else {
-            //vienen de las estaciones
-            EstacionBicicletas estacionOrigen = estacionesMap.get(origen);
+                // Reserva del espacio en el destino para las bicicletas recogidas
+                if (!bicicletasParaReubicar.isEmpty()) {
+                    reservadas = estacionDestino.peticionReubicacion(new ArrayList<>(bicicletasParaReubicar));
+                }
+                bloqueo.liberar();
 
-            if (estacionOrigen != null) {
-                estacionOrigen.semExm().acquire();
-                bicicletasParaReubicar.addAll(estacionOrigen.listaReubicacion(peticion.getBicicletasPeticion()));
-                estacionOrigen.semExm().release();
+                if (!sobrantes.isEmpty()) {
+                    zonaMantenimiento.semExm().acquireUninterruptibly();
+                    zonaMantenimiento.dejarBicicletas(sobrantes);
+                    zonaMantenimiento.semExm().release();
+                }
             }
-        }
-        // Simular el transporte
-        TimeUnit.SECONDS.sleep(Constantes.TIEMPO_TRANSPORTE);
+            int recogidas = bicicletasParaReubicar.size();
 
-        // Registrar que el camión está en tránsito
-        eventosSistema.add(new EventoSistema(Constantes.TipoEvento.CAMION_EN_TRANSITO,
-                matricula, peticion.getDestino(), null, "Transportando bicicletas"));
+            // Simular el transporte
+            TimeUnit.SECONDS.sleep(Constantes.TIEMPO_TRANSPORTE);
 
-        // Depositar en el destino
-        EstacionBicicletas estacionDestino = estacionesMap.get(peticion.getDestino());
+            // Registrar que el camión está en tránsito
+            eventosSistema.add(new EventoSistema(Constantes.TipoEvento.CAMION_EN_TRANSITO,
+                    matricula, peticion.getDestino(), null, "Transportando bicicletas"));
+
+            // Depositar en el destino las bicicletas que tenían el espacio reservado
+            if (reservadas) {
+                long sello = estacionDestino.bloquearEscritura();
+                estacionDestino.reubicarBicicleatas(bicicletasParaReubicar);
+                estacionDestino.liberarEscritura(sello);
+            }
+            entregadas = bicicletasParaReubicar.isEmpty();
 
-        if (estacionDestino != null) {
-            estacionDestino.semExm().acquire();
-            // reubicación para depositar las bicicletas
-            estacionDestino.peticionReubicacion(bicicletasParaReubicar);
-            estacionDestino.semExm().release();
+            // Registrar la entrega
+            if (entregadas) {
+                eventosSistema.add(new EventoSistema(Constantes.TipoEvento.CAMION_ENTREGANDO_BICICLETAS,
+                        matricula, peticion.getDestino(), null, "Entregado " + recogidas + " bicicletas"));
+            }
+        } finally {
+            if (!entregadas) {
+                deshacerViaje(estacionOrigen, estacionDestino, zonaMantenimiento, bicicletasParaReubicar, reservadas);
+            }
+
+            // Indicar que la petición ha sido resuelta, o rechazada si no se ha completado el viaje
+            if (peticion.reclamar()) {
+                if (entregadas) {
+                    peticion.resolver(null);
+                } else {
+                    peticion.rechazar();
+                }
+            }
         }
+    }
 
-        // Registrar la entrega
-        eventosSistema.add(new EventoSistema(Constantes.TipoEvento.CAMION_ENTREGANDO_BICICLETAS,
-                matricula, peticion.getDestino(), null, "Entregado " + peticion.getBicicletasPeticion() + " bicicletas"));
+    /**
+     * Deshace un viaje que no se ha completado: anula la reserva del destino y devuelve las bicicletas
+     * recogidas a la zona de mantenimiento o a la estación de origen. Si el origen ya no tiene espacio para
+     * ellas se entregan en el destino, que lo tiene reservado. No atiende las interrupciones para no perder
+     * ninguna bicicleta
+     */
+    private void deshacerViaje(EstacionBicicletas estacionOrigen, EstacionBicicletas estacionDestino,
+                               ZonaMantenimiento zonaMantenimiento, List<Bicicleta> bicicletas, boolean reservadas) {
+        if (bicicletas.isEmpty()) {
+            return;
+        }
 
-        // Indicar que la petición ha sido resuelta
-        peticion.semResolucion().release();
+        if (reservadas || zonaMantenimiento == null) {
+            BloqueoEstaciones bloqueo = (estacionOrigen != null) ?
+                    new BloqueoEstaciones(estacionOrigen, estacionDestino) : new BloqueoEstaciones(estacionDestino);
+            bloqueo.bloquearIninterrumpible();
+
+            if (zonaMantenimiento == null && reservadas && estacionOrigen.getCapacidadEstacion() < bicicletas.size()) {
+                estacionDestino.reubicarBicicleatas(bicicletas);
+            } else {
+                if (reservadas) {
+                    estacionDestino.cancelarPeticionReubicacion(bicicletas);
+                }
+                if (zonaMantenimiento == null) {
+                    estacionOrigen.cancelarReubicacion(bicicletas);
+                }
+            }
+            bloqueo.liberar();
+        }
+
+        if (zonaMantenimiento != null) {
+            zonaMantenimiento.semExm().acquireUninterruptibly();
+            zonaMantenimiento.dejarBicicletas(bicicletas);
+            zonaMantenimiento.semExm().release();
+        }
     }
 
     /**
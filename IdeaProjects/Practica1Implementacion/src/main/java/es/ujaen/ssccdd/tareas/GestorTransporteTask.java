@@ -2,93 +2,296 @@ package es.ujaen.ssccdd.tareas;
 
 import es.ujaen.ssccdd.Constantes;
 import es.ujaen.ssccdd.datos.Bicicleta;
+import es.ujaen.ssccdd.datos.BloqueoEstaciones;
+import es.ujaen.ssccdd.datos.BuzonPeticiones;
+import es.ujaen.ssccdd.datos.DespachoMantenimiento;
 import es.ujaen.ssccdd.datos.EstacionBicicletas;
+import es.ujaen.ssccdd.datos.EstadisticasLotes;
 import es.ujaen.ssccdd.datos.EventoSistema;
+import es.ujaen.ssccdd.datos.IndiceEstaciones;
+import es.ujaen.ssccdd.datos.ObservadorEstacion;
 import es.ujaen.ssccdd.datos.Peticion;
+import es.ujaen.ssccdd.datos.PeticionAsincrona;
+import es.ujaen.ssccdd.datos.PeticionesAparcadas;
+import es.ujaen.ssccdd.datos.PlanificadorJerarquico;
+import es.ujaen.ssccdd.datos.PlanificadorPeticiones;
+import es.ujaen.ssccdd.datos.PlanificadorRedistribucion;
 import es.ujaen.ssccdd.datos.PuntoRecarga;
+import es.ujaen.ssccdd.datos.RedMantenimiento;
+import es.ujaen.ssccdd.datos.ResolucionPeticion;
+import es.ujaen.ssccdd.datos.TablaDisponibilidad;
+import es.ujaen.ssccdd.datos.TablaRedistribucion;
+import es.ujaen.ssccdd.datos.ReservaViaje;
 import es.ujaen.ssccdd.datos.ZonaMantenimiento;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Queue;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
 import java.util.concurrent.Future;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntBiFunction;
 
 public class GestorTransporteTask implements Runnable {
     private final String idGestor;                                            // Identificador del gestor
     private final Map<String, EstacionBicicletas> bicicletasMap;              // Mapa de las estaciones de bicicletas
-    private final ZonaMantenimiento zonaMantenimiento;                        // Zona de mantenimiento de las bicicletas
+    private final RedMantenimiento redMantenimiento;                          // Zonas de mantenimiento de las bicicletas
     private final PuntoRecarga puntoRecarga;                                  // Punto de recarga para las bicicletas eléctricas
     private final Queue<Peticion> peticionesTransporte;                       // Buffer para gestionar las peticiones de transporte
     private final Semaphore exmTransporte;                                    // Semáforo para garantizar el acceso a las peticiones de transporte
-    private final Queue<Peticion> peticionesRedistribucion;                   // Buffer para las peticiones de redistribución de bicicletas
-    private final Semaphore exmRedistribucion;                                // Semáforo para garantizar el acceso a las peticiones de redistribución
+    private final TablaRedistribucion tablaRedistribucion;                    // Viajes de redistribución pendientes y en curso
+    private final PlanificadorRedistribucion planificadorRedistribucion;      // Plan de redistribución de coste mínimo
+    private final IndiceEstaciones indiceEstaciones;                          // Estaciones ordenadas por disponibles y espacio libre
+    private final TablaDisponibilidad tablaDisponibilidad;                    // Contadores publicados por las estaciones
+    private final GestionMantenimiento gestionMantenimiento;                  // Avisa a los técnicos de mantenimiento
+    private final DespachoMantenimiento despachoMantenimiento;                // Reparte los trabajos entre los técnicos compartidos
     private final Semaphore semCamiones;                                      // Semáforo para avisar a los camiones de redistribución
     private final Semaphore semGestorTransporte;                              // Semáforo para sincronizar las peticiones de transporte
     private final Queue<EventoSistema> eventosSistema;                        // Para almacenar los eventos del sistema
     private final List<Future<?>> tareasSistema;                              // Lista de tareas que se crean en el sistema para su finalización
 
     // Variables del gestor
-    private final Queue<Peticion> peticionesPendientes;                       // Peticiones de transporte por resolver
-    private final Semaphore semPeticionesPendientes;                          // Semáforo para las peticiones pendientes
-    private final Semaphore semGestor;                                        // Semáforo para sincronizar las peticiones de redistribución
+    private final BuzonPeticiones buzonPeticiones;                            // Peticiones por resolver repartidas por estación de origen
+    private final boolean recepcionDirecta;                                   // Los usuarios envían sus peticiones directamente al buzón
+    private final EstadisticasLotes estadisticasLotes;                        // Tamaño y tiempo de los lotes resueltos
+    private final PeticionesAparcadas esperandoBicicletas;                    // Peticiones aparcadas hasta que haya bicicletas en su origen
+    private final PeticionesAparcadas esperandoEspacio;                       // Peticiones aparcadas hasta que haya espacio en su destino
+    private final DelayQueue<PlazoPeticion> plazosPeticiones;                 // Plazos de las peticiones aparcadas ordenados por vencimiento
+    private final Set<Peticion> peticionesVigiladas;                          // Peticiones aparcadas cuyo plazo ya se vigila
 
     public GestorTransporteTask(Map<String, EstacionBicicletas> bicicletasMap, ZonaMantenimiento zonaMantenimiento,
                                 PuntoRecarga puntoRecarga, List<Future<?>> tareasSistema) {
+        this(bicicletasMap, zonaMantenimiento, puntoRecarga, tareasSistema, Constantes.NUM_RESOLUTORES);
+    }
+
+    public GestorTransporteTask(Map<String, EstacionBicicletas> bicicletasMap, ZonaMantenimiento zonaMantenimiento,
+                                PuntoRecarga puntoRecarga, List<Future<?>> tareasSistema, int numResolutores) {
+        this(bicicletasMap, zonaMantenimiento, puntoRecarga, tareasSistema, numResolutores, Constantes.RECEPCION_DIRECTA);
+    }
+
+    public GestorTransporteTask(Map<String, EstacionBicicletas> bicicletasMap, ZonaMantenimiento zonaMantenimiento,
+                                PuntoRecarga puntoRecarga, List<Future<?>> tareasSistema, int numResolutores,
+                                boolean recepcionDirecta) {
+        this(bicicletasMap, zonaMantenimiento, puntoRecarga, tareasSistema, numResolutores, recepcionDirecta,
+                (origen, destino) -> Constantes.UNO);
+    }
+
+    /**
+     * Constructor que permite indicar el número de hilos que resuelven las peticiones de transporte. Cada uno
+     * se encarga de las peticiones cuyo origen corresponde a su fragmento de las estaciones. Con la recepción
+     * directa los usuarios depositan sus peticiones en el buzón de los resolutores; en otro caso las envían al
+     * buffer de peticiones de transporte y la subtarea de recepción las reenvía al buzón. La distancia entre
+     * estaciones es el coste que minimiza el plan de redistribución
+     */
+    public GestorTransporteTask(Map<String, EstacionBicicletas> bicicletasMap, ZonaMantenimiento zonaMantenimiento,
+                                PuntoRecarga puntoRecarga, List<Future<?>> tareasSistema, int numResolutores,
+                                boolean recepcionDirecta, ToIntBiFunction<String, String> distancia) {
+        this(bicicletasMap, (zonaMantenimiento != null) ? new RedMantenimiento(List.of(zonaMantenimiento), distancia) : null,
+                puntoRecarga, tareasSistema, numResolutores, recepcionDirecta, distancia);
+    }
+
+    /**
+     * Constructor para varias zonas de mantenimiento. Los técnicos entregan las bicicletas en la zona más
+     * cercana a cada estación y la redistribución recoge las bicicletas reparadas de cualquiera de ellas
+     */
+    public GestorTransporteTask(Map<String, EstacionBicicletas> bicicletasMap, RedMantenimiento redMantenimiento,
+                                PuntoRecarga puntoRecarga, List<Future<?>> tareasSistema, int numResolutores,
+                                boolean recepcionDirecta, ToIntBiFunction<String, String> distancia) {
 
-        if (bicicletasMap.isEmpty() || zonaMantenimiento == null || puntoRecarga == null || tareasSistema == null) {
+        if (bicicletasMap.isEmpty() || redMantenimiento == null || puntoRecarga == null || tareasSistema == null) {
             throw new IllegalArgumentException("Hay elementos necesarios para la simulación que no están definidos");
         }
 
+        if (numResolutores < 1) {
+            throw new IllegalArgumentException("Debe haber al menos un hilo para resolver las peticiones");
+        }
+
         this.idGestor = "Gestor - " + UUID.randomUUID();
         this.bicicletasMap = bicicletasMap;
-        this.zonaMantenimiento = zonaMantenimiento;
+        this.redMantenimiento = redMantenimiento;
         this.puntoRecarga = puntoRecarga;
         this.tareasSistema = tareasSistema;
 
         // Inicialización de estructuras compartidas
         this.peticionesTransporte = new LinkedList<>();
         this.exmTransporte = new Semaphore(1);
-        this.peticionesRedistribucion = new LinkedList<>();
-        this.exmRedistribucion = new Semaphore(1);
+        this.tablaRedistribucion = new TablaRedistribucion(Constantes.CAPACIDAD_CAMION, Constantes.REDISTRIBUCIONES_SIMULTANEAS);
+        this.planificadorRedistribucion = Constantes.REDISTRIBUCION_JERARQUICA ?
+                new PlanificadorJerarquico(zonasRedistribucion(bicicletasMap)::get, distancia, (origen, destino) -> Constantes.UNO) :
+                new PlanificadorRedistribucion(distancia);
         this.semCamiones = new Semaphore(0);
         this.semGestorTransporte = new Semaphore(0);
-        this.semPeticionesPendientes = new Semaphore(0);
-        this.semGestor = new Semaphore(0);
 
         this.eventosSistema = new ConcurrentLinkedQueue<>();
-        this.peticionesPendientes = new ConcurrentLinkedQueue<>();
+
+        // Las estaciones publican sus contadores para las consultas sin bloqueos
+        this.tablaDisponibilidad = new TablaDisponibilidad(bicicletasMap.size());
+        bicicletasMap.values().forEach(tablaDisponibilidad::registrar);
+
+        this.buzonPeticiones = new BuzonPeticiones(numResolutores, Constantes.CAPACIDAD_BUZON,
+                Constantes.POLITICA_ADMISION, idOrigen -> tablaDisponibilidad.leer(idOrigen).disponibles() == 0);
+        this.recepcionDirecta = recepcionDirecta;
+        this.estadisticasLotes = new EstadisticasLotes();
+        this.esperandoBicicletas = new PeticionesAparcadas();
+        this.esperandoEspacio = new PeticionesAparcadas();
+        this.plazosPeticiones = new DelayQueue<>();
+        this.peticionesVigiladas = ConcurrentHashMap.newKeySet();
+
+        // Las estaciones avisan de sus cambios para reactivar las peticiones aparcadas
+        ObservadorEstacion avisoEstaciones = new AvisoEstaciones();
+        bicicletasMap.values().forEach(estacion -> estacion.registrarObservador(avisoEstaciones));
+
+        // Las estaciones mantienen actualizado su lugar en el índice de la redistribución
+        this.indiceEstaciones = new IndiceEstaciones();
+        bicicletasMap.values().forEach(indiceEstaciones::registrar);
+
+        // Sin sondeo, las estaciones avisan directamente cuando necesitan mantenimiento
+        this.despachoMantenimiento = Constantes.TECNICOS_COMPARTIDOS ?
+                new DespachoMantenimiento(Constantes.NUM_TECNICOS) : null;
+        this.gestionMantenimiento = new GestionMantenimiento();
+        if (!Constantes.MANTENIMIENTO_POR_SONDEO) {
+            bicicletasMap.values().forEach(gestionMantenimiento::vigilar);
+        }
     }
 
     public String getIdGestor() {
         return idGestor;
     }
 
+    public BuzonPeticiones getBuzonPeticiones() {
+        return buzonPeticiones;
+    }
+
+    public Queue<Peticion> getPeticionesTransporte() {
+        return peticionesTransporte;
+    }
+
+    public Semaphore getExmTransporte() {
+        return exmTransporte;
+    }
+
+    public Semaphore getSemGestorTransporte() {
+        return semGestorTransporte;
+    }
+
+    public TablaRedistribucion getTablaRedistribucion() {
+        return tablaRedistribucion;
+    }
+
+    public Semaphore getSemCamiones() {
+        return semCamiones;
+    }
+
+    public Queue<EventoSistema> getEventosSistema() {
+        return eventosSistema;
+    }
+
+    /**
+     * Despacho del que los técnicos compartidos toman sus trabajos
+     * @return el despacho de mantenimiento, null si cada técnico atiende su propia estación
+     */
+    public DespachoMantenimiento getDespachoMantenimiento() {
+        return despachoMantenimiento;
+    }
+
+    /**
+     * Zonas de mantenimiento que deben recibir los técnicos y los camiones del gestor
+     * @return la red de zonas de mantenimiento
+     */
+    public RedMantenimiento getRedMantenimiento() {
+        return redMantenimiento;
+    }
+
+    public TablaDisponibilidad getTablaDisponibilidad() {
+        return tablaDisponibilidad;
+    }
+
+    public EstadisticasLotes getEstadisticasLotes() {
+        return estadisticasLotes;
+    }
+
+    public boolean isRecepcionDirecta() {
+        return recepcionDirecta;
+    }
+
+    /**
+     * Solicita un transporte sin bloquear al solicitante. La petición se deposita en el buzón de los
+     * resolutores y el futuro devuelto se completa cuando se reserva el viaje o cuando vence el plazo
+     * de PLAZO_PETICION segundos
+     * @param idOrigen la estación donde se recoge la bicicleta
+     * @param idDestino la estación donde se entrega la bicicleta
+     * @return el futuro con la resolución de la petición
+     */
+    public CompletableFuture<ResolucionPeticion> solicitarTransporte(String idOrigen, String idDestino) {
+        return solicitarTransporte(idOrigen, idDestino, Constantes.PLAZO_PETICION);
+    }
+
+    /**
+     * Solicita un transporte sin bloquear al solicitante indicando el plazo para resolverlo
+     * @param idOrigen la estación donde se recoge la bicicleta
+     * @param idDestino la estación donde se entrega la bicicleta
+     * @param segundos el plazo en segundos para resolver la petición
+     * @return el futuro con la resolución de la petición
+     */
+    public CompletableFuture<ResolucionPeticion> solicitarTransporte(String idOrigen, String idDestino, int segundos) {
+        if (!bicicletasMap.containsKey(idOrigen) || !bicicletasMap.containsKey(idDestino)) {
+            throw new IllegalArgumentException("Las estaciones de origen y destino deben existir");
+        }
+
+        PeticionAsincrona peticion = new PeticionAsincrona(UUID.randomUUID().toString(), idOrigen, idDestino,
+                Constantes.UNO, Constantes.sumarSegundos.apply(Instant.now(), segundos));
+        buzonPeticiones.enviar(peticion);
+
+        return peticion.getResolucion();
+    }
+
     /**
      * Esta es la tarea principal del gestor que se ejecutará cíclicamente.
      * Se encarga de inicializar el sistema y de ejecutar en paralelo las siguientes subtareas:
-     * - Recibir peticiones de transporte.
+     * - Recibir peticiones de transporte (solo si no hay recepción directa en el buzón).
      * - Resolver peticiones pendientes.
-     * - Gestionar el mantenimiento.
+     * - Caducar las peticiones aparcadas cuyo plazo ha vencido.
+     * - Gestionar el mantenimiento por sondeo (solo con MANTENIMIENTO_POR_SONDEO).
+     * - Poner en marcha la línea de reparación de las zonas de mantenimiento (con LINEA_REPARACION).
      * - Gestionar la redistribución.
      * Además, genera peticiones de transporte simulando la llegada de nuevos usuarios.
      */
     @Override
     public void run() {
         // Lanzamos las subtareas en hilos separados
-        Thread recibirThread = new Thread(new RecibirPeticionesTransporte(), "Recepcion-" + idGestor);
-        Thread resolverThread = new Thread(new ResolverPeticionesTransporte(), "Resolver-" + idGestor);
-        Thread mantenimientoThread = new Thread(new GestionMantenimiento(), "Mantenimiento-" + idGestor);
-        Thread redistribucionThread = new Thread(new GestionRedistribucion(), "Redistribucion-" + idGestor);
-
-        recibirThread.start();
-        resolverThread.start();
-        mantenimientoThread.start();
+        Thread caducarThread = new Thread(new CaducarPeticiones(), "Caducar-" + idGestor);
+        GestionRedistribucion gestionRedistribucion = new GestionRedistribucion();
+        tablaRedistribucion.alCompletar(gestionRedistribucion::viajeCompletado);
+        Thread redistribucionThread = new Thread(gestionRedistribucion, "Redistribucion-" + idGestor);
+
+        if (!recepcionDirecta) {
+            new Thread(new RecibirPeticionesTransporte(), "Recepcion-" + idGestor).start();
+        }
+        for (int i = 0; i < buzonPeticiones.getNumFragmentos(); i++) {
+            new Thread(new ResolverPeticionesTransporte(i), "Resolver-" + i + "-" + idGestor).start();
+        }
+        caducarThread.start();
+        if (Constantes.LINEA_REPARACION) {
+            redMantenimiento.iniciarReparacion();
+        }
+        if (Constantes.MANTENIMIENTO_POR_SONDEO) {
+            new Thread(gestionMantenimiento, "Mantenimiento-" + idGestor).start();
+        }
         redistribucionThread.start();
 
     }
@@ -112,11 +315,13 @@ public class GestorTransporteTask implements Runnable {
                     exmTransporte.release();
 
                     if (peticion != null) {
-                        peticionesPendientes.add(peticion);
-                        semPeticionesPendientes.release();
-
-                        eventosSistema.add(new EventoSistema(Constantes.TipoEvento.USUARIO_SOLICITUD_CONFIRMADA,
-                                id, peticion.getOrigen(), null, "Petición recibida"));
+                        if (buzonPeticiones.enviar(peticion)) {
+                            eventosSistema.add(new EventoSistema(Constantes.TipoEvento.USUARIO_SOLICITUD_CONFIRMADA,
+                                    id, peticion.getOrigen(), null, "Petición recibida"));
+                        } else {
+                            eventosSistema.add(new EventoSistema(Constantes.TipoEvento.USUARIO_SOLICITUD_RECHAZADA,
+                                    id, peticion.getOrigen(), null, "Petición descartada por sobrecarga"));
+                        }
                     }
                 } catch (InterruptedException e) {
                     Thread.currentThread().interrupt();
@@ -127,81 +332,343 @@ public class GestorTransporteTask implements Runnable {
 
 
 
-    /** Resolver peticiones de transporte**/
+    /**
+     * Resolver peticiones de transporte. Cada resolutor atiende las peticiones de su fragmento del buzón; la
+     * estación de destino puede ser de otro fragmento y se bloquea junto al origen con BloqueoEstaciones.
+     * Las peticiones recibidas se ordenan en el planificador por antigüedad, retrasando las que no pueden
+     * satisfacerse, y se resuelven por lotes en ese orden. Cada lote se agrupa por origen y destino para resolver
+     * cada grupo con un único bloqueo de sus estaciones.
+     **/
     private class ResolverPeticionesTransporte implements Runnable {
         private final String id;
-
-        public ResolverPeticionesTransporte() {
-            this.id = "Resolver - " + idGestor;
+        private final int fragmento;
+        private final List<Peticion> recibidas;
+        private final PlanificadorPeticiones planificador;
+        private final List<Peticion> lote;
+        private final Map<String, List<Peticion>> grupos;
+        private final List<Peticion> resueltas;
+        private final List<ReservaViaje> reservas;
+        private final List<Peticion> vencidas;
+
+        public ResolverPeticionesTransporte(int fragmento) {
+            this.id = "Resolver " + fragmento + " - " + idGestor;
+            this.fragmento = fragmento;
+            this.recibidas = new ArrayList<>(Constantes.TAM_VENTANA_PLANIFICACION);
+            this.planificador = new PlanificadorPeticiones(GestorTransporteTask.this::satisfacible,
+                    Constantes.PENALIZACION_INSATISFACIBLE);
+            this.lote = new ArrayList<>(Constantes.TAM_LOTE_PETICIONES);
+            this.grupos = new LinkedHashMap<>();
+            this.resueltas = new ArrayList<>(Constantes.TAM_LOTE_PETICIONES);
+            this.reservas = new ArrayList<>(Constantes.TAM_LOTE_PETICIONES);
+            this.vencidas = new ArrayList<>(Constantes.TAM_LOTE_PETICIONES);
         }
 
-
         @Override
         public void run() {
             while (!Thread.currentThread().isInterrupted()) {
                 try {
-                    semPeticionesPendientes.acquire();
-                    Peticion peticion = peticionesPendientes.poll();
+                    // Se recogen de una vez las peticiones que esperan en el fragmento, hasta llenar el planificador,
+                    // esperando a que lleguen solo si no queda ninguna planificada
+                    int huecos = Constantes.TAM_VENTANA_PLANIFICACION - planificador.size();
+                    if (planificador.isEmpty()) {
+                        buzonPeticiones.recoger(fragmento, recibidas, huecos);
+                    } else if (huecos > 0) {
+                        buzonPeticiones.recogerSinEsperar(fragmento, recibidas, huecos);
+                    }
+                    planificador.anadirTodas(recibidas);
+                    recibidas.clear();
 
-                    if (peticion != null) {
-                        // Se intenta resolver la petición comprobando la disponibilidad en origen y espacio en destino
-                        EstacionBicicletas estacionOrigen = bicicletasMap.get(peticion.getOrigen());
-                        EstacionBicicletas estacionDestino = bicicletasMap.get(peticion.getDestino());
-                        boolean sePuede = false;
-
-                        // Bloqueo de ambas estaciones
-                        estacionOrigen.semExm().acquire();
-                        estacionDestino.semExm().acquire();
-
-                        if (estacionOrigen.getDisponibles() > 0 && estacionDestino.hayEspacio()) {
-                            // Se simula la reserva. Se extrae una bicicleta para el viaje
-                            estacionOrigen.peticionAlquiler("Gestor");
-                            sePuede = true;
-                        }
-                        estacionDestino.semExm().release();
-                        estacionOrigen.semExm().release();
+                    // Se resuelve un lote con las peticiones más prioritarias
+                    planificador.extraer(lote, Constantes.TAM_LOTE_PETICIONES);
+                    long inicio = System.nanoTime();
 
-                        if (sePuede) {
-                            // Se libera el semáforo de la petición para continuar
-                            peticion.semResolucion().release();
-                            eventosSistema.add(new EventoSistema(Constantes.TipoEvento.USUARIO_SOLICITUD_CONFIRMADA,
-                                    id, peticion.getOrigen(), null, "Petición resuelta"));
-                        } else {
-                            // Si no se puede resolver, se vuelve a añadir a las pendientes
-                            peticionesPendientes.add(peticion);
-                            semPeticionesPendientes.release();
-                        }
+                    // Se agrupan por origen y destino manteniendo el orden de llegada
+                    for (Peticion peticion : lote) {
+                        grupos.computeIfAbsent(peticion.getOrigen() + "->" + peticion.getDestino(),
+                                clave -> new ArrayList<>()).add(peticion);
                     }
+
+                    for (List<Peticion> grupo : grupos.values()) {
+                        resolverGrupo(grupo);
+                    }
+
+                    long tiempo = System.nanoTime() - inicio;
+                    estadisticasLotes.registrarLote(lote.size(), tiempo);
+                    buzonPeticiones.ajustarLimite(TimeUnit.NANOSECONDS.toMicros(tiempo));
+                    eventosSistema.add(new EventoSistema(Constantes.TipoEvento.GESTOR_PROCESANDO_SOLICITUD,
+                            id, "Lote de " + lote.size() + " peticiones en " + grupos.size() + " grupos, " +
+                            TimeUnit.NANOSECONDS.toMicros(tiempo) + "µs"));
+                    lote.clear();
+                    grupos.clear();
                 } catch (InterruptedException e) {
                     Thread.currentThread().interrupt();
                 }
             }
         }
+
+        /**
+         * Resuelve un grupo de peticiones con el mismo origen y destino bloqueando sus estaciones una sola vez.
+         * En cuanto una reserva falla, el resto del grupo tampoco puede resolverse mientras se mantenga el
+         * bloqueo y se aparcan todas las que quedan.
+         */
+        private void resolverGrupo(List<Peticion> grupo) throws InterruptedException {
+            Peticion primera = grupo.get(0);
+            EstacionBicicletas estacionOrigen = bicicletasMap.get(primera.getOrigen());
+            EstacionBicicletas estacionDestino = bicicletasMap.get(primera.getDestino());
+
+            // Bloqueo de ambas estaciones en el orden global para evitar interbloqueos
+            BloqueoEstaciones bloqueo = new BloqueoEstaciones(estacionOrigen, estacionDestino);
+            bloqueo.bloquear();
+
+            boolean posible = true;
+            for (Peticion peticion : grupo) {
+                // Las peticiones canceladas se descartan y las vencidas caducan, tras liberar el bloqueo, sin
+                // intentar resolverlas
+                if (peticion.isTerminada() || peticion.isVencida()) {
+                    vencidas.add(peticion);
+                    continue;
+                }
+
+                // Se reservan a la vez la bicicleta en el origen y el espacio en el destino
+                Optional<ReservaViaje> reserva = posible ?
+                        estacionOrigen.reservarViaje(estacionDestino, peticion.getId()) : Optional.empty();
+
+                if (reserva.isPresent()) {
+                    if (peticion.reclamar()) {
+                        resueltas.add(peticion);
+                        reservas.add(reserva.get());
+                    } else {
+                        // La petición ha caducado o se ha cancelado mientras se reservaba
+                        estacionOrigen.cancelarViaje(estacionDestino, reserva.get());
+                    }
+                } else {
+                    // Si no se puede resolver se aparca, con las estaciones aún bloqueadas para no perder
+                    // el aviso del cambio que la haga posible
+                    posible = false;
+                    aparcarPeticion(peticion, estacionOrigen);
+                }
+            }
+            bloqueo.liberar();
+
+            // Se avisa a los solicitantes de las peticiones resueltas y vencidas fuera del bloqueo de las estaciones
+            for (Peticion peticion : vencidas) {
+                caducarPeticion(peticion, id);
+            }
+            for (int i = 0; i < resueltas.size(); i++) {
+                Peticion peticion = resueltas.get(i);
+                peticion.resolver(reservas.get(i));
+                eventosSistema.add(new EventoSistema(Constantes.TipoEvento.USUARIO_SOLICITUD_CONFIRMADA,
+                        id, peticion.getOrigen(), null, "Petición resuelta"));
+            }
+            vencidas.clear();
+            resueltas.clear();
+            reservas.clear();
+        }
     }
 
 
 
-    /**Subtarea: Gestión de mantenimiento*/
-    private class GestionMantenimiento implements Runnable {
+    /**
+     * Comprueba con los contadores publicados si una petición podría resolverse ahora: hay bicicletas en el
+     * origen y espacio en el destino. Es solo una estimación para planificarla, que se confirma al reservar el viaje
+     */
+    private boolean satisfacible(Peticion peticion) {
+        return tablaDisponibilidad.leer(peticion.getOrigen()).disponibles() > 0 &&
+                tablaDisponibilidad.leer(peticion.getDestino()).espacioLibre() > 0;
+    }
+
+    /**
+     * Agrupa las estaciones en zonas de TAM_ZONA_REDISTRIBUCION estaciones consecutivas por su identificador
+     * para la redistribución jerárquica. Cada zona de mantenimiento forma una zona propia
+     * @return la zona de cada estación
+     */
+    private Map<String, String> zonasRedistribucion(Map<String, EstacionBicicletas> bicicletasMap) {
+        Map<String, String> zonas = new HashMap<>();
+        List<String> ids = bicicletasMap.keySet().stream().sorted().toList();
+
+        for (int i = 0; i < ids.size(); i++) {
+            zonas.put(ids.get(i), "zona-" + i / Constantes.TAM_ZONA_REDISTRIBUCION);
+        }
+        redMantenimiento.getZonas().forEach(zona -> zonas.put(zona.getId(), zona.getId()));
+
+        return zonas;
+    }
+
+    /**
+     * Aparca una petición que no puede resolverse hasta que cambie la estación que lo impide: el origen
+     * si no tiene bicicletas disponibles o el destino si no tiene espacio. Deben estar bloqueadas las estaciones
+     * de la petición.
+     */
+    private void aparcarPeticion(Peticion peticion, EstacionBicicletas estacionOrigen) {
+        boolean aparcada;
+
+        if (estacionOrigen.getDisponibles() == 0) {
+            aparcada = esperandoBicicletas.aparcar(peticion.getOrigen(), peticion);
+        } else {
+            aparcada = esperandoEspacio.aparcar(peticion.getDestino(), peticion);
+        }
+
+        // La petición aparcada sigue ocupando su plaza en el buzón para que el total de peticiones esté limitado
+        if (aparcada) {
+            buzonPeticiones.retenerPlaza(peticion);
+        }
+
+        // Solo las peticiones aparcadas pueden esperar mucho, así que solo se vigila el plazo de estas
+        if (peticion.getPlazo().isPresent() && peticionesVigiladas.add(peticion)) {
+            plazosPeticiones.add(new PlazoPeticion(peticion));
+        }
+    }
+
+    /**
+     * Devuelve a las peticiones pendientes todas las peticiones aparcadas para una estación. Las peticiones ya
+     * terminadas se descartan liberando su plaza en el buzón
+     */
+    private void reactivarPeticiones(PeticionesAparcadas aparcadas, String idEstacion) {
+        for (Peticion peticion : aparcadas.reactivar(idEstacion)) {
+            if (peticion.isTerminada()) {
+                buzonPeticiones.liberarPlaza(peticion);
+            } else {
+                buzonPeticiones.reenviar(peticion);
+            }
+        }
+    }
+
+    /**
+     * Caduca una petición que no se ha resuelto en su plazo si nadie la ha terminado antes, avisando al
+     * solicitante del rechazo
+     */
+    private void caducarPeticion(Peticion peticion, String idTarea) {
+        if (peticion.reclamar()) {
+            peticion.caducar();
+            eventosSistema.add(new EventoSistema(Constantes.TipoEvento.USUARIO_SOLICITUD_RECHAZADA,
+                    idTarea, peticion.getOrigen(), null, "Petición vencida sin resolver"));
+        }
+    }
+
+    /** Plazo de una petición aparcada para ordenarla por vencimiento en la cola de plazos */
+    private static class PlazoPeticion implements Delayed {
+        private final Peticion peticion;
+        private final Instant plazo;
+
+        public PlazoPeticion(Peticion peticion) {
+            this.peticion = peticion;
+            this.plazo = peticion.getPlazo().orElseThrow();
+        }
+
+        @Override
+        public long getDelay(TimeUnit unidad) {
+            return unidad.convert(Duration.between(Instant.now(), plazo));
+        }
+
+        @Override
+        public int compareTo(Delayed otro) {
+            return (otro instanceof PlazoPeticion plazoPeticion) ? plazo.compareTo(plazoPeticion.plazo) :
+                    Long.compare(getDelay(TimeUnit.NANOSECONDS), otro.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
+
+    /**
+     * Subtarea: caducar las peticiones aparcadas. Espera al vencimiento más próximo en la cola de plazos,
+     * sin recorrer las peticiones aparcadas, y retira la petición de la estación donde espera. Así las
+     * peticiones caducadas no se acumulan en una estación que no cambia
+     */
+    private class CaducarPeticiones implements Runnable {
+        private final String id;
+
+        public CaducarPeticiones() {
+            this.id = "Caducar - " + idGestor;
+        }
+
+        @Override
+        public void run() {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    Peticion peticion = plazosPeticiones.take().peticion;
+                    peticionesVigiladas.remove(peticion);
+                    if (esperandoBicicletas.retirar(peticion) || esperandoEspacio.retirar(peticion)) {
+                        buzonPeticiones.liberarPlaza(peticion);
+                    }
+
+                    caducarPeticion(peticion, id);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /** Reactiva las peticiones aparcadas cuando cambia la estación por la que esperan */
+    private class AvisoEstaciones implements ObservadorEstacion {
+
+        @Override
+        public void disponibilidadAumentada(EstacionBicicletas estacion) {
+            reactivarPeticiones(esperandoBicicletas, estacion.getId());
+        }
+
+        @Override
+        public void espacioLiberado(EstacionBicicletas estacion) {
+            reactivarPeticiones(esperandoEspacio, estacion.getId());
+        }
+    }
+
+
+
+    /**
+     * Subtarea: Gestión de mantenimiento. Atiende los avisos de las estaciones cuando sus bicicletas fuera de
+     * servicio superan el umbral y avisa al técnico en ese momento. Con MANTENIMIENTO_POR_SONDEO se ejecuta
+     * además como hilo que revisa todas las estaciones cada segundo
+     */
+    private class GestionMantenimiento implements Runnable, ObservadorEstacion {
         private final String idMantenimiento;
 
         public GestionMantenimiento() {
             this.idMantenimiento = "GestorMantenimiento - " + idGestor;
         }
 
+        /**
+         * Se registra para recibir los avisos de mantenimiento de la estación. Si ya ha superado el umbral
+         * no habrá aviso, así que se avisa al técnico directamente. El registro y la comprobación se hacen con
+         * la estación bloqueada para no avisar dos veces de un cruce que ocurra entre ambos
+         */
+        private void vigilar(EstacionBicicletas estacion) {
+            if (estacion.registrarObservadorMantenimiento(this)) {
+                avisarTecnico(estacion);
+            }
+        }
+
+        @Override
+        public void mantenimientoRequerido(EstacionBicicletas estacion) {
+            avisarTecnico(estacion);
+        }
+
+        /**
+         * Con técnicos compartidos entrega el trabajo al despacho, que no lo repite si la estación ya está en
+         * espera; en otro caso avisa al técnico liberando el semáforo de mantenimiento de la estación
+         */
+        private void avisarTecnico(EstacionBicicletas estacion) {
+            boolean avisado = true;
+
+            if (despachoMantenimiento != null) {
+                avisado = despachoMantenimiento.asignar(estacion);
+            } else {
+                estacion.semMantenimiento().release();
+            }
+
+            if (avisado) {
+                eventosSistema.add(new EventoSistema(Constantes.TipoEvento.ESTACION_MANTENIMIENTO_REQUERIDO,
+                        idMantenimiento, estacion.getId(), null, "Mantenimiento requerido"));
+            }
+        }
+
         @Override
         public void run() {
             while (!Thread.currentThread().isInterrupted()) {
                 try {
+                    // Las consultas leen los contadores publicados y no bloquean las estaciones
                     for (EstacionBicicletas estacion : bicicletasMap.values()) {
-                        estacion.semExm().acquire();
-                        if (estacion.avisarMantenimiento()) {
-                            // Avisar al técnico (se libera el semáforo correspondiente de la estación)
-                            estacion.semMantenimiento().release();
-                            eventosSistema.add(new EventoSistema(Constantes.TipoEvento.ESTACION_MANTENIMIENTO_REQUERIDO,
-                                    idMantenimiento, estacion.getId(), null, "Mantenimiento requerido"));
+                        if (tablaDisponibilidad.leer(estacion.getId()).avisoMantenimiento()) {
+                            avisarTecnico(estacion);
                         }
-                        estacion.semExm().release();
                     }
                     TimeUnit.SECONDS.sleep(Constantes.UNO);
 
@@ -214,7 +681,12 @@ public class GestorTransporteTask implements Runnable {
 
 
 
-    /**Subtarea: Gestión de redistribución */
+    /**
+     * Subtarea: Gestión de redistribución. En cada ciclo se calcula el balance de las estaciones y de las zonas
+     * de mantenimiento que no forman parte de otro viaje, se obtiene el plan de
+     * redistribución de coste mínimo y se solicitan sus movimientos hasta tener el máximo de viajes, sin esperar
+     * a que los camiones los resuelvan
+     */
     private class GestionRedistribucion implements Runnable {
         private final String idRedistribucion;
 
@@ -226,62 +698,8 @@ public class GestorTransporteTask implements Runnable {
         public void run() {
             while (!Thread.currentThread().isInterrupted()) {
                 try {
-                    int numBicicletas = 0;
-                    String origen = null;
-                    String destino = null;
-
-                    // Comprobar en la zona de mantenimiento
-                    zonaMantenimiento.semExm().acquire();
-
-                    //@TODO OJO AL PIOJO
-                    //Si hay suficientes bicicletas para llamar a mantenimiento
-                    if (zonaMantenimiento.bicicletasDepositadas() > Constantes.MIN_MANTENIMIENTO) {
-                        numBicicletas = zonaMantenimiento.bicicletasDepositadas();
-                        origen = zonaMantenimiento.getId();
-                    }
-                    zonaMantenimiento.semExm().release();
-
-                    //buscamos un origen entre las estaciones que tengan mas del minimo de bicicletas
-                    if (numBicicletas < Constantes.MIN_MANTENIMIENTO) {
-                        for (EstacionBicicletas estacion : bicicletasMap.values()) {
-                            estacion.semExm().acquire();
-                            if (estacion.getDisponibles() > Constantes.CAPACIDAD_MINIMA) {
-                                numBicicletas = estacion.getDisponibles();
-                                origen = estacion.getId();
-                                estacion.semExm().release();
-                                break;
-                            }
-                            estacion.semExm().release();
-                        }
-                    }
-
-                    //@TODO AL PIQUE ENRRIQUE
-                    // Buscar una estación destino con pocas bicicletas (menos del minimo)
-                    for (EstacionBicicletas estacion : bicicletasMap.values()) {
-                        estacion.semExm().acquire();
-                        if (estacion.getDisponibles() < Constantes.CAPACIDAD_MINIMA) {
-                            destino = estacion.getId();
-                            estacion.semExm().release();
-                            break;
-                        }
-                        estacion.semExm().release();
-                    }
-
-                    //hacemos la peticion
-                    if (origen != null && destino != null && numBicicletas > 0) {
-                        // Crear la petición de redistribución
-                        Peticion peticion = new Peticion("GestorRedistribucion", origen, destino, numBicicletas, semGestor);
-                        exmRedistribucion.acquire();
-                        peticionesRedistribucion.add(peticion);
-                        exmRedistribucion.release();
-
-                        // Avisar a un camión
-                        semCamiones.release();
-
-                        // Esperar a que el camión resuelva la petición
-                        semGestor.acquire();
-                        eventosSistema.add(new EventoSistema(Constantes.TipoEvento.GESTOR_REDISTRIBUYENDO_BICICLETAS,
-                                idRedistribucion, origen, destino, "Redistribución completada"));
+                    if (!tablaRedistribucion.isCompleta()) {
+                        solicitarViajes(planificadorRedistribucion.planificar(calcularBalances()));
                     }
                     TimeUnit.SECONDS.sleep(Constantes.UNO);
 
@@ -290,5 +708,79 @@ public class GestorTransporteTask implements Runnable {
                 }
             }
         }
+
+        /**
+         * Balance de las estaciones libres: a las que superan CAPACIDAD_MINIMA les sobran las bicicletas por
+         * encima de ese mínimo y a las que no lo alcanzan les faltan hasta llegar a él, sin superar sus huecos.
+         * Con la redistribución jerárquica se consideran todas las estaciones, leídas sin bloqueos de la tabla de
+         * disponibilidad; el plan plano solo considera las CANDIDATOS_REDISTRIBUCION más vacías y más llenas del
+         * índice para acotar su coste. Las bicicletas de cada zona de mantenimiento sobran todas cuando tiene
+         * más de MIN_MANTENIMIENTO
+         */
+        private Map<String, Integer> calcularBalances() {
+            Map<String, Integer> balances = new HashMap<>();
+
+            // Comprobar en cada zona de mantenimiento, sin su exclusión mutua
+            for (ZonaMantenimiento zonaMantenimiento : redMantenimiento.getZonas()) {
+                int depositadas = zonaMantenimiento.bicicletasDepositadas();
+
+                if (depositadas > Constantes.MIN_MANTENIMIENTO &&
+                        !tablaRedistribucion.estacionOcupada(zonaMantenimiento.getId())) {
+                    balances.put(zonaMantenimiento.getId(), depositadas);
+                }
+            }
+
+            // Los valores son los publicados, sin consultar las estaciones; el camión ajusta el viaje a lo que encuentre
+            if (Constantes.REDISTRIBUCION_JERARQUICA) {
+                tablaDisponibilidad.instantanea().forEach((idEstacion, estado) ->
+                        anadirBalance(balances, idEstacion, estado.disponibles(), estado.espacioLibre()));
+            } else {
+                Set<String> candidatas = new LinkedHashSet<>(indiceEstaciones.masVacias(Constantes.CANDIDATOS_REDISTRIBUCION));
+                candidatas.addAll(indiceEstaciones.masLlenas(Constantes.CANDIDATOS_REDISTRIBUCION));
+                for (String idEstacion : candidatas) {
+                    anadirBalance(balances, idEstacion, indiceEstaciones.disponibles(idEstacion),
+                            indiceEstaciones.espacio(idEstacion));
+                }
+            }
+
+            return balances;
+        }
+
+        private void anadirBalance(Map<String, Integer> balances, String idEstacion, int disponibles, int espacio) {
+            if (!tablaRedistribucion.estacionOcupada(idEstacion)) {
+                int balance = (disponibles > Constantes.CAPACIDAD_MINIMA) ? disponibles - Constantes.CAPACIDAD_MINIMA :
+                        -Math.min(Constantes.CAPACIDAD_MINIMA - disponibles, espacio);
+                if (balance != 0) {
+                    balances.put(idEstacion, balance);
+                }
+            }
+        }
+
+        /**
+         * Solicita los movimientos del plan hasta tener el máximo de viajes. Los movimientos que comparten
+         * estación con un viaje ya solicitado se descartan y se volverán a planificar en el siguiente ciclo
+         */
+        private void solicitarViajes(List<PlanificadorRedistribucion.Movimiento> plan) {
+            for (PlanificadorRedistribucion.Movimiento movimiento : plan) {
+                if (!tablaRedistribucion.isCompleta() && tablaRedistribucion.solicitar(movimiento.idOrigen(),
+                        movimiento.idDestino(), movimiento.numBicicletas())) {
+                    semCamiones.release();
+                    eventosSistema.add(new EventoSistema(Constantes.TipoEvento.GESTOR_SOLICITANDO_CAMION,
+                            idRedistribucion, movimiento.idOrigen(), movimiento.idDestino(),
+                            "Redistribución de " + movimiento.numBicicletas() + " bicicletas"));
+                }
+            }
+        }
+
+        /**
+         * Registra la redistribución completada cuando un camión resuelve un viaje, o cancelada si el camión
+         * no ha podido completarlo
+         */
+        private void viajeCompletado(Peticion peticion) {
+            boolean completada = peticion.getResultado().filter(Constantes.ResultadoPeticion::isResuelta).isPresent();
+            eventosSistema.add(new EventoSistema(Constantes.TipoEvento.GESTOR_REDISTRIBUYENDO_BICICLETAS,
+                    idRedistribucion, peticion.getOrigen(), peticion.getDestino(),
+                    completada ? "Redistribución completada" : "Redistribución cancelada"));
+        }
     }
 }
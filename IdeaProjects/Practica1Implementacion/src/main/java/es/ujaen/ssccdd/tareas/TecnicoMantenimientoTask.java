@@ -2,10 +2,13 @@ package es.ujaen.ssccdd.tareas;
 
 import es.ujaen.ssccdd.Constantes;
 import es.ujaen.ssccdd.datos.Bicicleta;
+import es.ujaen.ssccdd.datos.DespachoMantenimiento;
 import es.ujaen.ssccdd.datos.EstacionBicicletas;
 import es.ujaen.ssccdd.datos.EventoSistema;
+import es.ujaen.ssccdd.datos.RedMantenimiento;
 import es.ujaen.ssccdd.datos.ZonaMantenimiento;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Semaphore;
 import java.util.Queue;
@@ -14,15 +17,53 @@ import java.util.concurrent.TimeUnit;
 public class TecnicoMantenimientoTask implements Runnable {
     private final String id;                                // Identificador único del técnico de mantenimiento
     private final EstacionBicicletas estacionAisgnada;        // Estación de bicicletas a su cargo
-    private final ZonaMantenimiento zonaMantenimiento;        // Zona donde deposita las bicicletas una vez reparadas
+    private final DespachoMantenimiento despacho;             // Despacho que reparte los trabajos entre los técnicos
+    private final int numTecnico;                             // Número del técnico en el despacho
+    private final RedMantenimiento redMantenimiento;          // Zonas donde deposita las bicicletas una vez reparadas
     private final Queue<EventoSistema> eventosSistema;        // Para almacenar los eventos del sistema
 
     public TecnicoMantenimientoTask(EstacionBicicletas estacionAisgnada, ZonaMantenimiento zonaMantenimiento,
                                     Queue<EventoSistema> eventosSistema) {
+        this(estacionAisgnada, new RedMantenimiento(List.of(zonaMantenimiento)), eventosSistema);
+    }
+
+    /**
+     * Constructor para un técnico que entrega las bicicletas en la zona de mantenimiento más cercana a su estación
+     */
+    public TecnicoMantenimientoTask(EstacionBicicletas estacionAisgnada, RedMantenimiento redMantenimiento,
+                                    Queue<EventoSistema> eventosSistema) {
 
         this.id = "Técnico Mantenimiento - " + estacionAisgnada.getId();
         this.estacionAisgnada = estacionAisgnada;
-        this.zonaMantenimiento = zonaMantenimiento;
+        this.despacho = null;
+        this.numTecnico = -1;
+        this.redMantenimiento = redMantenimiento;
+        this.eventosSistema = eventosSistema;
+    }
+
+    /**
+     * Constructor para un técnico del conjunto compartido, que atiende cualquier estación según le asigne
+     * el despacho de mantenimiento
+     */
+    public TecnicoMantenimientoTask(int numTecnico, DespachoMantenimiento despacho, ZonaMantenimiento zonaMantenimiento,
+                                    Queue<EventoSistema> eventosSistema) {
+        this(numTecnico, despacho, new RedMantenimiento(List.of(zonaMantenimiento)), eventosSistema);
+    }
+
+    /**
+     * Constructor para un técnico del conjunto compartido que entrega las bicicletas en la zona de mantenimiento
+     * más cercana a cada estación que atiende
+     */
+    public TecnicoMantenimientoTask(int numTecnico, DespachoMantenimiento despacho, RedMantenimiento redMantenimiento,
+                                    Queue<EventoSistema> eventosSistema) {
+        if (despacho == null || numTecnico < 0 || numTecnico >= despacho.getNumTecnicos())
+            throw new IllegalArgumentException("El técnico no corresponde al despacho de mantenimiento");
+
+        this.id = "Técnico Mantenimiento - " + numTecnico;
+        this.estacionAisgnada = null;
+        this.despacho = despacho;
+        this.numTecnico = numTecnico;
+        this.redMantenimiento = redMantenimiento;
         this.eventosSistema = eventosSistema;
     }
 
@@ -34,51 +75,103 @@ public class TecnicoMantenimientoTask implements Runnable {
      * recoger bicicletas que necesiten mantenimiento
      */
     public void recogerBicicletas() {
+        recogerBicicletas(estacionAisgnada);
+    }
+
+    /**
+     * recoger bicicletas que necesiten mantenimiento en una estación
+     * @param estacion la estación donde se recogen las bicicletas
+     */
+    public void recogerBicicletas(EstacionBicicletas estacion) {
         // La acción de recoger bicicletas se realiza cuando el semáforo de mantenimiento de la estación se libera.
         eventosSistema.add(new EventoSistema(Constantes.TipoEvento.TECNICO_RECOGIENDO_BICICLETAS,
-                id, estacionAisgnada.getId(), null, "Recogiendo bicicletas para mantenimiento"));
+                id, estacion.getId(), null, "Recogiendo bicicletas para mantenimiento"));
     }
 
     /**
-     * Este método simula la entrega de bicicletas reparadas en la zona de mantenimiento.
+     * Este método simula la entrega de bicicletas reparadas en una zona de mantenimiento.
+     * @param zonaMantenimiento la zona donde se entregan las bicicletas
      */
-    public void entregarBicicletas() {
+    public void entregarBicicletas(ZonaMantenimiento zonaMantenimiento) {
         eventosSistema.add(new EventoSistema(Constantes.TipoEvento.TECNICO_ENTREGANDO_BICICLETAS,
                 id, zonaMantenimiento.getId(), null, "Entregando bicicletas reparadas"));
     }
 
+    /**
+     * Espera el siguiente trabajo: la señal de su estación o el trabajo que le asigna el despacho
+     * @return la estación que debe atender
+     */
+    private EstacionBicicletas esperarTrabajo() throws InterruptedException {
+        EstacionBicicletas estacion;
+
+        if (despacho != null) {
+            estacion = despacho.siguiente(numTecnico);
+        } else {
+            // Esperar la señal para recoger bicicletas (la estación libera su semáforo de mantenimiento)
+            estacionAisgnada.semMantenimiento().acquire();
+            estacion = estacionAisgnada;
+        }
+
+        return estacion;
+    }
+
     /**
      * Los técnicos de mantenimiento estarán a la espera de recibir órdenes de mantenimiento por parte del gestor.
-     * Se dirigirán a la estación de bicicletas asignada para recogerlas, simularán la reparación y entregarán las bicicletas en la zona de mantenimiento.
+     * Se dirigirán a la estación de bicicletas asignada para recogerlas, simularán la reparación y entregarán las bicicletas en la zona de mantenimiento más cercana.
+     * Los técnicos del conjunto compartido atienden la estación que les asigne el despacho.
      */
     @Override
     public void run() {
         while (!Thread.currentThread().isInterrupted()) {
             try {
-                // Esperar la señal para recoger bicicletas (la estación libera su semáforo de mantenimiento)
-                estacionAisgnada.semMantenimiento().acquire();
-                recogerBicicletas();
-
-                // Bloquear la estación para recoger las bicicletas que necesitan mantenimiento
-                estacionAisgnada.semExm().acquire();
-                List<Bicicleta> bicicletasParaMantenimiento = estacionAisgnada.mantenimientoBicicletas();
-                estacionAisgnada.semExm().release();
-
-                // Simular tiempo de reparación
-                TimeUnit.SECONDS.sleep(Constantes.TIEMPO_HASTA_MANTENIMIENTO);
+                EstacionBicicletas estacion = esperarTrabajo();
 
-                // Depositar bicicletas reparadas en la zona de mantenimiento
-                zonaMantenimiento.semExm().acquire();
-                zonaMantenimiento.dejarBicicletas(bicicletasParaMantenimiento);
-                zonaMantenimiento.semExm().release();
-
-                entregarBicicletas();
-                eventosSistema.add(new EventoSistema(Constantes.TipoEvento.TECNICO_REPARANDO_BICICLETAS,
-                        id, estacionAisgnada.getId(), null, "Bicicletas reparadas"));
+                // El trabajo deja de contar como carga del técnico aunque se interrumpa a medias
+                try {
+                    atenderEstacion(estacion);
+                } finally {
+                    if (despacho != null) {
+                        despacho.terminar(numTecnico);
+                    }
+                }
 
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
             }
         }
     }
+
+    /**
+     * Recoge las bicicletas que necesitan mantenimiento de la estación, las repara y las entrega en la zona de
+     * mantenimiento más cercana
+     */
+    private void atenderEstacion(EstacionBicicletas estacion) throws InterruptedException {
+        recogerBicicletas(estacion);
+
+        // Bloquear la estación para recoger las bicicletas que necesitan mantenimiento. La lista
+        // devuelta no es modificable y la zona vacía la lista que recibe
+        long sello = estacion.bloquearEscritura();
+        List<Bicicleta> bicicletasParaMantenimiento = new ArrayList<>(estacion.mantenimientoBicicletas());
+        estacion.liberarEscritura(sello);
+
+        // Las bicicletas se entregan en la zona más cercana a la estación
+        ZonaMantenimiento zonaMantenimiento = redMantenimiento.masCercana(estacion.getId());
+        if (Constantes.LINEA_REPARACION) {
+            // La línea de reparación de la zona se encarga de repararlas y dejarlas listas
+            zonaMantenimiento.repararBicicletas(bicicletasParaMantenimiento);
+            entregarBicicletas(zonaMantenimiento);
+        } else {
+            // Simular tiempo de reparación
+            TimeUnit.SECONDS.sleep(Constantes.TIEMPO_HASTA_MANTENIMIENTO);
+
+            // Depositar bicicletas reparadas en la zona de mantenimiento
+            zonaMantenimiento.semExm().acquire();
+            zonaMantenimiento.dejarBicicletas(bicicletasParaMantenimiento);
+            zonaMantenimiento.semExm().release();
+
+            entregarBicicletas(zonaMantenimiento);
+            eventosSistema.add(new EventoSistema(Constantes.TipoEvento.TECNICO_REPARANDO_BICICLETAS,
+                    id, estacion.getId(), null, "Bicicletas reparadas"));
+        }
+    }
 }
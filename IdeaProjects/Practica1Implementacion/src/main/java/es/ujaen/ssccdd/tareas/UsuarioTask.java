@@ -2,11 +2,14 @@ package es.ujaen.ssccdd.tareas;
 
 import es.ujaen.ssccdd.Constantes;
 import es.ujaen.ssccdd.datos.Bicicleta;
+import es.ujaen.ssccdd.datos.BuzonPeticiones;
 import es.ujaen.ssccdd.datos.EstacionBicicletas;
 import es.ujaen.ssccdd.datos.EventoSistema;
 import es.ujaen.ssccdd.datos.Peticion;
 import es.ujaen.ssccdd.datos.PuntoRecarga;
+import es.ujaen.ssccdd.datos.ReservaViaje;
 
+import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.Semaphore;
 
@@ -18,6 +21,7 @@ public class UsuarioTask implements Runnable {
     private final Queue<Peticion> peticionesTransporte;                 // Buffer para gestionar las peticiones de transporte
     private final Semaphore exmTransporte;                              // Semáforo para garantizar el acceso a las peticiones de transporte
     private final Semaphore semGestorTransporte;                        // Semáforo para sincronizar las peticiones de transporte
+    private final BuzonPeticiones buzonPeticiones;                      // Buzón de los resolutores para la recepción directa
     private final Queue<EventoSistema> eventosSistema;                  // Para almacenar los eventos del sistema
     // Convertir claves a una lista
     private List<String> claves;
@@ -25,6 +29,9 @@ public class UsuarioTask implements Runnable {
     // Campo auxiliar para almacenar la bicicleta recogida
     private Bicicleta bicicleta;
 
+    // Reserva del viaje realizada por el gestor al resolver la petición
+    private ReservaViaje reserva;
+
     public UsuarioTask(String nombre, Map<String, EstacionBicicletas> estacionesMap, PuntoRecarga puntoRecarga,
                        Queue<Peticion> peticionesTransporte, Semaphore exmTransporte, Semaphore semGestorTransporte,
                        Queue<EventoSistema> eventosSistema) {
@@ -36,6 +43,27 @@ public class UsuarioTask implements Runnable {
         this.peticionesTransporte = peticionesTransporte;
         this.exmTransporte = exmTransporte;
         this.semGestorTransporte = semGestorTransporte;
+        this.buzonPeticiones = null;
+        this.eventosSistema = eventosSistema;
+
+        claves = new ArrayList<>(estacionesMap.keySet());
+    }
+
+    /**
+     * Constructor para la recepción directa: las peticiones de transporte se depositan en el buzón de los
+     * resolutores del gestor sin pasar por el buffer de peticiones
+     */
+    public UsuarioTask(String nombre, Map<String, EstacionBicicletas> estacionesMap, PuntoRecarga puntoRecarga,
+                       BuzonPeticiones buzonPeticiones, Queue<EventoSistema> eventosSistema) {
+
+        this.nombre = (nombre == null || nombre.trim().isEmpty() ? "Usuario-" + UUID.randomUUID() : nombre);
+        this.semUsuario = new Semaphore(0);
+        this.estacionesMap = estacionesMap;
+        this.puntoRecarga = puntoRecarga;
+        this.peticionesTransporte = null;
+        this.exmTransporte = null;
+        this.semGestorTransporte = null;
+        this.buzonPeticiones = buzonPeticiones;
         this.eventosSistema = eventosSistema;
 
         claves = new ArrayList<>(estacionesMap.keySet());
@@ -56,35 +84,54 @@ public class UsuarioTask implements Runnable {
 
     /**
      * Realiza la petición de transporte: se crea una petición con la estación de origen y destino,
-     * se añade al buffer compartido y se notifica al gestor. Luego espera a que el gestor resuelva la petición.
+     * se añade al buffer compartido y se notifica al gestor, o se deposita directamente en el buzón de los
+     * resolutores. Luego espera a que el gestor resuelva la petición o a que venza su plazo.
+     * @return true si el gestor ha resuelto la petición, false si ha vencido o ha sido rechazada
      */
-    public void realizarPeticionTransporte(EstacionBicicletas estacion1, EstacionBicicletas estacion2) throws InterruptedException {
-        Peticion peticion = new Peticion(nuevo_ID(), estacion1.getId(), estacion2.getId(), Constantes.UNO, semUsuario);
-        exmTransporte.acquire();
-        peticionesTransporte.add(peticion);
-        exmTransporte.release();
-        semGestorTransporte.release();
+    public boolean realizarPeticionTransporte(EstacionBicicletas estacion1, EstacionBicicletas estacion2) throws InterruptedException {
+        Peticion peticion = new Peticion(nuevo_ID(), estacion1.getId(), estacion2.getId(), Constantes.UNO, semUsuario,
+                Constantes.sumarSegundos.apply(Instant.now(), Constantes.PLAZO_PETICION));
+        if (buzonPeticiones != null) {
+            buzonPeticiones.enviar(peticion);
+        } else {
+            exmTransporte.acquire();
+            peticionesTransporte.add(peticion);
+            exmTransporte.release();
+            semGestorTransporte.release();
+        }
         // Esperar a que el gestor resuelva la petición (liberando semUsuario)
         semUsuario.acquire();
+        reserva = peticion.getReserva().orElse(null);
+
+        return peticion.getResultado().map(Constantes.ResultadoPeticion::isResuelta).orElse(false);
     }
 
     /**
-     * Inicia el viaje recogiendo la bicicleta en la estación de origen.
+     * Inicia el viaje recogiendo la bicicleta en la estación de origen. Si el gestor ha reservado el viaje
+     * se recoge la bicicleta reservada, en otro caso se solicita el alquiler en la estación.
      */
     public void iniciarViaje(EstacionBicicletas origen) throws InterruptedException {
-        origen.semExm().acquire();
-        // solicita el alquiler usando el nombre del usuario, guardo la bicicleta obtenida
-        bicicleta = origen.peticionAlquiler(nombre).orElse(null);  //el orElse es para el caso en el que no tenga nada que devolver... es un optional
-        origen.semExm().release();
+        long sello = origen.bloquearEscritura();
+        if (reserva != null) {
+            bicicleta = origen.recogerBicicleta(reserva.idBicicleta()).orElse(null);
+        } else {
+            // solicita el alquiler usando el nombre del usuario, guardo la bicicleta obtenida
+            bicicleta = origen.peticionAlquiler(nombre).orElse(null);  //el orElse es para el caso en el que no tenga nada que devolver... es un optional
+        }
+        origen.liberarEscritura(sello);
     }
 
     /**
-     * Completa el viaje entregando la bicicleta en la estación de destino.
+     * Completa el viaje entregando la bicicleta en la estación de destino. Sin reserva previa hay que
+     * reservar el espacio al llegar y la entrega puede fallar si la estación está llena.
      */
     public void completarViaje(EstacionBicicletas destino) throws InterruptedException {
-        destino.semExm().acquire();
+        long sello = destino.bloquearEscritura();
+        if (reserva == null) {
+            destino.peticionTransito(new Bicicleta(bicicleta));
+        }
         boolean entregado = destino.entregarBicicleta(bicicleta);
-        destino.semExm().release();
+        destino.liberarEscritura(sello);
         if (!entregado) {
             eventosSistema.add(new EventoSistema(Constantes.TipoEvento.ESTACION_SIN_ESPACIO,
                     nombre, destino.getId(), bicicleta.getId(), "No se pudo entregar la bicicleta"));
@@ -134,7 +181,11 @@ public class UsuarioTask implements Runnable {
 
         try {
             // 1. Realizar la petición de transporte
-            realizarPeticionTransporte(estacionOrigen, estacionDestino);
+            if (!realizarPeticionTransporte(estacionOrigen, estacionDestino)) {
+                eventosSistema.add(new EventoSistema(Constantes.TipoEvento.USUARIO_SOLICITUD_RECHAZADA,
+                        nombre, estacionOrigen.getId(), "Solicitud de transporte rechazada"));
+                return;
+            }
             eventosSistema.add(new EventoSistema(Constantes.TipoEvento.USUARIO_SOLICITUD_TRANSPORTE,
                     nombre, estacionOrigen.getId(), "Solicitud de transporte hacia " + estacionDestino.getId()));
 
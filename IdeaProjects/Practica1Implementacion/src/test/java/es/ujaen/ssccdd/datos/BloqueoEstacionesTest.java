@@ -0,0 +1,143 @@
+package es.ujaen.ssccdd.datos;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static es.ujaen.ssccdd.Constantes.TipoBicicletas.NORMAL;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Tests para la clase BloqueoEstaciones")
+class BloqueoEstacionesTest {
+
+    private EstacionBicicletas estacionA, estacionB;
+
+    @BeforeEach
+    void setUp() {
+        estacionA = new EstacionBicicletas("A", 10, new Bicicleta("BA", NORMAL));
+        estacionB = new EstacionBicicletas("B", 10, new Bicicleta("BB", NORMAL));
+    }
+
+    @Test
+    @DisplayName("Bloquea y libera todas las estaciones")
+    void testBloquearLiberar() throws InterruptedException {
+        BloqueoEstaciones bloqueo = new BloqueoEstaciones(estacionB, estacionA);
+        bloqueo.bloquear();
+
+        assertAll("Las estaciones deben quedar bloqueadas",
+                () -> assertTrue(bloqueo.isBloqueado(), "El bloqueo debe estar activo"),
+                () -> assertEquals(0, estacionA.intentarBloquearEscritura(), "A no debe poder bloquearse"),
+                () -> assertEquals(0, estacionB.intentarBloquearEscritura(), "B no debe poder bloquearse"),
+                () -> assertThrows(IllegalStateException.class, bloqueo::intentarBloquear,
+                        "No se puede bloquear dos veces")
+        );
+
+        bloqueo.liberar();
+        long sello = estacionA.intentarBloquearEscritura();
+
+        assertAll("Las estaciones deben quedar libres",
+                () -> assertFalse(bloqueo.isBloqueado(), "El bloqueo no debe estar activo"),
+                () -> assertNotEquals(0, sello, "A debe poder bloquearse"),
+                () -> assertThrows(IllegalStateException.class, bloqueo::liberar,
+                        "No se puede liberar un bloqueo no activo")
+        );
+        estacionA.liberarEscritura(sello);
+    }
+
+    @Test
+    @DisplayName("No retiene ninguna estación si alguna está ocupada")
+    void testEstacionOcupada() {
+        long selloB = estacionB.intentarBloquearEscritura();
+        BloqueoEstaciones bloqueo = new BloqueoEstaciones(estacionA, estacionB);
+
+        boolean resultado = bloqueo.intentarBloquear();
+        long selloA = estacionA.intentarBloquearEscritura();
+
+        assertAll("El intento de bloqueo debe fallar sin retener estaciones",
+                () -> assertFalse(resultado, "No debe poder bloquear las estaciones"),
+                () -> assertFalse(bloqueo.isBloqueado(), "El bloqueo no debe estar activo"),
+                () -> assertNotEquals(0, selloA, "A debe haber quedado libre")
+        );
+
+        estacionA.liberarEscritura(selloA);
+        estacionB.liberarEscritura(selloB);
+    }
+
+    @Test
+    @DisplayName("Una estación repetida solo se bloquea una vez")
+    void testEstacionRepetida() throws InterruptedException {
+        BloqueoEstaciones bloqueo = new BloqueoEstaciones(estacionA, estacionA);
+        bloqueo.bloquear();
+        bloqueo.liberar();
+
+        long sello = estacionA.intentarBloquearEscritura();
+        assertNotEquals(0, sello, "La estación debe quedar libre");
+        estacionA.liberarEscritura(sello);
+
+        assertAll("Los argumentos deben validarse",
+                () -> assertThrows(IllegalArgumentException.class, BloqueoEstaciones::new),
+                () -> assertThrows(IllegalArgumentException.class, () -> new BloqueoEstaciones(estacionA, null))
+        );
+    }
+
+    @Test
+    @DisplayName("El bloqueo ininterrumpible espera a las estaciones y conserva la interrupción")
+    void testBloquearIninterrumpible() throws InterruptedException {
+        long selloA = estacionA.intentarBloquearEscritura();
+        boolean[] resultado = new boolean[2];
+        Thread hilo = new Thread(() -> {
+            BloqueoEstaciones bloqueo = new BloqueoEstaciones(estacionA, estacionB);
+            Thread.currentThread().interrupt();
+            bloqueo.bloquearIninterrumpible();
+            resultado[0] = bloqueo.isBloqueado();
+            resultado[1] = Thread.currentThread().isInterrupted();
+            bloqueo.liberar();
+        });
+        hilo.start();
+
+        Thread.sleep(50);
+        boolean esperando = hilo.isAlive();
+        estacionA.liberarEscritura(selloA);
+        hilo.join(5000);
+
+        assertAll("Debe bloquear las estaciones aunque esté interrumpido",
+                () -> assertTrue(esperando, "Debe esperar a que se libere A"),
+                () -> assertFalse(hilo.isAlive(), "Debe terminar al liberarse A"),
+                () -> assertTrue(resultado[0], "Debe haber bloqueado las estaciones"),
+                () -> assertTrue(resultado[1], "Debe conservar la interrupción")
+        );
+    }
+
+    @Test
+    @DisplayName("Bloqueos en órdenes opuestos no producen interbloqueo")
+    void testSinInterbloqueo() throws InterruptedException {
+        AtomicInteger completados = new AtomicInteger();
+        Thread[] hilos = new Thread[4];
+
+        for (int i = 0; i < hilos.length; i++) {
+            EstacionBicicletas primera = (i % 2 == 0) ? estacionA : estacionB;
+            EstacionBicicletas segunda = (i % 2 == 0) ? estacionB : estacionA;
+            hilos[i] = new Thread(() -> {
+                try {
+                    for (int j = 0; j < 200; j++) {
+                        BloqueoEstaciones bloqueo = new BloqueoEstaciones(primera, segunda);
+                        bloqueo.bloquear();
+                        bloqueo.liberar();
+                    }
+                    completados.incrementAndGet();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            hilos[i].start();
+        }
+
+        for (Thread hilo : hilos) {
+            hilo.join(5000);
+        }
+
+        assertEquals(hilos.length, completados.get(), "Todos los hilos deben completar sus bloqueos");
+    }
+}
@@ -0,0 +1,319 @@
+package es.ujaen.ssccdd.datos;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+
+import static es.ujaen.ssccdd.Constantes.*;
+import static es.ujaen.ssccdd.Constantes.ResultadoPeticion.RECHAZADA;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Tests para la clase BuzonPeticiones")
+class BuzonPeticionesTest {
+
+    private static final int NUM_FRAGMENTOS = 4;
+    private BuzonPeticiones buzon;
+    private Semaphore semaforo;
+
+    @BeforeEach
+    void setUp() {
+        buzon = new BuzonPeticiones(NUM_FRAGMENTOS);
+        semaforo = new Semaphore(0);
+    }
+
+    @Test
+    @DisplayName("Las peticiones se reparten por su estación de origen")
+    void testReparto() throws InterruptedException {
+        Peticion peticion1 = new Peticion("usuario-1", "estacion-1", "estacion-2", 1, semaforo);
+        Peticion peticion2 = new Peticion("usuario-2", "estacion-1", "estacion-3", 1, semaforo);
+        int fragmento = buzon.fragmento("estacion-1");
+
+        buzon.enviar(peticion1);
+        buzon.enviar(peticion2);
+
+        List<Peticion> lote = new ArrayList<>();
+        int recogidas = buzon.recoger(fragmento, lote, 10);
+
+        assertAll("Las peticiones con el mismo origen van al mismo fragmento",
+                () -> assertEquals(NUM_FRAGMENTOS, buzon.getNumFragmentos(), "Debe tener 4 fragmentos"),
+                () -> assertTrue(fragmento >= 0 && fragmento < NUM_FRAGMENTOS, "El fragmento debe ser válido"),
+                () -> assertEquals(2, recogidas, "Deben recogerse las 2 peticiones"),
+                () -> assertEquals(List.of(peticion1, peticion2), lote, "Deben recogerse en orden de llegada"),
+                () -> assertEquals(0, buzon.pendientes(fragmento), "No deben quedar peticiones pendientes")
+        );
+    }
+
+    @Test
+    @DisplayName("La recogida respeta el tamaño máximo del lote")
+    void testTamanoLote() throws InterruptedException {
+        for (int i = 0; i < 5; i++) {
+            buzon.enviar(new Peticion("usuario-" + i, "estacion-1", "estacion-2", 1, semaforo));
+        }
+        int fragmento = buzon.fragmento("estacion-1");
+
+        List<Peticion> lote = new ArrayList<>();
+        int recogidas = buzon.recoger(fragmento, lote, 3);
+
+        assertAll("Solo deben recogerse las peticiones del lote",
+                () -> assertEquals(3, recogidas, "Deben recogerse 3 peticiones"),
+                () -> assertEquals(3, lote.size(), "El lote debe tener 3 peticiones"),
+                () -> assertEquals(2, buzon.pendientes(fragmento), "Deben quedar 2 peticiones pendientes"),
+                () -> assertEquals("usuario-0", lote.get(0).getId(), "La primera debe ser la más antigua")
+        );
+    }
+
+    @Test
+    @DisplayName("La recogida espera a que llegue una petición")
+    void testEsperaPeticion() throws InterruptedException {
+        Peticion peticion = new Peticion("usuario-1", "estacion-1", "estacion-2", 1, semaforo);
+        int fragmento = buzon.fragmento("estacion-1");
+        List<Peticion> lote = new ArrayList<>();
+
+        Thread lector = new Thread(() -> {
+            try {
+                buzon.recoger(fragmento, lote, 10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        lector.start();
+
+        buzon.enviar(peticion);
+        lector.join(5000);
+
+        assertAll("El lector debe recibir la petición",
+                () -> assertFalse(lector.isAlive(), "El lector debe haber terminado"),
+                () -> assertEquals(List.of(peticion), lote, "Debe recoger la petición enviada")
+        );
+    }
+
+    @Test
+    @DisplayName("Las peticiones entre dos fragmentos se resuelven sin interbloqueo")
+    void testPeticionesEntreFragmentos() throws InterruptedException {
+        final int numPeticiones = 200;
+        BuzonPeticiones dosFragmentos = new BuzonPeticiones(2);
+        String idOrigen = "estacion-0";
+        String idDestino = "estacion-1";
+        for (int i = 2; dosFragmentos.fragmento(idDestino) == dosFragmentos.fragmento(idOrigen); i++) {
+            idDestino = "estacion-" + i;
+        }
+        Map<String, EstacionBicicletas> estaciones = Map.of(
+                idOrigen, new EstacionBicicletas(idOrigen, 10, new Bicicleta("B0", TipoBicicletas.NORMAL)),
+                idDestino, new EstacionBicicletas(idDestino, 10, new Bicicleta("B1", TipoBicicletas.NORMAL)));
+
+        // Cada resolutor bloquea el origen de su fragmento y el destino del otro, en órdenes opuestos
+        List<Peticion> peticiones = new ArrayList<>();
+        for (int i = 0; i < numPeticiones; i++) {
+            peticiones.add(new Peticion("ida-" + i, idOrigen, idDestino, 1, semaforo));
+            peticiones.add(new Peticion("vuelta-" + i, idDestino, idOrigen, 1, semaforo));
+        }
+        peticiones.forEach(dosFragmentos::enviar);
+
+        Thread[] resolutores = new Thread[dosFragmentos.getNumFragmentos()];
+        for (int i = 0; i < resolutores.length; i++) {
+            int fragmento = i;
+            resolutores[i] = new Thread(() -> {
+                List<Peticion> lote = new ArrayList<>();
+                try {
+                    for (int resueltas = 0; resueltas < numPeticiones; resueltas += lote.size()) {
+                        lote.clear();
+                        dosFragmentos.recoger(fragmento, lote, 10);
+                        for (Peticion peticion : lote) {
+                            BloqueoEstaciones bloqueo = new BloqueoEstaciones(estaciones.get(peticion.getOrigen()),
+                                    estaciones.get(peticion.getDestino()));
+                            bloqueo.bloquear();
+                            peticion.reclamar();
+                            peticion.resolver(null);
+                            bloqueo.liberar();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            resolutores[i].start();
+        }
+
+        for (Thread resolutor : resolutores) {
+            resolutor.join(5000);
+        }
+
+        String destino = idDestino;
+        assertAll("Cada fragmento debe resolver sus peticiones",
+                () -> assertNotEquals(dosFragmentos.fragmento(idOrigen), dosFragmentos.fragmento(destino),
+                        "Las estaciones deben estar en fragmentos distintos"),
+                () -> assertFalse(resolutores[0].isAlive() || resolutores[1].isAlive(),
+                        "Los resolutores deben haber terminado"),
+                () -> assertTrue(peticiones.stream().allMatch(Peticion::isTerminada),
+                        "Todas las peticiones deben estar resueltas"),
+                () -> assertEquals(2 * numPeticiones, semaforo.availablePermits(),
+                        "Debe avisarse a cada solicitante")
+        );
+    }
+
+    @Test
+    @DisplayName("La recogida sin espera no bloquea con el fragmento vacío")
+    void testRecogerSinEsperar() {
+        int fragmento = buzon.fragmento("estacion-1");
+        List<Peticion> lote = new ArrayList<>();
+
+        int vacio = buzon.recogerSinEsperar(fragmento, lote, 10);
+        buzon.enviar(new Peticion("usuario-1", "estacion-1", "estacion-2", 1, semaforo));
+        int recogidas = buzon.recogerSinEsperar(fragmento, lote, 10);
+
+        assertAll("Debe recoger solo lo que haya",
+                () -> assertEquals(0, vacio, "Con el fragmento vacío no recoge nada"),
+                () -> assertEquals(1, recogidas, "Debe recoger la petición enviada"),
+                () -> assertEquals(1, lote.size(), "El lote debe tener 1 petición")
+        );
+    }
+
+    @Test
+    @DisplayName("Validación de los argumentos")
+    void testArgumentosInvalidos() {
+        assertAll("Los argumentos inválidos deben rechazarse",
+                () -> assertThrows(IllegalArgumentException.class, () -> new BuzonPeticiones(0),
+                        "Debe haber al menos un fragmento"),
+                () -> assertThrows(IllegalArgumentException.class, () -> buzon.recoger(0, new ArrayList<>(), 0),
+                        "El tamaño del lote debe ser positivo")
+        );
+    }
+
+    @Test
+    @DisplayName("Con la política de rechazar nuevas se descartan las que no caben")
+    void testRechazarNuevas() {
+        BuzonPeticiones limitado = new BuzonPeticiones(1, LIMITE_MINIMO_BUZON, PoliticaAdmision.RECHAZAR_NUEVAS,
+                origen -> false);
+        for (int i = 0; i < LIMITE_MINIMO_BUZON; i++) {
+            limitado.enviar(new Peticion("usuario-" + i, "estacion-1", "estacion-2", 1, new Semaphore(0)));
+        }
+        Peticion sobrante = new Peticion("sobrante", "estacion-1", "estacion-2", 1, semaforo);
+
+        boolean admitida = limitado.enviar(sobrante);
+
+        assertAll("La petición que no cabe debe rechazarse",
+                () -> assertFalse(admitida, "No debe admitirse"),
+                () -> assertEquals(LIMITE_MINIMO_BUZON, limitado.getAdmitidas(), "Deben admitirse las que caben"),
+                () -> assertEquals(1, limitado.getDescartadas(), "Debe descartarse 1 petición"),
+                () -> assertEquals(LIMITE_MINIMO_BUZON, limitado.pendientes(0), "El fragmento sigue lleno"),
+                () -> assertEquals(RECHAZADA, sobrante.getResultado().orElseThrow(), "Debe quedar rechazada"),
+                () -> assertTrue(semaforo.tryAcquire(), "Debe avisarse al solicitante")
+        );
+    }
+
+    @Test
+    @DisplayName("Con la política de rechazar antiguas la nueva ocupa el lugar de la más antigua")
+    void testRechazarAntiguas() throws InterruptedException {
+        BuzonPeticiones limitado = new BuzonPeticiones(1, LIMITE_MINIMO_BUZON, PoliticaAdmision.RECHAZAR_ANTIGUAS,
+                origen -> false);
+        Peticion antigua = new Peticion("antigua", "estacion-1", "estacion-2", 1, semaforo);
+        limitado.enviar(antigua);
+        for (int i = 1; i < LIMITE_MINIMO_BUZON; i++) {
+            limitado.enviar(new Peticion("usuario-" + i, "estacion-1", "estacion-2", 1, new Semaphore(0)));
+        }
+        Peticion nueva = new Peticion("nueva", "estacion-1", "estacion-2", 1, new Semaphore(0));
+
+        boolean admitida = limitado.enviar(nueva);
+        List<Peticion> lote = new ArrayList<>();
+        limitado.recoger(0, lote, 100);
+
+        assertAll("La más antigua debe descartarse",
+                () -> assertTrue(admitida, "La nueva debe admitirse"),
+                () -> assertEquals(RECHAZADA, antigua.getResultado().orElseThrow(), "La antigua debe rechazarse"),
+                () -> assertEquals(LIMITE_MINIMO_BUZON, lote.size(), "El fragmento no debe superar su límite"),
+                () -> assertFalse(lote.contains(antigua), "La antigua no debe recogerse"),
+                () -> assertSame(nueva, lote.get(lote.size() - 1), "La nueva debe ser la última")
+        );
+    }
+
+    @Test
+    @DisplayName("Con la política de escasez se descartan las peticiones con origen sin bicicletas")
+    void testEscasezOrigen() throws InterruptedException {
+        BuzonPeticiones limitado = new BuzonPeticiones(1, LIMITE_MINIMO_BUZON, PoliticaAdmision.ESCASEZ_ORIGEN,
+                "vacia"::equals);
+        Peticion antigua = new Peticion("antigua", "estacion-1", "estacion-2", 1, new Semaphore(0));
+        Peticion sinBicicletas = new Peticion("sin-bicicletas", "vacia", "estacion-2", 1, new Semaphore(0));
+        limitado.enviar(antigua);
+        limitado.enviar(sinBicicletas);
+        for (int i = 2; i < LIMITE_MINIMO_BUZON; i++) {
+            limitado.enviar(new Peticion("usuario-" + i, "estacion-1", "estacion-2", 1, new Semaphore(0)));
+        }
+
+        boolean escasa = limitado.enviar(new Peticion("escasa", "vacia", "estacion-2", 1, semaforo));
+        boolean conBicicletas = limitado.enviar(new Peticion("nueva", "estacion-1", "estacion-2", 1, new Semaphore(0)));
+        boolean sinHueco = limitado.enviar(new Peticion("otra", "estacion-1", "estacion-2", 1, new Semaphore(0)));
+        List<Peticion> lote = new ArrayList<>();
+        limitado.recoger(0, lote, 100);
+
+        assertAll("Solo se descartan peticiones con origen sin bicicletas",
+                () -> assertFalse(escasa, "La nueva con origen sin bicicletas se descarta"),
+                () -> assertTrue(conBicicletas, "La nueva con bicicletas en origen se admite"),
+                () -> assertTrue(sinBicicletas.isTerminada(), "Le deja sitio la que no tiene bicicletas en origen"),
+                () -> assertFalse(antigua.isTerminada(), "La más antigua con bicicletas se conserva"),
+                () -> assertFalse(sinHueco, "Sin peticiones con origen escaso se descarta la nueva"),
+                () -> assertEquals(3, limitado.getDescartadas(), "Deben descartarse 3 peticiones"),
+                () -> assertEquals(LIMITE_MINIMO_BUZON, lote.size(), "El fragmento no debe superar su límite"),
+                () -> assertSame(antigua, lote.get(0), "La antigua sigue la primera")
+        );
+    }
+
+    @Test
+    @DisplayName("Las peticiones aparcadas conservan su plaza en el buzón")
+    void testPlazasAparcadas() throws InterruptedException {
+        BuzonPeticiones limitado = new BuzonPeticiones(1, LIMITE_MINIMO_BUZON, PoliticaAdmision.RECHAZAR_NUEVAS,
+                origen -> false);
+        for (int i = 0; i < LIMITE_MINIMO_BUZON; i++) {
+            limitado.enviar(new Peticion("usuario-" + i, "estacion-1", "estacion-2", 1, new Semaphore(0)));
+        }
+
+        // El resolutor recoge todas las peticiones y las aparca porque su origen no tiene bicicletas
+        List<Peticion> aparcadas = new ArrayList<>();
+        limitado.recoger(0, aparcadas, 100);
+        aparcadas.forEach(limitado::retenerPlaza);
+        boolean conAparcadas = limitado.enviar(new Peticion("nueva", "estacion-1", "estacion-2", 1, semaforo));
+
+        // Una vence y se retira, y las demás se reactivan
+        limitado.liberarPlaza(aparcadas.remove(0));
+        aparcadas.forEach(limitado::reenviar);
+        int ocupadas = limitado.plazasOcupadas(0);
+        boolean trasRetirar = limitado.enviar(new Peticion("otra", "estacion-1", "estacion-2", 1, new Semaphore(0)));
+        boolean trasReactivar = limitado.enviar(new Peticion("sobra", "estacion-1", "estacion-2", 1, new Semaphore(0)));
+
+        assertAll("Las aparcadas deben contar para el límite del fragmento",
+                () -> assertFalse(conAparcadas, "Con todas aparcadas no hay plaza"),
+                () -> assertEquals(LIMITE_MINIMO_BUZON - 1, ocupadas, "La retirada libera su plaza"),
+                () -> assertTrue(trasRetirar, "Debe admitirse una en la plaza liberada"),
+                () -> assertFalse(trasReactivar, "Las reactivadas no ocupan plazas nuevas"),
+                () -> assertEquals(LIMITE_MINIMO_BUZON, limitado.pendientes(0), "En cola no se supera el límite")
+        );
+    }
+
+    @Test
+    @DisplayName("El límite se adapta a la latencia de los lotes")
+    void testLimiteAdaptativo() {
+        BuzonPeticiones limitado = new BuzonPeticiones(1, 4 * LIMITE_MINIMO_BUZON, PoliticaAdmision.RECHAZAR_NUEVAS,
+                origen -> false);
+
+        limitado.ajustarLimite(LATENCIA_OBJETIVO_LOTE + 1);
+        int reducido = limitado.getLimite();
+        limitado.ajustarLimite(0);
+        int recuperado = limitado.getLimite();
+        for (int i = 0; i < 10; i++) {
+            limitado.ajustarLimite(LATENCIA_OBJETIVO_LOTE + 1);
+        }
+
+        assertAll("El límite debe reducirse a la mitad y crecer de uno en uno",
+                () -> assertEquals(2 * LIMITE_MINIMO_BUZON, reducido, "Debe reducirse a la mitad"),
+                () -> assertEquals(2 * LIMITE_MINIMO_BUZON + 1, recuperado, "Debe crecer en uno"),
+                () -> assertEquals(LIMITE_MINIMO_BUZON, limitado.getLimite(), "No debe bajar del mínimo"),
+                () -> assertThrows(IllegalArgumentException.class,
+                        () -> new BuzonPeticiones(1, 0, PoliticaAdmision.RECHAZAR_NUEVAS, origen -> false),
+                        "La capacidad debe alcanzar el límite mínimo")
+        );
+    }
+}
@@ -0,0 +1,166 @@
+package es.ujaen.ssccdd.datos;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+import static es.ujaen.ssccdd.Constantes.TipoBicicletas.ELECTRICA;
+import static es.ujaen.ssccdd.Constantes.TipoBicicletas.NORMAL;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Tests para la clase ColaBicicletas")
+class ColaBicicletasTest {
+
+    private ColaBicicletas cola;
+    private Bicicleta bicicleta1, bicicleta2, bicicleta3;
+
+    @BeforeEach
+    void setUp() {
+        cola = new ColaBicicletas();
+        bicicleta1 = new Bicicleta("B001", NORMAL);
+        bicicleta2 = new Bicicleta("B002", ELECTRICA);
+        bicicleta3 = new Bicicleta("B003", NORMAL);
+
+        cola.add(bicicleta1);
+        cola.add(bicicleta2);
+        cola.add(bicicleta3);
+    }
+
+    @Test
+    @DisplayName("La cola mantiene el orden de llegada")
+    void testOrdenLlegada() {
+        assertAll("Las bicicletas deben salir en el orden en que llegaron",
+                () -> assertEquals(3, cola.size(), "La cola debe tener 3 bicicletas"),
+                () -> assertEquals(bicicleta1, cola.peek(), "La primera debe ser B001"),
+                () -> assertEquals(bicicleta1, cola.poll(), "Debe extraerse B001"),
+                () -> assertEquals(bicicleta2, cola.poll(), "Debe extraerse B002"),
+                () -> assertEquals(bicicleta3, cola.poll(), "Debe extraerse B003"),
+                () -> assertNull(cola.poll(), "La cola vacía debe devolver null"),
+                () -> assertTrue(cola.isEmpty(), "La cola debe quedar vacía")
+        );
+    }
+
+    @Test
+    @DisplayName("Búsqueda y eliminación por identificador")
+    void testExtraerPorId() {
+        Optional<Bicicleta> extraida = cola.extraer("B002");
+        Optional<Bicicleta> inexistente = cola.extraer("NO_EXISTE");
+
+        assertAll("La extracción por id debe localizar la bicicleta",
+                () -> assertTrue(extraida.isPresent(), "Debe encontrar la bicicleta B002"),
+                () -> assertEquals(bicicleta2, extraida.get(), "Debe devolver la bicicleta B002"),
+                () -> assertFalse(inexistente.isPresent(), "No debe encontrar un id inexistente"),
+                () -> assertEquals(2, cola.size(), "Deben quedar 2 bicicletas"),
+                () -> assertFalse(cola.contains(bicicleta2), "B002 ya no debe estar en la cola"),
+                () -> assertTrue(cola.contains(new Bicicleta("B003", NORMAL)), "Debe localizar B003 por igualdad")
+        );
+    }
+
+    @Test
+    @DisplayName("Varias bicicletas con el mismo identificador")
+    void testIdentificadoresRepetidos() {
+        ColaBicicletas alquiladas = new ColaBicicletas();
+        alquiladas.add(new Bicicleta("usuario", bicicleta1));
+        alquiladas.add(new Bicicleta("usuario", bicicleta3));
+
+        assertAll("Deben conservarse las bicicletas con id repetido",
+                () -> assertEquals(2, alquiladas.size(), "Debe haber 2 bicicletas"),
+                () -> assertTrue(alquiladas.extraer("usuario").isPresent(), "Debe extraer la primera"),
+                () -> assertTrue(alquiladas.extraer("usuario").isPresent(), "Debe extraer la segunda"),
+                () -> assertFalse(alquiladas.extraer("usuario").isPresent(), "No deben quedar más"),
+                () -> assertEquals(0, alquiladas.size(), "La cola debe quedar vacía")
+        );
+    }
+
+    @Test
+    @DisplayName("Las bicicletas con id repetido conservan su orden de llegada")
+    void testOrdenIdentificadoresRepetidos() {
+        ColaBicicletas alquiladas = new ColaBicicletas();
+        Bicicleta primera = new Bicicleta("usuario", bicicleta1);
+        Bicicleta otra = new Bicicleta("otro", bicicleta2);
+        Bicicleta segunda = new Bicicleta("usuario", bicicleta3);
+        alquiladas.add(primera);
+        alquiladas.add(otra);
+        alquiladas.add(segunda);
+
+        assertAll("La cola debe mantener el orden de llegada",
+                () -> assertSame(primera, alquiladas.poll(), "Debe salir la primera en llegar"),
+                () -> assertSame(otra, alquiladas.poll(), "Debe salir antes la que llegó antes"),
+                () -> assertSame(segunda, alquiladas.poll(), "La repetida debe salir la última")
+        );
+    }
+
+    @Test
+    @DisplayName("Extracción y eliminación en mitad de una cola grande")
+    void testEliminarEnMedio() {
+        final int numBicicletas = 10_000;
+        ColaBicicletas grande = new ColaBicicletas();
+        for (int i = 0; i < numBicicletas; i++) {
+            grande.add(new Bicicleta("G" + i, NORMAL));
+        }
+
+        Optional<Bicicleta> extraida = grande.extraer("G" + numBicicletas / 2);
+        boolean eliminada = grande.remove(new Bicicleta("G" + (numBicicletas / 2 + 1), NORMAL));
+        boolean otroTipo = grande.remove(new Bicicleta("G" + (numBicicletas / 2 + 2), ELECTRICA));
+        grande.poll();
+        Optional<Bicicleta> ultima = grande.extraer("G" + (numBicicletas - 1));
+        List<String> restantes = new ArrayList<>();
+        grande.forEach(bicicleta -> restantes.add(bicicleta.getId()));
+
+        assertAll("La cola debe quedar enlazada en orden tras eliminar en medio y en los extremos",
+                () -> assertEquals("G" + numBicicletas / 2, extraida.orElseThrow().getId(), "Debe extraer la del medio"),
+                () -> assertTrue(eliminada, "Debe eliminar la siguiente por igualdad"),
+                () -> assertFalse(otroTipo, "No debe eliminar una bicicleta de otro tipo con el mismo id"),
+                () -> assertTrue(ultima.isPresent(), "Debe extraer la última"),
+                () -> assertEquals(numBicicletas - 4, grande.size(), "Deben quedar las demás bicicletas"),
+                () -> assertEquals(numBicicletas - 4, restantes.size(), "El recorrido debe coincidir con el tamaño"),
+                () -> assertEquals("G1", restantes.get(0), "La primera debe ser G1"),
+                () -> assertEquals("G" + (numBicicletas / 2 - 1), restantes.get(numBicicletas / 2 - 2),
+                        "Debe enlazar la anterior a las eliminadas..."),
+                () -> assertEquals("G" + (numBicicletas / 2 + 2), restantes.get(numBicicletas / 2 - 1),
+                        "...con la siguiente"),
+                () -> assertEquals("G" + (numBicicletas - 2), grande.stream().reduce((a, b) -> b).orElseThrow().getId(),
+                        "La última debe ser la anterior a la extraída")
+        );
+    }
+
+    @Test
+    @DisplayName("Eliminación a través del iterador")
+    void testIteradorRemove() {
+        Iterator<Bicicleta> it = cola.iterator();
+        List<Bicicleta> recorridas = new ArrayList<>();
+
+        while (it.hasNext()) {
+            Bicicleta bicicleta = it.next();
+            recorridas.add(bicicleta);
+            if (!bicicleta.equals(bicicleta3))
+                it.remove();
+        }
+
+        assertAll("El iterador debe recorrer y eliminar correctamente",
+                () -> assertEquals(List.of(bicicleta1, bicicleta2, bicicleta3), recorridas, "Debe recorrer todas en orden"),
+                () -> assertEquals(1, cola.size(), "Debe quedar 1 bicicleta"),
+                () -> assertEquals(bicicleta3, cola.peek(), "Debe quedar B003"),
+                () -> assertThrows(IllegalStateException.class, () -> cola.iterator().remove(),
+                        "No se puede eliminar sin haber llamado a next()")
+        );
+    }
+
+    @Test
+    @DisplayName("La copia es independiente de la original")
+    void testCopia() {
+        ColaBicicletas copia = new ColaBicicletas(cola);
+        cola.clear();
+
+        assertAll("La copia no debe verse afectada",
+                () -> assertEquals(0, cola.size(), "La original debe quedar vacía"),
+                () -> assertEquals(3, copia.size(), "La copia debe mantener 3 bicicletas"),
+                () -> assertThrows(NullPointerException.class, () -> copia.add(null), "No se admiten bicicletas null")
+        );
+    }
+}
@@ -0,0 +1,116 @@
+package es.ujaen.ssccdd.datos;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static es.ujaen.ssccdd.Constantes.TipoBicicletas.NORMAL;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Tests para la clase DespachoMantenimiento")
+class DespachoMantenimientoTest {
+
+    private DespachoMantenimiento despacho;
+
+    @BeforeEach
+    void setUp() {
+        despacho = new DespachoMantenimiento(2);
+    }
+
+    private static EstacionBicicletas estacion(String id) {
+        return new EstacionBicicletas(id, 10, new Bicicleta(id + "-1", NORMAL));
+    }
+
+    @Test
+    @DisplayName("Los trabajos se asignan al técnico con menos carga")
+    void testAsignacion() throws InterruptedException {
+        EstacionBicicletas a = estacion("A");
+        EstacionBicicletas b = estacion("B");
+        EstacionBicicletas c = estacion("C");
+
+        despacho.asignar(a);
+        despacho.asignar(b);
+        despacho.asignar(c);
+        int cargaInicial0 = despacho.carga(0);
+        int cargaInicial1 = despacho.carga(1);
+
+        EstacionBicicletas trabajo = despacho.siguiente(1);
+        despacho.terminar(1);
+
+        assertAll("Las cargas deben repartirse",
+                () -> assertEquals(2, cargaInicial0, "El técnico 0 recibe A y C"),
+                () -> assertEquals(1, cargaInicial1, "El técnico 1 recibe B"),
+                () -> assertSame(b, trabajo, "El técnico 1 atiende primero su cola"),
+                () -> assertEquals(0, despacho.carga(1), "El trabajo terminado deja de contar"),
+                () -> assertEquals(2, despacho.pendientes(), "Quedan 2 trabajos"),
+                () -> assertEquals(3, despacho.getAsignados(), "Se han asignado 3 trabajos")
+        );
+    }
+
+    @Test
+    @DisplayName("Una estación solo puede estar una vez en espera")
+    void testSinDuplicados() throws InterruptedException {
+        EstacionBicicletas a = estacion("A");
+
+        boolean primero = despacho.asignar(a);
+        boolean repetido = despacho.asignar(a);
+        despacho.siguiente(0);
+        boolean tomado = despacho.asignar(a);
+
+        assertAll("Solo se repite el aviso cuando un técnico ha tomado el trabajo",
+                () -> assertTrue(primero, "El primer aviso se asigna"),
+                () -> assertFalse(repetido, "El aviso repetido se descarta"),
+                () -> assertTrue(tomado, "Tras tomar el trabajo se admite un nuevo aviso"),
+                () -> assertThrows(IllegalArgumentException.class, () -> despacho.asignar(null),
+                        "La estación no puede ser null"),
+                () -> assertThrows(IllegalArgumentException.class, () -> new DespachoMantenimiento(0),
+                        "Debe haber al menos un técnico")
+        );
+    }
+
+    @Test
+    @DisplayName("Un técnico sin trabajos roba el más reciente del más cargado")
+    void testRobo() throws InterruptedException {
+        EstacionBicicletas a = estacion("A");
+        EstacionBicicletas b = estacion("B");
+        EstacionBicicletas c = estacion("C");
+        despacho.asignar(a);                // técnico 0
+        despacho.asignar(b);                // técnico 1
+        despacho.asignar(c);                // técnico 0
+        despacho.siguiente(1);              // B
+
+        EstacionBicicletas robado = despacho.siguiente(1);
+
+        assertAll("El técnico 1 debe robar C",
+                () -> assertSame(c, robado, "Se roba el trabajo más reciente"),
+                () -> assertEquals(1, despacho.getRobados(), "Debe contarse el robo"),
+                () -> assertEquals(1, despacho.carga(0), "Al técnico 0 le queda A"),
+                () -> assertEquals(2, despacho.carga(1), "El técnico 1 tiene B y C en curso")
+        );
+    }
+
+    @Test
+    @DisplayName("El técnico espera a que haya trabajo")
+    void testEspera() throws InterruptedException {
+        EstacionBicicletas a = estacion("A");
+        AtomicReference<EstacionBicicletas> recibido = new AtomicReference<>();
+        Thread tecnico = new Thread(() -> {
+            try {
+                recibido.set(despacho.siguiente(1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        tecnico.start();
+
+        despacho.asignar(a);               // se asigna al técnico 0, el 1 debe robarlo
+        tecnico.join(5000);
+
+        assertAll("El técnico debe recibir el trabajo",
+                () -> assertFalse(tecnico.isAlive(), "El técnico debe haber terminado la espera"),
+                () -> assertSame(a, recibido.get(), "Debe recibir la estación avisada")
+        );
+    }
+}
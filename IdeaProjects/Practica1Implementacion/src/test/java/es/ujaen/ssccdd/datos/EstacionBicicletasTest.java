@@ -6,6 +6,7 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.RepeatedTest;
 import org.junit.jupiter.api.Test;
 
+import java.time.Instant;
 import java.util.*;
 import java.util.stream.IntStream;
 
@@ -57,7 +58,6 @@ public class EstacionBicicletasTest {
                 () -> assertEquals(0, estacion.getBicicletas(REUBICACION), "No debe haber bicicletas REUBICACION"),
                 () -> assertEquals(0, estacion.getBicicletas(FUERA_DE_SERVICIO), "No debe haber bicicletas FUERA_DE_SERVICIO"),
                 () -> assertFalse(estacion.avisarMantenimiento(), "No debe necesitar mantenimiento"),
-                () -> assertNotNull(estacion.semExm(), "El semáforo de exclusión mutua debe existir"),
                 () -> assertNotNull(estacion.semMantenimiento(), "El semáforo de mantenimiento debe existir")
         );
     }
@@ -103,8 +103,8 @@ public class EstacionBicicletasTest {
 
         // Verificamos que la bicicleta alquilada tenga el ID del usuario
         try {
-            // Adquirimos el semáforo para operaciones de exclusión mutua
-            estacion.semExm().acquire();
+            // Bloqueamos la estación para operar con exclusión mutua
+            long sello = estacion.bloquearEscritura();
 
             // Obtenemos el mapa interno de bicicletas mediante reflection
             java.lang.reflect.Field field = EstacionBicicletas.class.getDeclaredField("bicicletas");
@@ -119,8 +119,8 @@ public class EstacionBicicletasTest {
             assertEquals(USER_ID, bicicletaEnEstacion.getId(),
                     "La bicicleta alquilada en la estación debe tener el ID del usuario");
 
-            // Liberamos el semáforo
-            estacion.semExm().release();
+            // Liberamos la estación
+            estacion.liberarEscritura(sello);
         } catch (Exception e) {
             fail("No se pudo verificar el ID de usuario en la bicicleta alquilada: " + e.getMessage());
         }
@@ -153,8 +153,8 @@ public class EstacionBicicletasTest {
 
         // Verificamos las bicicletas alquiladas en la estación
         try {
-            // Adquirimos el semáforo para operaciones de exclusión mutua
-            estacion.semExm().acquire();
+            // Bloqueamos la estación para operar con exclusión mutua
+            long sello = estacion.bloquearEscritura();
 
             // Obtenemos el mapa interno de bicicletas mediante reflection
             java.lang.reflect.Field field = EstacionBicicletas.class.getDeclaredField("bicicletas");
@@ -177,8 +177,8 @@ public class EstacionBicicletasTest {
             assertTrue(hayUsuario1 && hayUsuario2,
                     "Debe haber bicicletas alquiladas con los IDs de ambos usuarios");
 
-            // Liberamos el semáforo
-            estacion.semExm().release();
+            // Liberamos la estación
+            estacion.liberarEscritura(sello);
         } catch (Exception e) {
             fail("No se pudo verificar los IDs de usuario en las bicicletas alquiladas: " + e.getMessage());
         }
@@ -394,6 +394,30 @@ public class EstacionBicicletasTest {
                 "Debe lanzar excepción cuando se pide un número negativo de bicicletas");
     }
 
+    @Test
+    @DisplayName("Test del método cancelarPeticionReubicacion para anular la reserva de espacio")
+    void testCancelarPeticionReubicacion() {
+        EstacionBicicletas destino = new EstacionBicicletas("E002", CAPACIDAD_TEST, new Bicicleta("B101", NORMAL));
+        List<Bicicleta> recogidas = estacion.listaReubicacion(2);
+        destino.peticionReubicacion(new ArrayList<>(recogidas));
+        int espacioReservado = destino.getCapacidadEstacion();
+
+        boolean canceladas = destino.cancelarPeticionReubicacion(recogidas);
+        boolean sinReserva = destino.cancelarPeticionReubicacion(List.of(new Bicicleta("B999", NORMAL)));
+
+        assertAll("La reserva debe anularse y las bicicletas quedar listas para volver al origen",
+                () -> assertEquals(CAPACIDAD_TEST - 3, espacioReservado, "Las reservas ocupan espacio"),
+                () -> assertTrue(canceladas, "Las bicicletas tenían el espacio reservado"),
+                () -> assertFalse(sinReserva, "Una bicicleta sin reserva no puede cancelarse"),
+                () -> assertEquals(0, destino.getBicicletas(REUBICACION), "No deben quedar reservas"),
+                () -> assertEquals(CAPACIDAD_TEST - 1, destino.getCapacidadEstacion(), "Se libera el espacio reservado"),
+                () -> assertEquals(2, recogidas.size(), "Las bicicletas siguen en la lista"),
+                () -> assertTrue(recogidas.stream().allMatch(b -> b.getEstado() == DISPONIBLE), "Vuelven a estar disponibles"),
+                () -> assertTrue(estacion.cancelarReubicacion(recogidas), "Pueden devolverse al origen"),
+                () -> assertEquals(4, estacion.getDisponibles(), "El origen recupera sus bicicletas")
+        );
+    }
+
     @Test
     @DisplayName("Test del método cancelarReubicacion para devolver bicicletas a la estación")
     void testCancelarReubicacion() {
@@ -447,8 +471,8 @@ public class EstacionBicicletasTest {
 
         // Simulamos que algunas bicicletas pasan a estado FUERA_DE_SERVICIO (más que el mínimo)
         try {
-            // Adquirimos el semáforo para operaciones de exclusión mutua
-            estacionFS.semExm().acquire();
+            // Bloqueamos la estación para operar con exclusión mutua
+            long sello = estacionFS.bloquearEscritura();
 
             // Obtenemos el mapa interno de bicicletas mediante reflection
             java.lang.reflect.Field field = EstacionBicicletas.class.getDeclaredField("bicicletas");
@@ -467,8 +491,8 @@ public class EstacionBicicletasTest {
                 mapaBicicletas.get(FUERA_DE_SERVICIO).add(b);
             }
 
-            // Liberamos el semáforo
-            estacionFS.semExm().release();
+            // Liberamos la estación
+            estacionFS.liberarEscritura(sello);
         } catch (Exception e) {
             fail("No se pudo configurar la prueba: " + e.getMessage());
         }
@@ -488,8 +512,8 @@ public class EstacionBicicletasTest {
                         .toArray(Bicicleta[]::new));
 
         try {
-            // Adquirimos el semáforo para operaciones de exclusión mutua
-            estacionMinFS.semExm().acquire();
+            // Bloqueamos la estación para operar con exclusión mutua
+            long sello = estacionMinFS.bloquearEscritura();
 
             // Obtenemos el mapa interno de bicicletas mediante reflection
             java.lang.reflect.Field field = EstacionBicicletas.class.getDeclaredField("bicicletas");
@@ -506,8 +530,8 @@ public class EstacionBicicletasTest {
                 mapaBicicletas.get(FUERA_DE_SERVICIO).add(b);
             }
 
-            // Liberamos el semáforo
-            estacionMinFS.semExm().release();
+            // Liberamos la estación
+            estacionMinFS.liberarEscritura(sello);
         } catch (Exception e) {
             fail("No se pudo configurar la prueba con el mínimo: " + e.getMessage());
         }
@@ -532,8 +556,8 @@ public class EstacionBicicletasTest {
 
         // Simulamos que las bicicletas pasan a estado FUERA_DE_SERVICIO
         try {
-            // Adquirimos el semáforo para operaciones de exclusión mutua
-            estacionFS.semExm().acquire();
+            // Bloqueamos la estación para operar con exclusión mutua
+            long sello = estacionFS.bloquearEscritura();
 
             // Obtenemos el mapa interno de bicicletas mediante reflection
             java.lang.reflect.Field field = EstacionBicicletas.class.getDeclaredField("bicicletas");
@@ -550,8 +574,8 @@ public class EstacionBicicletasTest {
                 mapaBicicletas.get(FUERA_DE_SERVICIO).add(b);
             }
 
-            // Liberamos el semáforo
-            estacionFS.semExm().release();
+            // Liberamos la estación
+            estacionFS.liberarEscritura(sello);
         } catch (Exception e) {
             fail("No se pudo configurar la prueba: " + e.getMessage());
         }
@@ -601,8 +625,8 @@ public class EstacionBicicletasTest {
         // Como no podemos forzar directamente el método necesitaMantenimiento(), utilizamos reflection
         // para modificar el estado interno (solo para propósitos de testing)
         try {
-            // Adquirimos el semáforo para operaciones de exclusión mutua
-            estacionFS.semExm().acquire();
+            // Bloqueamos la estación para operar con exclusión mutua
+            long sello = estacionFS.bloquearEscritura();
 
             // Obtenemos el mapa interno de bicicletas mediante reflection
             java.lang.reflect.Field field = EstacionBicicletas.class.getDeclaredField("bicicletas");
@@ -615,8 +639,8 @@ public class EstacionBicicletasTest {
             bicicletaParaFS.setEstado(FUERA_DE_SERVICIO);
             mapaBicicletas.get(FUERA_DE_SERVICIO).add(bicicletaParaFS);
 
-            // Liberamos el semáforo
-            estacionFS.semExm().release();
+            // Liberamos la estación
+            estacionFS.liberarEscritura(sello);
         } catch (Exception e) {
             fail("No se pudo configurar la prueba: " + e.getMessage());
         }
@@ -835,4 +859,244 @@ public class EstacionBicicletasTest {
                 () -> assertEquals(1, estacionOrigen.getDisponibles(), "Estación origen debe volver a tener 1 bicicleta disponible")
         );
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Test de la copia de la estación con colas y ocupación independientes")
+    void testCopiaEstacion() {
+        EstacionBicicletas copia = new EstacionBicicletas(estacion);
+
+        // Las operaciones sobre la original no deben alterar la copia
+        estacion.peticionAlquiler(USER_ID);
+        estacion.listaReubicacion(2);
+
+        assertAll("La copia debe mantener su propio estado",
+                () -> assertEquals(estacion.getId(), copia.getId(), "La copia debe conservar el ID"),
+                () -> assertEquals(4, copia.getDisponibles(), "La copia debe mantener 4 bicicletas disponibles"),
+                () -> assertEquals(0, copia.getBicicletas(ALQUILADA), "La copia no debe tener bicicletas alquiladas"),
+                () -> assertEquals(4, copia.ocupacionEstacion(), "La ocupación de la copia debe seguir siendo 4"),
+                () -> assertEquals(2, estacion.ocupacionEstacion(), "La ocupación de la original debe ser 2")
+        );
+    }
+
+    @Test
+    @DisplayName("Test de recogida de varias bicicletas alquiladas por el mismo usuario")
+    void testRecogerBicicletasMismoUsuario() {
+        estacion.peticionAlquiler(USER_ID);
+        estacion.peticionAlquiler(USER_ID);
+
+        Optional<Bicicleta> primera = estacion.recogerBicicleta(USER_ID);
+        Optional<Bicicleta> segunda = estacion.recogerBicicleta(USER_ID);
+        Optional<Bicicleta> tercera = estacion.recogerBicicleta(USER_ID);
+
+        assertAll("Cada recogida debe retirar una única bicicleta alquilada",
+                () -> assertTrue(primera.isPresent(), "Debe recoger la primera bicicleta"),
+                () -> assertTrue(segunda.isPresent(), "Debe recoger la segunda bicicleta"),
+                () -> assertFalse(tercera.isPresent(), "No debe quedar una tercera bicicleta"),
+                () -> assertEquals(0, estacion.getBicicletas(ALQUILADA), "No deben quedar bicicletas alquiladas"),
+                () -> assertEquals(2, estacion.ocupacionEstacion(), "La ocupación debe ser 2")
+        );
+    }
+
+    @Test
+    @DisplayName("Test de las lecturas optimistas y el cerrojo de escritura de la estación")
+    void testLecturasOptimistas() throws InterruptedException {
+        estacion.peticionAlquiler(USER_ID);
+
+        assertAll("Las lecturas optimistas deben coincidir con el estado de la estación",
+                () -> assertEquals(estacion.getDisponibles(), estacion.leerDisponibles(), "Disponibles"),
+                () -> assertEquals(estacion.getCapacidadEstacion(), estacion.leerCapacidadEstacion(), "Capacidad"),
+                () -> assertEquals(estacion.hayEspacio(), estacion.leerHayEspacio(), "Hay espacio"),
+                () -> assertEquals(1, estacion.leerBicicletas(ALQUILADA), "Alquiladas"),
+                () -> assertEquals(estacion.avisarMantenimiento(), estacion.leerAvisoMantenimiento(), "Mantenimiento"),
+                () -> assertThrows(IllegalArgumentException.class, () -> estacion.leerBicicletas(null),
+                        "Debe lanzar excepción si el estado es null")
+        );
+
+        // Un lector concurrente debe ver el estado completo que deja el escritor
+        long sello = estacion.bloquearEscritura();
+        int[] leidas = new int[1];
+        Thread lector = new Thread(() -> leidas[0] = estacion.leerDisponibles());
+        lector.start();
+        estacion.listaReubicacion(3);
+        estacion.liberarEscritura(sello);
+        lector.join(1000);
+
+        assertAll("La lectura concurrente no debe ver un estado intermedio",
+                () -> assertFalse(lector.isAlive(), "El lector debe terminar al liberar la escritura"),
+                () -> assertEquals(0, leidas[0], "Debe leer el estado que deja el escritor")
+        );
+    }
+
+    @Test
+    @DisplayName("Test de reserva conjunta de bicicleta en origen y espacio en destino")
+    void testReservarViaje() {
+        EstacionBicicletas destino = new EstacionBicicletas("DEST", CAPACIDAD_MINIMA, new Bicicleta("BDEST", NORMAL));
+
+        Optional<ReservaViaje> reserva = estacion.reservarViaje(destino, USER_ID);
+
+        assertAll("La reserva debe retener la bicicleta y el espacio",
+                () -> assertTrue(reserva.isPresent(), "Debe poder reservarse el viaje"),
+                () -> assertEquals(USER_ID, reserva.get().idBicicleta(), "La bicicleta debe tener el ID del usuario"),
+                () -> assertEquals("E001", reserva.get().idOrigen(), "El origen debe ser la estación"),
+                () -> assertEquals("DEST", reserva.get().idDestino(), "El destino debe ser DEST"),
+                () -> assertEquals(3, estacion.getDisponibles(), "Deben quedar 3 bicicletas disponibles"),
+                () -> assertEquals(1, estacion.getBicicletas(ALQUILADA), "Debe haber 1 bicicleta alquilada"),
+                () -> assertEquals(1, destino.getBicicletas(EN_TRANSITO), "Debe haber 1 bicicleta EN_TRANSITO en destino")
+        );
+
+        // El viaje reservado se completa recogiendo y entregando la bicicleta
+        Optional<Bicicleta> recogida = estacion.recogerBicicleta(reserva.get().idBicicleta());
+        boolean entregada = recogida.isPresent() && destino.entregarBicicleta(recogida.get());
+
+        assertAll("El viaje reservado debe poder completarse",
+                () -> assertTrue(recogida.isPresent(), "Debe poder recogerse la bicicleta reservada"),
+                () -> assertTrue(entregada, "Debe poder entregarse en el destino"),
+                () -> assertEquals(0, destino.getBicicletas(EN_TRANSITO), "No debe quedar espacio reservado")
+        );
+
+        // Sin espacio en el destino no se modifica ninguna estación
+        while (destino.hayEspacio()) {
+            destino.peticionTransito(new Bicicleta());
+        }
+        Optional<ReservaViaje> sinEspacio = estacion.reservarViaje(destino, USER_ID_2);
+
+        assertAll("No debe reservarse un viaje sin espacio en destino",
+                () -> assertFalse(sinEspacio.isPresent(), "La reserva debe rechazarse"),
+                () -> assertEquals(3, estacion.getDisponibles(), "Las disponibles del origen no deben cambiar"),
+                () -> assertThrows(IllegalArgumentException.class, () -> estacion.reservarViaje(null, USER_ID),
+                        "Debe lanzar excepción si el destino es null")
+        );
+    }
+
+    @Test
+    @DisplayName("Test de cancelación de una reserva de viaje")
+    void testCancelarViaje() {
+        EstacionBicicletas destino = new EstacionBicicletas("DEST", CAPACIDAD_MINIMA, new Bicicleta("BDEST", NORMAL));
+        ReservaViaje reserva = estacion.reservarViaje(destino, USER_ID).orElseThrow();
+
+        boolean cancelada = estacion.cancelarViaje(destino, reserva);
+        boolean repetida = estacion.cancelarViaje(destino, reserva);
+
+        assertAll("La cancelación debe deshacer la reserva",
+                () -> assertTrue(cancelada, "Debe cancelarse la reserva"),
+                () -> assertFalse(repetida, "No se puede cancelar dos veces"),
+                () -> assertEquals(4, estacion.getDisponibles(), "Deben volver a estar 4 bicicletas disponibles"),
+                () -> assertEquals(0, estacion.getBicicletas(ALQUILADA), "No deben quedar bicicletas alquiladas"),
+                () -> assertEquals(4, estacion.ocupacionEstacion(), "La ocupación del origen debe ser 4"),
+                () -> assertEquals(0, destino.getBicicletas(EN_TRANSITO), "Debe liberarse el espacio del destino"),
+                () -> assertEquals(1, destino.ocupacionEstacion(), "La ocupación del destino debe ser 1"),
+                () -> assertThrows(IllegalArgumentException.class, () -> destino.cancelarViaje(estacion, reserva),
+                        "Debe rechazar una reserva de otras estaciones")
+        );
+    }
+
+    @Test
+    @DisplayName("Test de los avisos a los observadores de la estación")
+    void testObservadores() {
+        int[] disponibilidad = new int[1];
+        int[] espacio = new int[1];
+        ObservadorEstacion observador = new ObservadorEstacion() {
+            @Override
+            public void disponibilidadAumentada(EstacionBicicletas estacionAvisada) {
+                disponibilidad[0]++;
+            }
+
+            @Override
+            public void espacioLiberado(EstacionBicicletas estacionAvisada) {
+                espacio[0]++;
+            }
+        };
+        estacion.registrarObservador(observador);
+
+        // El alquiler y la reserva de tránsito no liberan espacio ni aumentan las disponibles
+        estacion.peticionAlquiler(USER_ID);
+        estacion.peticionTransito(new Bicicleta("BT01", NORMAL));
+        assertEquals(0, disponibilidad[0] + espacio[0], "No debe haber avisos");
+
+        // La recogida de la bicicleta alquilada libera un espacio
+        estacion.recogerBicicleta(USER_ID);
+        assertEquals(1, espacio[0], "Debe avisar de espacio liberado");
+
+        // La devolución de bicicletas retiradas aumenta las disponibles
+        List<Bicicleta> retiradas = estacion.listaReubicacion(2);
+        estacion.cancelarReubicacion(retiradas);
+        assertAll("Los avisos deben corresponder a los cambios",
+                () -> assertEquals(2, espacio[0], "La retirada libera espacio"),
+                () -> assertEquals(1, disponibilidad[0], "La devolución aumenta las disponibles")
+        );
+
+        estacion.eliminarObservador(observador);
+        estacion.listaReubicacion(1);
+        assertEquals(2, espacio[0], "Un observador eliminado no debe recibir avisos");
+        assertThrows(IllegalArgumentException.class, () -> estacion.registrarObservador(null),
+                "Debe lanzar excepción si el observador es null");
+    }
+
+    @Test
+    @DisplayName("Test del aviso de mantenimiento al superar el umbral de bicicletas fuera de servicio")
+    void testAvisoMantenimiento() {
+        int[] avisos = new int[1];
+        estacion.registrarObservador(new ObservadorEstacion() {
+            @Override
+            public void mantenimientoRequerido(EstacionBicicletas estacionAvisada) {
+                avisos[0]++;
+            }
+        });
+
+        // Las bicicletas con el mantenimiento vencido siempre quedan fuera de servicio al entregarse
+        Instant vencida = Instant.now().minusSeconds(60);
+        IntStream.rangeClosed(1, MIN_MANTENIMIENTO + 2).forEach(i -> {
+            Bicicleta bicicleta = new Bicicleta("BV0" + i, EN_TRANSITO, NORMAL, vencida);
+            estacion.peticionTransito(bicicleta);
+            estacion.entregarBicicleta(bicicleta);
+            if (i == MIN_MANTENIMIENTO) {
+                assertEquals(0, avisos[0], "No debe avisar sin superar el umbral");
+            }
+        });
+        int avisosAntes = avisos[0];
+
+        // La recogida de mantenimiento vacía la cola y vuelve a armar el aviso
+        estacion.mantenimientoBicicletas();
+        IntStream.rangeClosed(1, MIN_MANTENIMIENTO + 1).forEach(i -> {
+            Bicicleta bicicleta = new Bicicleta("BW0" + i, EN_TRANSITO, NORMAL, vencida);
+            estacion.peticionTransito(bicicleta);
+            estacion.entregarBicicleta(bicicleta);
+        });
+
+        assertAll("Solo debe avisar al cruzar el umbral",
+                () -> assertEquals(1, avisosAntes, "Debe avisar una vez aunque siga por encima del umbral"),
+                () -> assertEquals(2, avisos[0], "Debe volver a avisar tras la recogida")
+        );
+    }
+
+    @Test
+    @DisplayName("Test del registro de un observador de mantenimiento con el umbral ya superado")
+    void testRegistroObservadorMantenimiento() {
+        int[] avisos = new int[1];
+        ObservadorEstacion observador = new ObservadorEstacion() {
+            @Override
+            public void mantenimientoRequerido(EstacionBicicletas estacionAvisada) {
+                avisos[0]++;
+            }
+        };
+        boolean antesDelUmbral = estacion.registrarObservadorMantenimiento(observador);
+        estacion.eliminarObservador(observador);
+
+        Instant vencida = Instant.now().minusSeconds(60);
+        IntStream.rangeClosed(1, MIN_MANTENIMIENTO + 1).forEach(i -> {
+            Bicicleta bicicleta = new Bicicleta("BV0" + i, EN_TRANSITO, NORMAL, vencida);
+            estacion.peticionTransito(bicicleta);
+            estacion.entregarBicicleta(bicicleta);
+        });
+        boolean trasElUmbral = estacion.registrarObservadorMantenimiento(observador);
+        long sello = estacion.intentarBloquearEscritura();
+
+        assertAll("El umbral superado se informa al registrarse y no con un aviso",
+                () -> assertFalse(antesDelUmbral, "No debe necesitar mantenimiento antes del umbral"),
+                () -> assertTrue(trasElUmbral, "Debe necesitar mantenimiento tras el umbral"),
+                () -> assertEquals(0, avisos[0], "El cruce anterior al registro no debe avisar al observador"),
+                () -> assertNotEquals(0, sello, "La estación debe quedar libre")
+        );
+        estacion.liberarEscritura(sello);
+    }
+}
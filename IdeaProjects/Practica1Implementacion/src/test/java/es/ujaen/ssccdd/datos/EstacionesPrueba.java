@@ -0,0 +1,24 @@
+package es.ujaen.ssccdd.datos;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static es.ujaen.ssccdd.Constantes.TipoBicicletas.NORMAL;
+
+/**
+ * Estaciones de bicicletas comunes a los tests de las estructuras que siguen su estado
+ */
+final class EstacionesPrueba {
+
+    private EstacionesPrueba() {
+    }
+
+    /** Estación con capacidad para 10 bicicletas y el número de bicicletas indicado */
+    static EstacionBicicletas estacion(String id, int numBicicletas) {
+        List<Bicicleta> bicicletas = new ArrayList<>();
+        for (int i = 0; i < numBicicletas; i++) {
+            bicicletas.add(new Bicicleta(id + "-" + i, NORMAL));
+        }
+        return new EstacionBicicletas(id, 10, bicicletas.toArray(new Bicicleta[0]));
+    }
+}
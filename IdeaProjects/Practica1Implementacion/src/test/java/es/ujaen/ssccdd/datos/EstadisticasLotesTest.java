@@ -0,0 +1,49 @@
+package es.ujaen.ssccdd.datos;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Tests para la clase EstadisticasLotes")
+class EstadisticasLotesTest {
+
+    private EstadisticasLotes estadisticas;
+
+    @BeforeEach
+    void setUp() {
+        estadisticas = new EstadisticasLotes();
+    }
+
+    @Test
+    @DisplayName("Sin lotes las estadísticas son cero")
+    void testSinLotes() {
+        assertAll("Las estadísticas iniciales deben ser cero",
+                () -> assertEquals(0, estadisticas.getLotes(), "No debe haber lotes"),
+                () -> assertEquals(0, estadisticas.getPeticiones(), "No debe haber peticiones"),
+                () -> assertEquals(0.0, estadisticas.getTamanoMedio(), "El tamaño medio debe ser 0"),
+                () -> assertEquals(0, estadisticas.getTiempoMedio(), "El tiempo medio debe ser 0")
+        );
+    }
+
+    @Test
+    @DisplayName("Registro de varios lotes")
+    void testRegistrarLotes() {
+        estadisticas.registrarLote(2, TimeUnit.MICROSECONDS.toNanos(100));
+        estadisticas.registrarLote(6, TimeUnit.MICROSECONDS.toNanos(300));
+
+        assertAll("Las estadísticas deben acumular los lotes",
+                () -> assertEquals(2, estadisticas.getLotes(), "Debe haber 2 lotes"),
+                () -> assertEquals(8, estadisticas.getPeticiones(), "Debe haber 8 peticiones"),
+                () -> assertEquals(4.0, estadisticas.getTamanoMedio(), "El tamaño medio debe ser 4"),
+                () -> assertEquals(6, estadisticas.getTamanoMaximo(), "El tamaño máximo debe ser 6"),
+                () -> assertEquals(200, estadisticas.getTiempoMedio(), "El tiempo medio debe ser 200µs"),
+                () -> assertEquals(300, estadisticas.getTiempoMaximo(), "El tiempo máximo debe ser 300µs"),
+                () -> assertThrows(IllegalArgumentException.class, () -> estadisticas.registrarLote(-1, 0),
+                        "No se admiten tamaños negativos")
+        );
+    }
+}
@@ -0,0 +1,94 @@
+package es.ujaen.ssccdd.datos;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static es.ujaen.ssccdd.datos.EstacionesPrueba.estacion;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Tests para la clase IndiceEstaciones")
+class IndiceEstacionesTest {
+
+    private IndiceEstaciones indice;
+
+    @BeforeEach
+    void setUp() {
+        indice = new IndiceEstaciones();
+    }
+
+    @Test
+    @DisplayName("Las estaciones se ordenan por disponibles y por espacio libre")
+    void testOrden() {
+        indice.registrar(estacion("A", 5));
+        indice.registrar(estacion("B", 1));
+        indice.registrar(estacion("C", 9));
+        indice.registrar(estacion("D", 3));
+
+        assertAll("Las consultas deben devolver las primeras k estaciones",
+                () -> assertEquals(4, indice.size(), "Deben indexarse 4 estaciones"),
+                () -> assertEquals(List.of("B", "D"), indice.masVacias(2), "Las más vacías son B y D"),
+                () -> assertEquals(List.of("C", "A"), indice.masLlenas(2), "Las más llenas son C y A"),
+                () -> assertEquals(List.of("B", "D", "A", "C"), indice.masVacias(10), "k mayor que el índice"),
+                () -> assertTrue(indice.masVacias(0).isEmpty(), "Con k = 0 no hay estaciones"),
+                () -> assertEquals(9, indice.disponibles("C"), "C tiene 9 disponibles"),
+                () -> assertEquals(1, indice.espacio("C"), "C tiene 1 espacio libre"),
+                () -> assertEquals(-1, indice.disponibles("X"), "X no está indexada")
+        );
+    }
+
+    @Test
+    @DisplayName("El índice se actualiza con los cambios de las estaciones")
+    void testActualizacion() {
+        EstacionBicicletas origen = estacion("A", 2);
+        EstacionBicicletas destino = estacion("B", 6);
+        indice.registrar(origen);
+        indice.registrar(destino);
+
+        // Un viaje alquila en el origen y reserva espacio en el destino
+        origen.reservarViaje(destino, "usuario");
+        origen.reservarViaje(destino, "usuario");
+        List<String> vacias = indice.masVacias(1);
+        int espacioDestino = indice.espacio("B");
+
+        // La retirada para reubicación devuelve espacio
+        destino.listaReubicacion(6);
+
+        assertAll("Los valores deben seguir a las estaciones",
+                () -> assertEquals(List.of("A"), vacias, "A debe ser la más vacía"),
+                () -> assertEquals(0, indice.disponibles("A"), "A no debe tener disponibles"),
+                () -> assertEquals(2, espacioDestino, "B debe tener 2 espacios tras las reservas"),
+                () -> assertEquals(0, indice.disponibles("B"), "B no debe tener disponibles"),
+                () -> assertEquals(8, indice.espacio("B"), "B debe recuperar 6 espacios"),
+                () -> assertEquals(List.of("A", "B"), indice.masVacias(2), "El empate se resuelve por id")
+        );
+    }
+
+    @Test
+    @DisplayName("El índice mantiene el orden con muchos cambios")
+    void testMuchosCambios() {
+        List<EstacionBicicletas> estaciones = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            EstacionBicicletas nueva = estacion(String.format("E%02d", i), 1 + i % 9);
+            estaciones.add(nueva);
+            indice.registrar(nueva);
+        }
+        for (int i = 0; i < 50; i += 3) {
+            estaciones.get(i).listaReubicacion(1);
+        }
+
+        List<String> esperadas = estaciones.stream()
+                .sorted((e1, e2) -> e1.getDisponibles() != e2.getDisponibles() ?
+                        Integer.compare(e1.getDisponibles(), e2.getDisponibles()) : e1.getId().compareTo(e2.getId()))
+                .limit(10)
+                .map(EstacionBicicletas::getId)
+                .toList();
+
+        assertEquals(esperadas, indice.masVacias(10), "El índice debe coincidir con una ordenación completa");
+        assertThrows(IllegalArgumentException.class, () -> indice.registrar(null),
+                "Debe lanzar excepción si la estación es null");
+    }
+}
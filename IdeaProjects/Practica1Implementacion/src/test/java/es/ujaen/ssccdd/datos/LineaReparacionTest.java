@@ -0,0 +1,128 @@
+package es.ujaen.ssccdd.datos;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static es.ujaen.ssccdd.Constantes.EtapaReparacion;
+import static es.ujaen.ssccdd.Constantes.TipoBicicletas.NORMAL;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Tests para la clase LineaReparacion")
+class LineaReparacionTest {
+
+    private LineaReparacion linea;
+
+    @AfterEach
+    void tearDown() {
+        if (linea != null) {
+            linea.detener();
+        }
+    }
+
+    private static List<Bicicleta> bicicletas(int numBicicletas) {
+        List<Bicicleta> resultado = new ArrayList<>();
+        for (int i = 0; i < numBicicletas; i++) {
+            resultado.add(new Bicicleta("bici-" + i, NORMAL));
+        }
+        return resultado;
+    }
+
+    @Test
+    @DisplayName("Las bicicletas recorren todas las etapas hasta la salida")
+    void testRecorrido() throws InterruptedException {
+        LinkedBlockingQueue<Bicicleta> salida = new LinkedBlockingQueue<>();
+        linea = new LineaReparacion(ZonaMantenimiento.trabajadoresPorEtapa(2), 4, etapa -> 1, salida::add);
+        List<Bicicleta> averiadas = bicicletas(10);
+        List<Bicicleta> esperadas = List.copyOf(averiadas);
+
+        boolean iniciada = linea.iniciar();
+        linea.ingresar(averiadas);
+        List<Bicicleta> reparadas = new ArrayList<>();
+        for (int i = 0; i < esperadas.size(); i++) {
+            reparadas.add(salida.poll(5, TimeUnit.SECONDS));
+        }
+
+        assertAll("Todas las bicicletas deben repararse",
+                () -> assertTrue(iniciada, "La línea debe ponerse en marcha"),
+                () -> assertFalse(linea.iniciar(), "No debe ponerse en marcha dos veces"),
+                () -> assertTrue(averiadas.isEmpty(), "La lista entregada debe vaciarse"),
+                () -> assertTrue(reparadas.containsAll(esperadas), "Deben salir todas las bicicletas"),
+                () -> assertEquals(10, linea.getReparadas(), "Deben contarse 10 reparadas"),
+                () -> {
+                    for (EtapaReparacion etapa : EtapaReparacion.values()) {
+                        assertEquals(10, linea.procesadas(etapa), "Cada etapa debe procesar 10 bicicletas");
+                    }
+                },
+                () -> assertTrue(linea.ritmoSalida() > 0, "Debe medirse el ritmo de salida")
+        );
+    }
+
+    @Test
+    @DisplayName("La etapa más lenta por trabajador es el cuello de botella")
+    void testCuelloBotella() throws InterruptedException {
+        LinkedBlockingQueue<Bicicleta> salida = new LinkedBlockingQueue<>();
+        Map<EtapaReparacion, Integer> trabajadores = new EnumMap<>(ZonaMantenimiento.trabajadoresPorEtapa(2));
+        trabajadores.put(EtapaReparacion.REPARACION, 1);
+        linea = new LineaReparacion(trabajadores, 8, etapa -> etapa == EtapaReparacion.REPARACION ? 20 : 1, salida::add);
+
+        linea.iniciar();
+        linea.ingresar(bicicletas(6));
+        for (int i = 0; i < 6; i++) {
+            assertNotNull(salida.poll(5, TimeUnit.SECONDS), "Deben salir todas las bicicletas");
+        }
+
+        assertAll("La reparación con un trabajador debe limitar la línea",
+                () -> assertEquals(EtapaReparacion.REPARACION, linea.cuelloBotella(), "La reparación es la más lenta"),
+                () -> assertTrue(linea.ocupacion(EtapaReparacion.REPARACION) > linea.ocupacion(EtapaReparacion.INGRESO),
+                        "La reparación debe estar más ocupada que el ingreso"),
+                () -> assertEquals(1, linea.trabajadores(EtapaReparacion.REPARACION), "La reparación tiene 1 trabajador")
+        );
+    }
+
+    @Test
+    @DisplayName("Al detener la línea no se pierde la bicicleta que tiene un trabajador")
+    void testDetenerConserva() throws InterruptedException {
+        linea = new LineaReparacion(ZonaMantenimiento.trabajadoresPorEtapa(1), 4, etapa -> 10_000, bicicleta -> {});
+
+        linea.iniciar();
+        linea.ingresar(bicicletas(3));
+        for (int i = 0; i < 500 && linea.enCola(EtapaReparacion.INGRESO) == 3; i++) {
+            Thread.sleep(10);
+        }
+        int conTrabajador = linea.enCola(EtapaReparacion.INGRESO);
+        linea.detener();
+        for (int i = 0; i < 500 && linea.enCola(EtapaReparacion.INGRESO) < 3; i++) {
+            Thread.sleep(10);
+        }
+
+        assertAll("La bicicleta en reparación debe volver a su cola",
+                () -> assertEquals(2, conTrabajador, "Un trabajador debe haber tomado una bicicleta"),
+                () -> assertEquals(3, linea.enCola(EtapaReparacion.INGRESO), "Deben quedar las 3 bicicletas en la cola"),
+                () -> assertEquals(0, linea.getReparadas(), "No debe haberse reparado ninguna")
+        );
+    }
+
+    @Test
+    @DisplayName("Validación de la configuración")
+    void testConfiguracionInvalida() {
+        Map<EtapaReparacion, Integer> sinControl = new EnumMap<>(ZonaMantenimiento.trabajadoresPorEtapa(1));
+        sinControl.remove(EtapaReparacion.CONTROL_CALIDAD);
+
+        assertAll("La configuración inválida debe rechazarse",
+                () -> assertThrows(IllegalArgumentException.class,
+                        () -> new LineaReparacion(sinControl, 4, etapa -> 1, bicicleta -> {}),
+                        "Todas las etapas deben tener trabajadores"),
+                () -> assertThrows(IllegalArgumentException.class,
+                        () -> new LineaReparacion(ZonaMantenimiento.trabajadoresPorEtapa(1), 0, etapa -> 1, bicicleta -> {}),
+                        "Las colas deben tener capacidad")
+        );
+    }
+}
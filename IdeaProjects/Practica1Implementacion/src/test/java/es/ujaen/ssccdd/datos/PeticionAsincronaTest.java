@@ -0,0 +1,103 @@
+package es.ujaen.ssccdd.datos;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+
+import static es.ujaen.ssccdd.Constantes.ResultadoPeticion.*;
+import static es.ujaen.ssccdd.Constantes.TipoBicicletas.NORMAL;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Tests para la clase PeticionAsincrona")
+class PeticionAsincronaTest {
+
+    private static final String TEST_ID = "usuario-1";
+    private static final String ORIGEN_ID = "estacion-1";
+    private static final String DESTINO_ID = "estacion-2";
+    private PeticionAsincrona peticion;
+
+    @BeforeEach
+    void setUp() {
+        peticion = new PeticionAsincrona(TEST_ID, ORIGEN_ID, DESTINO_ID);
+    }
+
+    @Test
+    @DisplayName("La petición se crea pendiente de resolver")
+    void testPeticionPendiente() {
+        assertAll("La petición nueva no está resuelta",
+                () -> assertEquals(1, peticion.getBicicletasPeticion(), "Debe pedir una bicicleta"),
+                () -> assertFalse(peticion.getResolucion().isDone(), "El futuro no debe estar completado"),
+                () -> assertNull(peticion.semResolucion(), "No necesita semáforo")
+        );
+    }
+
+    @Test
+    @DisplayName("La resolución con reserva completa el futuro")
+    void testResolverConReserva() {
+        ReservaViaje reserva = new ReservaViaje(ORIGEN_ID, DESTINO_ID, new Bicicleta(TEST_ID, NORMAL));
+        CompletableFuture<ResolucionPeticion> futuro = peticion.getResolucion();
+
+        peticion.resolver(reserva);
+        ResolucionPeticion resolucion = futuro.join();
+
+        assertAll("El futuro debe llevar la reserva",
+                () -> assertEquals(RESERVADA, resolucion.resultado(), "Debe estar reservada"),
+                () -> assertTrue(resolucion.resultado().isResuelta(), "Debe considerarse resuelta"),
+                () -> assertSame(reserva, resolucion.getReserva().orElseThrow(), "Debe tener la reserva"),
+                () -> assertSame(reserva, peticion.getReserva().orElseThrow(), "La petición también la tiene")
+        );
+    }
+
+    @Test
+    @DisplayName("Resultados sin reserva")
+    void testResultadosSinReserva() {
+        PeticionAsincrona aceptada = new PeticionAsincrona("gestor", ORIGEN_ID, DESTINO_ID, 3);
+        PeticionAsincrona caducada = new PeticionAsincrona("usuario-2", ORIGEN_ID, DESTINO_ID);
+
+        aceptada.resolver(null);
+        peticion.rechazar();
+        caducada.caducar();
+
+        assertAll("Cada resultado debe reflejarse en el futuro",
+                () -> assertEquals(ACEPTADA, aceptada.getResolucion().join().resultado(), "Debe estar aceptada"),
+                () -> assertEquals(RECHAZADA, peticion.getResolucion().join().resultado(), "Debe estar rechazada"),
+                () -> assertEquals(CADUCADA, caducada.getResolucion().join().resultado(), "Debe estar caducada"),
+                () -> assertFalse(caducada.getResolucion().join().resultado().isResuelta(), "No está resuelta"),
+                () -> assertTrue(peticion.getResolucion().join().getReserva().isEmpty(), "No debe tener reserva")
+        );
+    }
+
+    @Test
+    @DisplayName("La resolución solo se completa una vez")
+    void testResolucionUnica() {
+        peticion.rechazar();
+        peticion.caducar();
+
+        assertAll("Prevalece el primer resultado",
+                () -> assertEquals(RECHAZADA, peticion.getResolucion().join().resultado(), "Debe seguir rechazada"),
+                () -> assertThrows(IllegalArgumentException.class, () -> new ResolucionPeticion(RESERVADA),
+                        "Una petición reservada debe tener reserva")
+        );
+    }
+
+    @Test
+    @DisplayName("Cancelar el futuro cancela la petición")
+    void testCancelacion() {
+        PeticionAsincrona otra = new PeticionAsincrona("usuario-2", ORIGEN_ID, DESTINO_ID, 1,
+                Instant.now().plusSeconds(60));
+
+        peticion.getResolucion().cancel(false);
+        boolean cancelada = otra.cancelar();
+
+        assertAll("Las peticiones deben quedar terminadas",
+                () -> assertTrue(peticion.isTerminada(), "Cancelar el futuro termina la petición"),
+                () -> assertFalse(peticion.reclamar(), "No se puede reclamar una petición cancelada"),
+                () -> assertTrue(cancelada, "Debe poder cancelarse la petición"),
+                () -> assertTrue(otra.getResolucion().isCancelled(), "El futuro debe quedar cancelado"),
+                () -> assertTrue(otra.getPlazo().isPresent(), "Debe conservar su plazo")
+        );
+    }
+}
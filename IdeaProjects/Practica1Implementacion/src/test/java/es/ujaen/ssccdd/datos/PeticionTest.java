@@ -5,8 +5,11 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
+import java.time.Instant;
 import java.util.concurrent.Semaphore;
 
+import static es.ujaen.ssccdd.Constantes.ResultadoPeticion.CADUCADA;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 @DisplayName("Tests para la clase Peticion")
@@ -239,4 +242,81 @@ class PeticionTest {
                     "Debería poder adquirir un permiso después de liberarlo");
         }
     }
-}
\ No newline at end of file
+
+    @Nested
+    @DisplayName("Tests de la reserva asociada")
+    class ReservaTests {
+
+        @Test
+        @DisplayName("La reserva se asocia a la petición al resolverla")
+        void testReserva() {
+            ReservaViaje reserva = new ReservaViaje(ORIGEN_ID, DESTINO_ID,
+                    new Bicicleta(TEST_ID, es.ujaen.ssccdd.Constantes.TipoBicicletas.NORMAL));
+
+            assertFalse(peticionBase.getReserva().isPresent(), "Una petición nueva no tiene reserva");
+
+            peticionBase.setReserva(reserva);
+
+            assertAll("La reserva debe quedar asociada",
+                    () -> assertTrue(peticionBase.getReserva().isPresent(), "Debe tener reserva"),
+                    () -> assertSame(reserva, peticionBase.getReserva().get(), "Debe ser la reserva asociada"),
+                    () -> assertEquals(TEST_ID, peticionBase.getReserva().get().idBicicleta(), "El id de la bicicleta"),
+                    () -> assertThrows(NullPointerException.class, () -> new ReservaViaje(null, DESTINO_ID, null),
+                            "La reserva debe tener sus datos definidos")
+            );
+        }
+    }
+
+    @Nested
+    @DisplayName("Tests del plazo y la terminación")
+    class PlazoTests {
+
+        @Test
+        @DisplayName("Una petición con plazo vencido está vencida")
+        void testPlazo() {
+            Peticion vencida = new Peticion(TEST_ID, ORIGEN_ID, DESTINO_ID, NUM_BICICLETAS, semaforo,
+                    Instant.now().minusSeconds(1));
+            Peticion vigente = new Peticion(TEST_ID, ORIGEN_ID, DESTINO_ID, NUM_BICICLETAS, semaforo,
+                    Instant.now().plusSeconds(60));
+
+            assertAll("El plazo debe comprobarse correctamente",
+                    () -> assertTrue(vencida.isVencida(), "La petición con plazo pasado debe estar vencida"),
+                    () -> assertFalse(vigente.isVencida(), "La petición con plazo futuro no debe estar vencida"),
+                    () -> assertFalse(peticionBase.isVencida(), "Una petición sin plazo nunca vence"),
+                    () -> assertTrue(peticionBase.getPlazo().isEmpty(), "La petición base no tiene plazo"),
+                    () -> assertThrows(IllegalArgumentException.class,
+                            () -> new Peticion(TEST_ID, ORIGEN_ID, DESTINO_ID, NUM_BICICLETAS, semaforo, null),
+                            "El plazo debe estar definido")
+            );
+        }
+
+        @Test
+        @DisplayName("Solo se puede reclamar una vez")
+        void testReclamar() {
+            boolean primera = peticionBase.reclamar();
+            boolean segunda = peticionBase.reclamar();
+
+            assertAll("La petición solo puede terminarse una vez",
+                    () -> assertTrue(primera, "La primera reclamación debe tener éxito"),
+                    () -> assertFalse(segunda, "La segunda reclamación debe fallar"),
+                    () -> assertTrue(peticionBase.isTerminada(), "La petición debe estar terminada"),
+                    () -> assertFalse(peticionBase.cancelar(), "No se puede cancelar una petición terminada")
+            );
+        }
+
+        @Test
+        @DisplayName("La caducidad avisa al solicitante con el resultado")
+        void testCaducar() {
+            assertTrue(peticionBase.getResultado().isEmpty(), "Sin terminar no tiene resultado");
+
+            peticionBase.reclamar();
+            peticionBase.caducar();
+
+            assertAll("El solicitante debe recibir el aviso",
+                    () -> assertEquals(CADUCADA, peticionBase.getResultado().orElseThrow(), "Debe estar caducada"),
+                    () -> assertTrue(peticionBase.getReserva().isEmpty(), "No debe tener reserva"),
+                    () -> assertTrue(semaforo.tryAcquire(), "Debe liberarse el semáforo del solicitante")
+            );
+        }
+    }
+}
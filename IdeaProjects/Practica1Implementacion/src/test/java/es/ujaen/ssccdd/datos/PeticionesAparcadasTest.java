@@ -0,0 +1,88 @@
+package es.ujaen.ssccdd.datos;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Tests para la clase PeticionesAparcadas")
+class PeticionesAparcadasTest {
+
+    private PeticionesAparcadas aparcadas;
+    private Semaphore semaforo;
+
+    @BeforeEach
+    void setUp() {
+        aparcadas = new PeticionesAparcadas();
+        semaforo = new Semaphore(0);
+    }
+
+    @Test
+    @DisplayName("La reactivación devuelve todas las peticiones de la estación en orden de llegada")
+    void testReactivar() {
+        Peticion primera = new Peticion("usuario-1", "A", "B", 1, semaforo);
+        Peticion terminada = new Peticion("usuario-2", "A", "C", 1, semaforo);
+        Peticion segunda = new Peticion("usuario-3", "A", "D", 1, semaforo);
+        Peticion otraEstacion = new Peticion("usuario-4", "E", "B", 1, semaforo);
+
+        aparcadas.aparcar("A", primera);
+        aparcadas.aparcar("A", terminada);
+        aparcadas.aparcar("A", segunda);
+        aparcadas.aparcar("E", otraEstacion);
+        boolean repetida = aparcadas.aparcar("A", primera);
+        terminada.cancelar();
+
+        List<Peticion> reactivadas = aparcadas.reactivar("A");
+
+        assertAll("Deben reactivarse las peticiones de la estación, también las terminadas",
+                () -> assertFalse(repetida, "Una petición no se aparca dos veces"),
+                () -> assertEquals(List.of(primera, terminada, segunda), reactivadas, "En orden de llegada"),
+                () -> assertTrue(reactivadas.get(1).isTerminada(), "La terminada debe poder descartarse"),
+                () -> assertEquals(0, aparcadas.aparcadas("A"), "La estación debe quedar sin peticiones"),
+                () -> assertEquals(1, aparcadas.size(), "Solo debe quedar la petición de la otra estación"),
+                () -> assertTrue(aparcadas.reactivar("X").isEmpty(), "Una estación sin peticiones no reactiva nada")
+        );
+    }
+
+    @Test
+    @DisplayName("Las peticiones caducadas se retiran aunque su estación no cambie")
+    void testRetirarCaducadas() {
+        final int numPeticiones = 10_000;
+        Peticion vigente = new Peticion("vigente", "A", "B", 1, semaforo);
+
+        for (int i = 0; i < numPeticiones; i++) {
+            Peticion peticion = new Peticion("usuario-" + i, "A", "B", 1, semaforo);
+            aparcadas.aparcar("A", peticion);
+            if (i == numPeticiones / 2) {
+                aparcadas.aparcar("A", vigente);
+            }
+
+            // El plazo vence sin que la estación A reciba bicicletas
+            peticion.reclamar();
+            peticion.caducar();
+            aparcadas.retirar(peticion);
+        }
+        boolean yaRetirada = aparcadas.retirar(new Peticion("otro", "A", "B", 1, semaforo));
+
+        assertAll("Solo debe quedar aparcada la petición vigente",
+                () -> assertEquals(1, aparcadas.aparcadas("A"), "No deben acumularse las caducadas"),
+                () -> assertEquals(1, aparcadas.size(), "Debe quedar 1 petición aparcada"),
+                () -> assertFalse(yaRetirada, "No puede retirarse una petición que no está aparcada"),
+                () -> assertEquals(List.of(vigente), aparcadas.reactivar("A"), "Debe reactivarse la vigente")
+        );
+    }
+
+    @Test
+    @DisplayName("Validación de los argumentos")
+    void testArgumentosInvalidos() {
+        assertAll("Los argumentos inválidos deben rechazarse",
+                () -> assertThrows(IllegalArgumentException.class, () -> aparcadas.aparcar(null,
+                        new Peticion("usuario-1", "A", "B", 1, semaforo))),
+                () -> assertThrows(IllegalArgumentException.class, () -> aparcadas.aparcar("A", null))
+        );
+    }
+}
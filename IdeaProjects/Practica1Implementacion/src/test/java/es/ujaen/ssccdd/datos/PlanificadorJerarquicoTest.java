@@ -0,0 +1,98 @@
+package es.ujaen.ssccdd.datos;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Tests para la clase PlanificadorJerarquico")
+class PlanificadorJerarquicoTest {
+
+    /** Las estaciones se nombran "zona/estacion" */
+    private static String zona(String idEstacion) {
+        return idEstacion.substring(0, idEstacion.indexOf('/'));
+    }
+
+    private static Map<String, Integer> aplicar(Map<String, Integer> balances,
+                                                List<PlanificadorRedistribucion.Movimiento> plan) {
+        Map<String, Integer> resultado = new HashMap<>(balances);
+        for (PlanificadorRedistribucion.Movimiento movimiento : plan) {
+            resultado.merge(movimiento.idOrigen(), -movimiento.numBicicletas(), Integer::sum);
+            resultado.merge(movimiento.idDestino(), movimiento.numBicicletas(), Integer::sum);
+        }
+        return resultado;
+    }
+
+    @Test
+    @DisplayName("Los déficits se cubren primero dentro de cada zona")
+    void testPlanLocal() {
+        PlanificadorJerarquico planificador = new PlanificadorJerarquico(PlanificadorJerarquicoTest::zona);
+
+        List<PlanificadorRedistribucion.Movimiento> plan = planificador.planificar(
+                Map.of("norte/A", 4, "norte/B", -4, "sur/C", 3, "sur/D", -3));
+
+        assertAll("No debe haber movimientos entre zonas",
+                () -> assertEquals(2, plan.size(), "Debe haber un movimiento por zona"),
+                () -> assertTrue(plan.contains(new PlanificadorRedistribucion.Movimiento("norte/A", "norte/B", 4)),
+                        "A debe abastecer a B"),
+                () -> assertTrue(plan.contains(new PlanificadorRedistribucion.Movimiento("sur/C", "sur/D", 3)),
+                        "C debe abastecer a D")
+        );
+    }
+
+    @Test
+    @DisplayName("Lo que no se cubre en una zona se reparte desde otras zonas")
+    void testPlanEntreZonas() {
+        PlanificadorJerarquico planificador = new PlanificadorJerarquico(PlanificadorJerarquicoTest::zona);
+        Map<String, Integer> balances = Map.of("norte/A", 6, "norte/B", -2, "sur/C", -3, "sur/D", -1, "este/E", 2);
+
+        List<PlanificadorRedistribucion.Movimiento> plan = planificador.planificar(balances);
+        Map<String, Integer> resultado = aplicar(balances, plan);
+
+        assertAll("Todos los déficits deben cubrirse con los excedentes",
+                () -> assertTrue(plan.contains(new PlanificadorRedistribucion.Movimiento("norte/A", "norte/B", 2)),
+                        "B debe abastecerse dentro de su zona"),
+                () -> assertTrue(resultado.values().stream().allMatch(balance -> balance >= 0),
+                        "No debe quedar ningún déficit"),
+                () -> assertEquals(2, resultado.values().stream().mapToInt(Integer::intValue).sum(),
+                        "Solo deben sobrar las bicicletas que nadie necesita"),
+                () -> assertTrue(plan.stream().allMatch(m -> m.numBicicletas() > 0),
+                        "Todos los movimientos deben mover bicicletas")
+        );
+    }
+
+    @Test
+    @DisplayName("El plan mueve las mismas bicicletas que el plan global")
+    void testMismasBicicletas() {
+        Map<String, Integer> balances = new HashMap<>();
+        for (int i = 0; i < 200; i++) {
+            balances.put("zona" + (i % 7) + "/" + i, (i % 3 == 0) ? i % 5 + 1 : -(i % 4));
+        }
+        PlanificadorJerarquico jerarquico = new PlanificadorJerarquico(PlanificadorJerarquicoTest::zona);
+        PlanificadorRedistribucion global = new PlanificadorRedistribucion();
+
+        int totalJerarquico = jerarquico.planificar(balances).stream()
+                .mapToInt(PlanificadorRedistribucion.Movimiento::numBicicletas).sum();
+        int totalGlobal = global.planificar(balances).stream()
+                .mapToInt(PlanificadorRedistribucion.Movimiento::numBicicletas).sum();
+
+        assertEquals(totalGlobal, totalJerarquico, "Ambos planes deben mover las mismas bicicletas");
+    }
+
+    @Test
+    @DisplayName("Validación de los argumentos")
+    void testArgumentosInvalidos() {
+        PlanificadorJerarquico planificador = new PlanificadorJerarquico(PlanificadorJerarquicoTest::zona);
+
+        assertAll("Los argumentos inválidos deben rechazarse",
+                () -> assertThrows(NullPointerException.class, () -> new PlanificadorJerarquico(null),
+                        "La función de zona es obligatoria"),
+                () -> assertTrue(planificador.planificar(Map.of("norte/A", 3)).isEmpty(),
+                        "Sin déficits el plan está vacío")
+        );
+    }
+}
@@ -0,0 +1,87 @@
+package es.ujaen.ssccdd.datos;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Tests para la clase PlanificadorPeticiones")
+class PlanificadorPeticionesTest {
+
+    private Semaphore semaforo;
+
+    @BeforeEach
+    void setUp() {
+        semaforo = new Semaphore(0);
+    }
+
+    private Peticion peticion(String id, String origen) {
+        return new Peticion(id, origen, "destino", 1, semaforo);
+    }
+
+    @Test
+    @DisplayName("Las peticiones satisfacibles pasan antes que las insatisfacibles")
+    void testPrioridadSatisfacibles() {
+        PlanificadorPeticiones planificador = new PlanificadorPeticiones(p -> !p.getOrigen().equals("vacia"), 60_000);
+        Peticion imposible1 = peticion("imposible-1", "vacia");
+        Peticion posible1 = peticion("posible-1", "llena");
+        Peticion imposible2 = peticion("imposible-2", "vacia");
+        Peticion posible2 = peticion("posible-2", "llena");
+
+        planificador.anadirTodas(List.of(imposible1, posible1, imposible2, posible2));
+        List<Peticion> lote = new ArrayList<>();
+        int extraidas = planificador.extraer(lote, 10);
+
+        assertAll("Primero las satisfacibles y cada grupo por antigüedad",
+                () -> assertEquals(4, extraidas, "Deben extraerse las 4 peticiones"),
+                () -> assertEquals(List.of(posible1, posible2, imposible1, imposible2), lote, "Orden de prioridad"),
+                () -> assertTrue(planificador.isEmpty(), "El planificador debe quedar vacío")
+        );
+    }
+
+    @Test
+    @DisplayName("Sin penalización el orden es el de llegada")
+    void testOrdenLlegada() {
+        PlanificadorPeticiones planificador = new PlanificadorPeticiones(p -> !p.getOrigen().equals("vacia"), 0);
+        Peticion imposible = peticion("imposible", "vacia");
+        Peticion posible = peticion("posible", "llena");
+
+        planificador.anadir(imposible);
+        planificador.anadir(posible);
+        List<Peticion> lote = new ArrayList<>();
+        planificador.extraer(lote, 1);
+
+        assertAll("Se respeta la llegada y el máximo del lote",
+                () -> assertEquals(List.of(imposible), lote, "Debe salir primero la más antigua"),
+                () -> assertEquals(1, planificador.size(), "Debe quedar 1 petición")
+        );
+    }
+
+    @Test
+    @DisplayName("Una petición penalizada acaba pasando por antigüedad")
+    void testEnvejecimiento() throws InterruptedException {
+        PlanificadorPeticiones planificador = new PlanificadorPeticiones(p -> !p.getOrigen().equals("vacia"), 1);
+        Peticion imposible = peticion("imposible", "vacia");
+        TimeUnit.MILLISECONDS.sleep(20);
+        Peticion posible = peticion("posible", "llena");
+
+        planificador.anadir(posible);
+        planificador.anadir(imposible);
+        List<Peticion> lote = new ArrayList<>();
+        planificador.extraer(lote, 2);
+
+        assertAll("La antigüedad compensa la penalización",
+                () -> assertEquals(List.of(imposible, posible), lote, "La antigua debe pasar primero"),
+                () -> assertThrows(IllegalArgumentException.class, () -> new PlanificadorPeticiones(null, 0),
+                        "El criterio debe estar definido"),
+                () -> assertThrows(IllegalArgumentException.class, () -> new PlanificadorPeticiones(p -> true, -1),
+                        "La penalización no puede ser negativa")
+        );
+    }
+}
@@ -0,0 +1,97 @@
+package es.ujaen.ssccdd.datos;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Tests para la clase PlanificadorRedistribucion")
+class PlanificadorRedistribucionTest {
+
+    private static int totalBicicletas(List<PlanificadorRedistribucion.Movimiento> plan) {
+        return plan.stream().mapToInt(PlanificadorRedistribucion.Movimiento::numBicicletas).sum();
+    }
+
+    @Test
+    @DisplayName("El plan cubre los déficits con los excedentes")
+    void testCubrirDeficits() {
+        PlanificadorRedistribucion planificador = new PlanificadorRedistribucion();
+
+        List<PlanificadorRedistribucion.Movimiento> plan = planificador.planificar(
+                Map.of("A", 5, "B", 3, "X", -4, "Y", -2));
+
+        assertAll("Deben moverse solo las bicicletas que faltan",
+                () -> assertEquals(6, totalBicicletas(plan), "Deben moverse 6 bicicletas"),
+                () -> assertTrue(plan.stream().allMatch(m -> m.idOrigen().equals("A") || m.idOrigen().equals("B")),
+                        "Los orígenes deben tener excedente"),
+                () -> assertEquals(4, plan.stream().filter(m -> m.idDestino().equals("X"))
+                        .mapToInt(PlanificadorRedistribucion.Movimiento::numBicicletas).sum(), "X debe recibir 4"),
+                () -> assertEquals(2, plan.stream().filter(m -> m.idDestino().equals("Y"))
+                        .mapToInt(PlanificadorRedistribucion.Movimiento::numBicicletas).sum(), "Y debe recibir 2")
+        );
+    }
+
+    @Test
+    @DisplayName("Con excedente insuficiente se mueve todo lo que sobra")
+    void testExcedenteInsuficiente() {
+        PlanificadorRedistribucion planificador = new PlanificadorRedistribucion();
+
+        List<PlanificadorRedistribucion.Movimiento> plan = planificador.planificar(Map.of("A", 3, "X", -5, "Y", -4));
+
+        assertAll("No se pueden mover más bicicletas de las que sobran",
+                () -> assertEquals(3, totalBicicletas(plan), "Deben moverse las 3 bicicletas de A"),
+                () -> assertTrue(plan.stream().allMatch(m -> m.idOrigen().equals("A")), "El único origen es A")
+        );
+    }
+
+    @Test
+    @DisplayName("El plan minimiza la distancia recorrida")
+    void testDistanciaMinima() {
+        // A está cerca de X y B de Y, pero el reparto sin distancias podría cruzarlos
+        Map<String, Integer> cerca = Map.of("A->X", 1, "B->Y", 1);
+        PlanificadorRedistribucion planificador = new PlanificadorRedistribucion(
+                (origen, destino) -> cerca.getOrDefault(origen + "->" + destino, 10));
+
+        List<PlanificadorRedistribucion.Movimiento> plan = planificador.planificar(
+                Map.of("A", 4, "B", 4, "X", -4, "Y", -4));
+
+        assertAll("Cada estación debe abastecerse desde la más cercana",
+                () -> assertEquals(2, plan.size(), "Debe haber 2 movimientos"),
+                () -> assertTrue(plan.contains(new PlanificadorRedistribucion.Movimiento("A", "X", 4)),
+                        "A debe abastecer a X"),
+                () -> assertTrue(plan.contains(new PlanificadorRedistribucion.Movimiento("B", "Y", 4)),
+                        "B debe abastecer a Y")
+        );
+    }
+
+    @Test
+    @DisplayName("Los movimientos se ordenan de mayor a menor número de bicicletas")
+    void testOrdenMovimientos() {
+        PlanificadorRedistribucion planificador = new PlanificadorRedistribucion();
+
+        List<PlanificadorRedistribucion.Movimiento> plan = planificador.planificar(
+                Map.of("A", 2, "B", 7, "X", -2, "Y", -7));
+
+        for (int i = 1; i < plan.size(); i++) {
+            assertTrue(plan.get(i - 1).numBicicletas() >= plan.get(i).numBicicletas(),
+                    "Los movimientos deben estar ordenados");
+        }
+    }
+
+    @Test
+    @DisplayName("Sin excedentes o sin déficits el plan está vacío")
+    void testPlanVacio() {
+        PlanificadorRedistribucion planificador = new PlanificadorRedistribucion();
+
+        assertAll("No hay nada que redistribuir",
+                () -> assertTrue(planificador.planificar(Map.of()).isEmpty(), "Sin estaciones"),
+                () -> assertTrue(planificador.planificar(Map.of("A", 5, "B", 2)).isEmpty(), "Sin déficits"),
+                () -> assertTrue(planificador.planificar(Map.of("X", -5, "Y", 0)).isEmpty(), "Sin excedentes"),
+                () -> assertThrows(NullPointerException.class, () -> new PlanificadorRedistribucion(null),
+                        "La función de distancia es obligatoria")
+        );
+    }
+}
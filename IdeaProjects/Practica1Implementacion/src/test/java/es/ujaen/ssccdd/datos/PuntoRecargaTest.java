@@ -435,4 +435,69 @@ public class PuntoRecargaTest {
             }
         }
     }
-}
\ No newline at end of file
+
+    @Nested
+    @DisplayName("Pruebas de los cargadores")
+    class PruebasCargadores {
+
+        @Test
+        @DisplayName("Cada bicicleta ocupa un cargador distinto que se libera al finalizar la carga")
+        void testCargadores() {
+            Bicicleta primera = new Bicicleta("", ELECTRICA);
+            Bicicleta segunda = new Bicicleta("", ELECTRICA);
+
+            int cargadorPrimera = puntoRecarga.iniciarCarga(primera);
+            int cargadorSegunda = puntoRecarga.iniciarCarga(segunda);
+
+            assertAll("Verificación de la ocupación de los cargadores",
+                    () -> assertNotEquals(cargadorPrimera, cargadorSegunda, "Las bicicletas deben ocupar cargadores distintos"),
+                    () -> assertEquals(2, puntoRecarga.cargadoresOcupados(), "Debe haber 2 cargadores ocupados"),
+                    () -> assertEquals(cargadorSegunda, puntoRecarga.cargadorDe(segunda.getId()),
+                            "Debe conocerse el cargador de cada bicicleta"),
+                    () -> assertSame(primera, puntoRecarga.bicicletaEnCargador(cargadorPrimera).orElseThrow(),
+                            "El cargador debe tener la bicicleta depositada, sin copiarla")
+            );
+
+            puntoRecarga.finalizadaCarga(primera.getId());
+
+            assertAll("Verificación de la liberación del cargador",
+                    () -> assertEquals(1, puntoRecarga.cargadoresOcupados(), "Debe quedar 1 cargador ocupado"),
+                    () -> assertTrue(puntoRecarga.bicicletaEnCargador(cargadorPrimera).isEmpty(), "El cargador debe quedar libre"),
+                    () -> assertEquals(-1, puntoRecarga.cargadorDe(primera.getId()), "La bicicleta ya no está cargando"),
+                    () -> assertTrue(puntoRecarga.finalizadaCarga(primera.getId()).isEmpty(),
+                            "No puede finalizarse dos veces la misma carga")
+            );
+        }
+
+        @Test
+        @DisplayName("Una bicicleta que ya está cargando no ocupa otro cargador")
+        void testCargaDuplicada() {
+            Bicicleta bicicleta = new Bicicleta("", ELECTRICA);
+            int cargador = puntoRecarga.iniciarCarga(bicicleta);
+
+            assertAll("Verificación del rechazo de la carga duplicada",
+                    () -> assertThrows(IllegalStateException.class, () -> puntoRecarga.iniciarCarga(bicicleta),
+                            "Debe rechazarse la segunda carga de la misma bicicleta"),
+                    () -> assertEquals(1, puntoRecarga.cargadoresOcupados(), "Debe seguir ocupado un único cargador"),
+                    () -> assertEquals(cargador, puntoRecarga.cargadorDe(bicicleta.getId()),
+                            "La bicicleta debe conservar su cargador")
+            );
+        }
+
+        @Test
+        @DisplayName("No se puede iniciar una carga sin cargadores libres")
+        void testSinCargadoresLibres() {
+            for (int i = 0; i < puntoRecarga.getNumCargadores(); i++) {
+                puntoRecarga.iniciarCarga(new Bicicleta("", ELECTRICA));
+            }
+
+            assertAll("Verificación del punto de recarga lleno",
+                    () -> assertTrue(puntoRecarga.getNumCargadores() >= CAPACIDAD_TEST,
+                            "Debe haber un cargador por cada permiso de depósito"),
+                    () -> assertThrows(IllegalStateException.class,
+                            () -> puntoRecarga.iniciarCarga(new Bicicleta("", ELECTRICA)),
+                            "Debe rechazarse la carga sin cargadores libres")
+            );
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package es.ujaen.ssccdd.datos;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static es.ujaen.ssccdd.Constantes.TipoBicicletas;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Tests para la clase RedMantenimiento")
+class RedMantenimientoTest {
+
+    private ZonaMantenimiento norte;
+    private ZonaMantenimiento sur;
+
+    @BeforeEach
+    void setUp() {
+        norte = new ZonaMantenimiento();
+        sur = new ZonaMantenimiento();
+    }
+
+    private static List<Bicicleta> bicicletas(int numBicicletas) {
+        List<Bicicleta> resultado = new ArrayList<>();
+        for (int i = 0; i < numBicicletas; i++) {
+            resultado.add(new Bicicleta("bici-" + i, TipoBicicletas.NORMAL));
+        }
+        return resultado;
+    }
+
+    @Nested
+    @DisplayName("Tests del constructor")
+    class ConstructorTests {
+
+        @Test
+        @DisplayName("Las zonas se identifican por su id")
+        void testZonas() {
+            RedMantenimiento red = new RedMantenimiento(List.of(norte, sur));
+
+            assertAll("La red debe contener las dos zonas",
+                    () -> assertEquals(2, red.size(), "Debe haber 2 zonas"),
+                    () -> assertSame(norte, red.getZona(norte.getId()), "Debe encontrarse la zona norte"),
+                    () -> assertTrue(red.contiene(sur.getId()), "Debe contener la zona sur"),
+                    () -> assertNull(red.getZona("estacion-1"), "Una estación no es una zona"),
+                    () -> assertEquals(List.of(norte, sur), new ArrayList<>(red.getZonas()), "Deben mantener el orden de alta")
+            );
+        }
+
+        @Test
+        @DisplayName("Debe haber al menos una zona")
+        void testSinZonas() {
+            assertAll("Las zonas inválidas deben rechazarse",
+                    () -> assertThrows(IllegalArgumentException.class, () -> new RedMantenimiento(List.of())),
+                    () -> assertThrows(IllegalArgumentException.class, () -> new RedMantenimiento(null)),
+                    () -> assertThrows(NullPointerException.class, () -> new RedMantenimiento(List.of(norte), null))
+            );
+        }
+
+        @Test
+        @DisplayName("El constructor por defecto crea NUM_ZONAS_MANTENIMIENTO zonas")
+        void testPorDefecto() {
+            assertEquals(es.ujaen.ssccdd.Constantes.NUM_ZONAS_MANTENIMIENTO, new RedMantenimiento().size());
+        }
+    }
+
+    @Nested
+    @DisplayName("Tests de la elección de zona")
+    class MasCercanaTests {
+
+        @Test
+        @DisplayName("Se elige la zona más cercana a la estación")
+        void testMasCercana() {
+            Map<String, String> zonaDe = Map.of("estacion-1", norte.getId(), "estacion-2", sur.getId());
+            RedMantenimiento red = new RedMantenimiento(List.of(norte, sur),
+                    (idEstacion, idZona) -> idZona.equals(zonaDe.get(idEstacion)) ? 1 : 10);
+
+            assertAll("Cada estación debe ir a su zona",
+                    () -> assertSame(norte, red.masCercana("estacion-1")),
+                    () -> assertSame(sur, red.masCercana("estacion-2"))
+            );
+        }
+
+        @Test
+        @DisplayName("A igual distancia se elige la zona con menos bicicletas")
+        void testEmpate() {
+            RedMantenimiento red = new RedMantenimiento(List.of(norte, sur));
+            norte.dejarBicicletas(bicicletas(3));
+
+            assertSame(sur, red.masCercana("estacion-1"), "Debe elegirse la zona sin bicicletas");
+        }
+    }
+
+    @Test
+    @DisplayName("Las bicicletas depositadas se suman en toda la red")
+    void testBicicletasDepositadas() {
+        RedMantenimiento red = new RedMantenimiento(List.of(norte, sur));
+        norte.dejarBicicletas(bicicletas(2));
+        sur.dejarBicicletas(bicicletas(3));
+
+        assertEquals(5, red.bicicletasDepositadas(), "Deben sumarse las bicicletas de las dos zonas");
+    }
+}
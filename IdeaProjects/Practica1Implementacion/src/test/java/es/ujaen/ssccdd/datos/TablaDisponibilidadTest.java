@@ -0,0 +1,100 @@
+package es.ujaen.ssccdd.datos;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static es.ujaen.ssccdd.datos.EstacionesPrueba.estacion;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Tests para la clase TablaDisponibilidad")
+class TablaDisponibilidadTest {
+
+    private TablaDisponibilidad tabla;
+    private EstacionBicicletas origen;
+    private EstacionBicicletas destino;
+
+    @BeforeEach
+    void setUp() {
+        tabla = new TablaDisponibilidad(2);
+        origen = estacion("A", 4);
+        destino = estacion("B", 2);
+        tabla.registrar(origen);
+        tabla.registrar(destino);
+    }
+
+    @Test
+    @DisplayName("El registro publica el estado inicial de la estación")
+    void testRegistro() {
+        TablaDisponibilidad.EstadoEstacion estado = tabla.leer("A");
+
+        assertAll("Los contadores deben ser los de la estación",
+                () -> assertEquals(new TablaDisponibilidad.EstadoEstacion(4, 0, 0, 0, 0, 6), estado,
+                        "A tiene 4 disponibles y 6 espacios"),
+                () -> assertEquals(2, tabla.size(), "Deben registrarse 2 estaciones"),
+                () -> assertTrue(tabla.contiene("B"), "B debe estar registrada"),
+                () -> assertThrows(IllegalArgumentException.class, () -> tabla.leer("X"),
+                        "Una estación sin registrar no puede leerse"),
+                () -> assertThrows(IllegalStateException.class, () -> tabla.registrar(estacion("C", 1)),
+                        "La tabla no admite más estaciones que su tamaño"),
+                () -> assertThrows(IllegalArgumentException.class, () -> new TablaDisponibilidad(0),
+                        "La tabla debe tener espacio para alguna estación")
+        );
+    }
+
+    @Test
+    @DisplayName("Cada cambio de las estaciones se publica en la tabla")
+    void testPublicacion() {
+        ReservaViaje reserva = origen.reservarViaje(destino, "usuario").orElseThrow();
+        TablaDisponibilidad.EstadoEstacion reservado = tabla.leer("A");
+        TablaDisponibilidad.EstadoEstacion enTransito = tabla.leer("B");
+
+        origen.recogerBicicleta(reserva.idBicicleta());
+        Map<String, TablaDisponibilidad.EstadoEstacion> instantanea = tabla.instantanea();
+
+        assertAll("La tabla debe seguir a las estaciones",
+                () -> assertEquals(new TablaDisponibilidad.EstadoEstacion(3, 1, 0, 0, 0, 6), reservado,
+                        "La reserva alquila una bicicleta de A"),
+                () -> assertEquals(new TablaDisponibilidad.EstadoEstacion(2, 0, 1, 0, 0, 7), enTransito,
+                        "La reserva ocupa un espacio en B"),
+                () -> assertEquals(List.of("A", "B"), List.copyOf(instantanea.keySet()), "En orden de registro"),
+                () -> assertEquals(7, instantanea.get("A").espacioLibre(), "La recogida libera un espacio en A"),
+                () -> assertFalse(instantanea.get("A").avisoMantenimiento(), "A no necesita mantenimiento")
+        );
+    }
+
+    @Test
+    @DisplayName("Las lecturas concurrentes obtienen siempre contadores de una misma publicación")
+    void testLecturaConsistente() throws InterruptedException {
+        AtomicBoolean terminar = new AtomicBoolean(false);
+        AtomicBoolean inconsistente = new AtomicBoolean(false);
+
+        // Las reservas y cancelaciones mantienen constante la suma de disponibles y alquiladas del origen
+        Thread escritor = new Thread(() -> {
+            for (int i = 0; i < 20_000; i++) {
+                origen.reservarViaje(destino, "usuario-" + i)
+                        .ifPresent(reserva -> origen.cancelarViaje(destino, reserva));
+            }
+            terminar.set(true);
+        });
+        Thread lector = new Thread(() -> {
+            while (!terminar.get()) {
+                TablaDisponibilidad.EstadoEstacion estado = tabla.leer("A");
+                if (estado.disponibles() + estado.alquiladas() != 4) {
+                    inconsistente.set(true);
+                }
+            }
+        });
+
+        lector.start();
+        escritor.start();
+        escritor.join(10_000);
+        lector.join(10_000);
+
+        assertFalse(inconsistente.get(), "No debe leerse una publicación a medias");
+    }
+}
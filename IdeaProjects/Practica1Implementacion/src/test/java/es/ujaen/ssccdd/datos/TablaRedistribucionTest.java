@@ -0,0 +1,140 @@
+package es.ujaen.ssccdd.datos;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Tests para la clase TablaRedistribucion")
+class TablaRedistribucionTest {
+
+    private static final int CAPACIDAD = 10;
+    private TablaRedistribucion tabla;
+
+    @BeforeEach
+    void setUp() {
+        tabla = new TablaRedistribucion(CAPACIDAD);
+    }
+
+    @Test
+    @DisplayName("Las solicitudes de una pareja pendiente actualizan su viaje hasta la capacidad del camión")
+    void testActualizarSolicitudes() {
+        boolean primera = tabla.solicitar("A", "B", 4);
+        boolean segunda = tabla.solicitar("A", "B", 3);
+        boolean otraPareja = tabla.solicitar("C", "D", 2);
+        Peticion viaje = tabla.tomar();
+        tabla.solicitar("C", "D", 15);
+        Peticion limitado = tabla.tomar();
+
+        assertAll("Debe haber un viaje por pareja con el objetivo más reciente",
+                () -> assertTrue(primera, "La primera solicitud crea un viaje"),
+                () -> assertFalse(segunda, "La segunda solicitud actualiza el viaje"),
+                () -> assertTrue(otraPareja, "Otra pareja crea su propio viaje"),
+                () -> assertEquals("A", viaje.getOrigen(), "Sale primero el viaje más antiguo"),
+                () -> assertEquals(3, viaje.getBicicletasPeticion(), "Debe tomar el objetivo más reciente sin sumar"),
+                () -> assertEquals(CAPACIDAD, limitado.getBicicletasPeticion(), "No debe superar la capacidad del camión"),
+                () -> assertEquals(2, tabla.getActualizadas(), "Deben actualizarse 2 viajes"),
+                () -> assertEquals(0, tabla.viajesPendientes(), "No debe quedar ningún viaje pendiente")
+        );
+    }
+
+    @Test
+    @DisplayName("Las solicitudes de una pareja en curso se descartan hasta que se resuelve")
+    void testViajeEnCurso() {
+        tabla.solicitar("A", "B", 4);
+        Peticion viaje = tabla.tomar();
+
+        boolean duranteViaje = tabla.solicitar("A", "B", 2);
+        int enCurso = tabla.viajesEnCurso();
+        viaje.reclamar();
+        viaje.resolver(null);
+        boolean trasViaje = tabla.solicitar("A", "B", 2);
+
+        assertAll("La pareja debe quedar libre al resolver el viaje",
+                () -> assertFalse(duranteViaje, "La solicitud durante el viaje se descarta"),
+                () -> assertEquals(1, enCurso, "Debe haber 1 viaje en curso"),
+                () -> assertEquals(1, tabla.getDuplicadas(), "Debe descartarse 1 solicitud"),
+                () -> assertTrue(trasViaje, "Tras el viaje se crea uno nuevo"),
+                () -> assertEquals(0, tabla.viajesEnCurso(), "No debe quedar ningún viaje en curso"),
+                () -> assertEquals(3, tabla.getSolicitudes(), "Debe haber 3 solicitudes")
+        );
+    }
+
+    @Test
+    @DisplayName("Un viaje rechazado por el camión libera la pareja y sus estaciones")
+    void testViajeRechazado() {
+        tabla.solicitar("A", "B", 4);
+        Peticion viaje = tabla.tomar();
+
+        viaje.reclamar();
+        viaje.rechazar();
+
+        assertAll("El viaje no completado no debe dejar estaciones ocupadas",
+                () -> assertEquals(0, tabla.viajesEnCurso(), "No debe quedar ningún viaje en curso"),
+                () -> assertFalse(tabla.estacionOcupada("A"), "El origen debe quedar libre"),
+                () -> assertFalse(tabla.estacionOcupada("B"), "El destino debe quedar libre"),
+                () -> assertTrue(tabla.solicitar("A", "B", 2), "Debe poder solicitarse de nuevo")
+        );
+    }
+
+    @Test
+    @DisplayName("Sin viajes pendientes no se devuelve ninguna petición")
+    void testSinViajes() {
+        assertAll("La tabla vacía no tiene viajes",
+                () -> assertNull(tabla.tomar(), "No debe devolver ninguna petición"),
+                () -> assertThrows(IllegalArgumentException.class, () -> tabla.solicitar("A", "B", 0),
+                        "El número de bicicletas debe ser positivo"),
+                () -> assertThrows(IllegalArgumentException.class, () -> new TablaRedistribucion(0),
+                        "La capacidad debe ser positiva")
+        );
+    }
+
+    @Test
+    @DisplayName("Una estación no puede formar parte de dos viajes a la vez")
+    void testEstacionesOcupadas() {
+        tabla.solicitar("A", "B", 4);
+
+        boolean mismoOrigen = tabla.solicitar("A", "C", 2);
+        boolean mismoDestino = tabla.solicitar("D", "B", 2);
+        boolean libres = tabla.solicitar("D", "C", 2);
+
+        assertAll("Las estaciones ocupadas no admiten otros viajes",
+                () -> assertFalse(mismoOrigen, "El origen ya está ocupado"),
+                () -> assertFalse(mismoDestino, "El destino ya está ocupado"),
+                () -> assertTrue(libres, "Con estaciones libres se crea el viaje"),
+                () -> assertTrue(tabla.estacionOcupada("A"), "A debe estar ocupada"),
+                () -> assertFalse(tabla.estacionOcupada("E"), "E no debe estar ocupada"),
+                () -> assertEquals(2, tabla.getRechazadas(), "Deben rechazarse 2 solicitudes")
+        );
+    }
+
+    @Test
+    @DisplayName("Se admiten hasta el máximo de viajes y se avisa al completarlos")
+    void testMaximoViajes() {
+        TablaRedistribucion limitada = new TablaRedistribucion(CAPACIDAD, 2);
+        List<Peticion> completadas = new ArrayList<>();
+        limitada.alCompletar(completadas::add);
+
+        limitada.solicitar("A", "B", 1);
+        limitada.solicitar("C", "D", 1);
+        boolean llena = limitada.solicitar("E", "F", 1);
+        boolean completa = limitada.isCompleta();
+
+        Peticion viaje = limitada.tomar();
+        viaje.reclamar();
+        viaje.resolver(null);
+        boolean trasCompletar = limitada.solicitar("E", "F", 1);
+
+        assertAll("El máximo de viajes debe respetarse",
+                () -> assertFalse(llena, "No se admiten más viajes que el máximo"),
+                () -> assertTrue(completa, "La tabla debe estar completa"),
+                () -> assertEquals(List.of(viaje), completadas, "Debe avisarse del viaje completado"),
+                () -> assertFalse(limitada.estacionOcupada("A"), "Las estaciones del viaje quedan libres"),
+                () -> assertTrue(trasCompletar, "Tras completar un viaje se admite otro")
+        );
+    }
+}
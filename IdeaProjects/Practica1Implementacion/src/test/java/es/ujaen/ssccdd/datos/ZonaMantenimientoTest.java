@@ -381,4 +381,66 @@ class ZonaMantenimientoTest {
                     "Ambos hilos deben haber depositado sus bicicletas");
         }
     }
-}
\ No newline at end of file
+
+    @Nested
+    @DisplayName("Tests de la línea de reparación")
+    class LineaReparacionTests {
+
+        @Test
+        @DisplayName("Las bicicletas reparadas quedan depositadas en la zona")
+        void testRepararBicicletas() throws InterruptedException {
+            ZonaMantenimiento zona = new ZonaMantenimiento(ZonaMantenimiento.trabajadoresPorEtapa(1), 4, etapa -> 1);
+
+            // La primera entrega pone en marcha la línea
+            zona.repararBicicletas(bicicletasList);
+            boolean iniciada = zona.getLineaReparacion().isIniciada();
+            for (int i = 0; i < 500 && zona.bicicletasDepositadas() < 3; i++) {
+                Thread.sleep(10);
+            }
+            zona.getLineaReparacion().detener();
+
+            assertAll("Las bicicletas deben pasar por la línea",
+                    () -> assertTrue(iniciada, "La línea debe ponerse en marcha al entregarle bicicletas"),
+                    () -> assertTrue(bicicletasList.isEmpty(), "La lista entregada debe vaciarse"),
+                    () -> assertEquals(3, zona.bicicletasDepositadas(), "Deben depositarse las 3 bicicletas"),
+                    () -> assertEquals(3, zona.getLineaReparacion().getReparadas(), "Deben contarse 3 reparadas")
+            );
+        }
+    }
+
+    @Nested
+    @DisplayName("Tests de la recogida en un destino")
+    class RecogerEnDestinoTests {
+
+        @Test
+        @DisplayName("Las bicicletas se recogen en orden de llegada y se añaden al destino")
+        void testRecogerEnDestino() {
+            List<Bicicleta> esperadas = List.copyOf(bicicletasList);
+            List<Bicicleta> destino = new ArrayList<>();
+            zonaMantenimiento.dejarBicicletas(bicicletasList);
+
+            int recogidas = zonaMantenimiento.recogerBicicletas(2, destino);
+
+            assertAll("Deben recogerse las 2 más antiguas",
+                    () -> assertEquals(2, recogidas, "Deben recogerse 2 bicicletas"),
+                    () -> assertEquals(esperadas.subList(0, 2), destino, "Deben ser las primeras depositadas"),
+                    () -> assertEquals(1, zonaMantenimiento.bicicletasDepositadas(), "Debe quedar 1 bicicleta")
+            );
+        }
+
+        @Test
+        @DisplayName("Se recogen todas las bicicletas si se piden más de las depositadas")
+        void testRecogerMasDeLasDepositadas() {
+            List<Bicicleta> destino = new ArrayList<>();
+            zonaMantenimiento.dejarBicicletas(bicicletasList);
+
+            assertAll("Deben recogerse todas",
+                    () -> assertEquals(3, zonaMantenimiento.recogerBicicletas(1000, destino), "Deben recogerse 3"),
+                    () -> assertEquals(3, destino.size(), "El destino debe tener 3 bicicletas"),
+                    () -> assertEquals(0, zonaMantenimiento.bicicletasDepositadas(), "La zona debe quedar vacía"),
+                    () -> assertThrows(IllegalArgumentException.class,
+                            () -> zonaMantenimiento.recogerBicicletas(0, destino), "El número debe ser positivo")
+            );
+        }
+    }
+}